@@ -0,0 +1,99 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result file against the stored baseline and exits with 1 if any benchmark got slower, or
+ * allocates more per operation, by more than the threshold.
+ * <p>
+ * java -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.BaselineComparison
+ * baseline/baseline.json results.json [threshold percent, default 10]
+ */
+public final class BaselineComparison {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <results.json> [threshold percent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> results = read(new File(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s %9s%n", "benchmark", "baseline", "current", "time", "alloc");
+        for (Map.Entry<String, JsonNode> result : results.entrySet()) {
+            JsonNode previous = baseline.get(result.getKey());
+            if (previous == null) {
+                System.out.printf("%-90s %14s%n", result.getKey(), "new");
+                continue;
+            }
+            double previousScore = previous.path("primaryMetric").path("score").asDouble();
+            double score = result.getValue().path("primaryMetric").path("score").asDouble();
+            // Positive is worse: the percent of throughput lost, or of average time gained
+            double timeChange = result.getValue().path("mode").asText().equals("thrpt")
+                    ? -change(previousScore, score)
+                    : change(previousScore, score);
+            double allocationChange = change(allocation(previous), allocation(result.getValue()));
+
+            boolean regressed = timeChange > threshold || allocationChange > threshold;
+            regressions += regressed ? 1 : 0;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%% %+8.1f%%%s%n", result.getKey(), previousScore, score,
+                    timeChange, allocationChange, regressed ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d regression(s) above %.1f%%%n", regressions, threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    // Benchmark name with its parameters, e.g. MemberCountBenchmark.applyDividend{memberCount=100}
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> benchmarks = new LinkedHashMap<>();
+        for (JsonNode benchmark : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(benchmark.path("benchmark").asText()
+                    .replace(BaselineComparison.class.getPackageName() + ".", ""));
+            JsonNode params = benchmark.path("params");
+            if (!params.isMissingNode()) {
+                key.append('{');
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    key.append(field.getKey()).append('=').append(field.getValue().asText()).append(fields.hasNext() ? "," : "}");
+                }
+            }
+            benchmarks.put(key.toString(), benchmark);
+        }
+        return benchmarks;
+    }
+
+    // Bytes allocated per operation, 0 if the results were taken without -prof gc
+    private static double allocation(JsonNode benchmark) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = benchmark.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().endsWith(ALLOCATION)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    // Percent by which current exceeds previous
+    private static double change(double previous, double current) {
+        if (previous == 0) {
+            return 0;
+        }
+        return (current - previous) / previous * 100;
+    }
+}
@@ -0,0 +1,118 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.DirectIndexExecutor;
+import de.solactive.challenge.indexapi.services.IndexExecutor;
+import de.solactive.challenge.indexapi.services.IndexService;
+import de.solactive.challenge.indexapi.services.ShardedIndexExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Throughput and latency of the LOCKS and SHARDED execution modes under the same closed-loop clients. Each client
+ * adds and deletes a share of its own on an index, 80% of the time one of 4 hot indices out of 64, and pays a
+ * dividend on a share of every index once per 100 operations.
+ * <pre>
+ * java -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.ExecutionModeComparison 4 200000
+ * </pre>
+ * Arguments: shards of the SHARDED mode, operations per run, split among the clients. Both modes are warmed up
+ * first; the runs use 1, 4, 16 and 64 clients.
+ */
+public final class ExecutionModeComparison {
+
+    private static final int INDEX_COUNT = 64;
+
+    private ExecutionModeComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int shards = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int totalOperations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        for (String mode : new String[] {"LOCKS", "SHARDED"}) {
+            run(mode, shards, 4, 50_000);
+        }
+        System.out.printf("%-8s %8s %12s %12s %12s%n", "mode", "clients", "ops/s", "p50 us", "p99 us");
+        for (int clients : new int[] {1, 4, 16, 64}) {
+            for (String mode : new String[] {"LOCKS", "SHARDED"}) {
+                long[] latencies = run(mode, shards, clients, totalOperations / clients);
+                long elapsed = latencies[latencies.length - 1];
+                long[] sorted = Arrays.copyOf(latencies, latencies.length - 1);
+                Arrays.sort(sorted);
+                System.out.printf("%-8s %8d %12.0f %12.1f %12.1f%n", mode, clients,
+                        sorted.length * 1e9 / elapsed,
+                        sorted[sorted.length / 2] / 1e3,
+                        sorted[(int) (sorted.length * 0.99)] / 1e3);
+            }
+        }
+    }
+
+    // Latencies of every operation in ns, the last element is the elapsed time of the run
+    private static long[] run(String mode, int shards, int clients, int operationsPerClient) throws Exception {
+        IndexService indexService = new IndexService(new IndexMapperImpl());
+        if (mode.equals("LOCKS")) {
+            return measure(indexService, new DirectIndexExecutor(indexService), clients, operationsPerClient);
+        }
+        ShardedIndexExecutor executor = new ShardedIndexExecutor(indexService, shards);
+        try {
+            return measure(indexService, executor, clients, operationsPerClient);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long[] measure(IndexService indexService, IndexExecutor executor, int clients, int operationsPerClient)
+            throws Exception {
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            executor.createIndex(new IndexDTO(Fixtures.indexName(i), List.of(
+                    new ShareDTO("A.OQ", 1000.0, 10.0),
+                    new ShareDTO("B.OQ", 200.0, 20.0),
+                    new ShareDTO("C.OQ", 300.0, 30.0)))).join();
+        }
+        long[] latencies = new long[clients * operationsPerClient + 1];
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                futures.add(pool.submit(() -> {
+                    Random random = new Random(client);
+                    String shareName = "X" + client + ".OQ";
+                    for (int i = 0; i < operationsPerClient; i++) {
+                        long operationStart = System.nanoTime();
+                        if (i % 100 == 99) {
+                            executor.applyDividend(new ShareDividendDTO("A.OQ", 0.001)).join();
+                        } else {
+                            String indexName = Fixtures.indexName(random.nextInt(5) < 4 ? random.nextInt(4) : random.nextInt(INDEX_COUNT));
+                            if (indexService.getIndex(indexName).getShare(shareName) == null) {
+                                executor.addShareToIndex(new ShareAdditionDTO(shareName, 10.0, 1.0, indexName)).join();
+                            } else {
+                                executor.deleteShareFromIndex(new ShareDeletionDTO(shareName, indexName)).join();
+                            }
+                        }
+                        latencies[client * operationsPerClient + i] = System.nanoTime() - operationStart;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            latencies[latencies.length - 1] = System.nanoTime() - start;
+        } finally {
+            pool.shutdownNow();
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,52 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index data shared by the benchmarks. Index i is named INDEX_i and holds the shares S0.OQ .. S(n-1).OQ,
+ * so every index holds S0.OQ.
+ */
+final class Fixtures {
+
+    // Far above any dividend the benchmarks pay, so no dividend is ever rejected
+    static final double SHARE_PRICE = 1_000.0;
+
+    private Fixtures() {
+    }
+
+    static String indexName(int index) {
+        return "INDEX_" + index;
+    }
+
+    static String shareName(int share) {
+        return "S" + share + ".OQ";
+    }
+
+    static IndexDTO index(String indexName, int memberCount) {
+        List<ShareDTO> members = new ArrayList<>(memberCount);
+        for (int i = 0; i < memberCount; i++) {
+            members.add(new ShareDTO(shareName(i), SHARE_PRICE, 10.0 + i));
+        }
+        return new IndexDTO(indexName, members);
+    }
+
+    static IndexService service(int indexCount, int memberCount) {
+        return service(indexCount, memberCount, MemberStorage.HEAP, NumericMode.DOUBLE);
+    }
+
+    static IndexService service(int indexCount, int memberCount, MemberStorage storage, NumericMode numericMode) {
+        IndexService indexService = new IndexService(new IndexMapperImpl(), storage, numericMode);
+        for (int i = 0; i < indexCount; i++) {
+            indexService.createIndex(index(indexName(i), memberCount));
+        }
+        return indexService;
+    }
+}
@@ -0,0 +1,81 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.IndexStateResponseDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import de.solactive.challenge.indexapi.services.IndexPage;
+import de.solactive.challenge.indexapi.services.IndexService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndexService operations as the number of indices grows, every index holding 10 shares. Operations on one index
+ * should not depend on the index count; a dividend on a share held by every index touches all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class IndexCountBenchmark {
+
+    private static final int MEMBER_COUNT = 10;
+
+    @Param({"1", "100", "10000", "100000"})
+    int indexCount;
+
+    private IndexService indexService;
+    private final IndexDTO newIndex = Fixtures.index("NEW_INDEX", MEMBER_COUNT);
+    private final ShareDividendDTO dividend = new ShareDividendDTO(Fixtures.shareName(0), 1e-9);
+    private ShareAdditionDTO[] additions;
+    private ShareDeletionDTO[] deletions;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexService = Fixtures.service(indexCount, MEMBER_COUNT);
+        additions = new ShareAdditionDTO[indexCount];
+        deletions = new ShareDeletionDTO[indexCount];
+        for (int i = 0; i < indexCount; i++) {
+            additions[i] = new ShareAdditionDTO("X.OQ", Fixtures.SHARE_PRICE, 5.0, Fixtures.indexName(i));
+            deletions[i] = new ShareDeletionDTO("X.OQ", Fixtures.indexName(i));
+        }
+    }
+
+    @Benchmark
+    public boolean createAndDeleteIndex() {
+        indexService.createIndex(newIndex);
+        return indexService.deleteIndex(newIndex.getIndexName());
+    }
+
+    // Walks over the indices, so large index counts do not run from a warm cache line
+    @Benchmark
+    public int addAndDeleteShare() {
+        int index = next;
+        next = index + 1 == indexCount ? 0 : index + 1;
+        indexService.addShareToIndex(additions[index]);
+        indexService.deleteShareFromIndex(deletions[index]);
+        return index;
+    }
+
+    // S0.OQ is held by every index
+    @Benchmark
+    public void applyDividendToEveryIndex() {
+        indexService.applyDividend(dividend);
+    }
+
+    @Benchmark
+    public IndexPage getFirstPage() {
+        return indexService.getIndexPage(null, null, 100);
+    }
+
+    @Benchmark
+    public List<IndexStateResponseDTO> getAllIndicesWithState() {
+        return indexService.getAllIndicesWithState();
+    }
+}
@@ -0,0 +1,77 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.journal.FileIndexJournal;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Share addition and deletion throughput without a journal and with the journal in every durability mode.
+ * Every thread adds and deletes a share on its own index, so the throughput is bound by the journal, not by
+ * lock contention.
+ * <pre>
+ * java -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.JournalThroughput 16 2000 /tmp/journal
+ * </pre>
+ * Arguments: threads, operations per thread, directory of the journals (a temporary directory if omitted).
+ */
+public final class JournalThroughput {
+
+    private JournalThroughput() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int operationsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        Path directory = args.length > 2 ? Files.createDirectories(Path.of(args[2])) : Files.createTempDirectory("journal");
+
+        System.out.printf("%-10s %12s%n", "durability", "ops/s");
+        System.out.printf("%-10s %12.0f%n", "NONE", measure(new IndexService(new IndexMapperImpl()), threads, operationsPerThread));
+        for (FileIndexJournal.Durability durability : FileIndexJournal.Durability.values()) {
+            Path modeDirectory = Files.createDirectory(directory.resolve(durability.name()));
+            try (FileIndexJournal journal = new FileIndexJournal(modeDirectory, durability, 64L * 1024 * 1024, 10)) {
+                double throughput = measure(new IndexService(new IndexMapperImpl(), journal), threads, operationsPerThread);
+                System.out.printf("%-10s %12.0f%n", durability, throughput);
+            }
+        }
+    }
+
+    private static double measure(IndexService indexService, int threads, int operationsPerThread) throws Exception {
+        for (int t = 0; t < threads; t++) {
+            indexService.createIndex(new IndexDTO(Fixtures.indexName(t), List.of(
+                    new ShareDTO("A.OQ", 100.0, 10.0),
+                    new ShareDTO("B.OQ", 200.0, 20.0),
+                    new ShareDTO("C.OQ", 300.0, 30.0))));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String indexName = Fixtures.indexName(t);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < operationsPerThread / 2; i++) {
+                        indexService.addShareToIndex(new ShareAdditionDTO("X.OQ", 50.0, 5.0, indexName));
+                        indexService.deleteShareFromIndex(new ShareDeletionDTO("X.OQ", indexName));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (double) threads * operationsPerThread / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
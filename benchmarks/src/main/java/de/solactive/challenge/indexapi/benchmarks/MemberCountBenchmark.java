@@ -0,0 +1,59 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.services.IndexService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndexService mutations on one index as its member count grows. Every mutation publishes a new copy-on-write
+ * snapshot of the index, so the cost is expected to grow with the member count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MemberCountBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    int memberCount;
+
+    private IndexService indexService;
+    private final ShareAdditionDTO addition = new ShareAdditionDTO("X.OQ", Fixtures.SHARE_PRICE, 5.0, Fixtures.indexName(0));
+    private final ShareDeletionDTO deletion = new ShareDeletionDTO("X.OQ", Fixtures.indexName(0));
+    private final ShareDividendDTO dividend = new ShareDividendDTO(Fixtures.shareName(0), 1e-6);
+    private double price = Fixtures.SHARE_PRICE;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexService = Fixtures.service(1, memberCount);
+    }
+
+    // One addition and one deletion, leaving the index as it was
+    @Benchmark
+    public IndexEntity addAndDeleteShare() {
+        indexService.addShareToIndex(addition);
+        indexService.deleteShareFromIndex(deletion);
+        return indexService.getIndex(Fixtures.indexName(0));
+    }
+
+    @Benchmark
+    public IndexEntity applyDividend() {
+        indexService.applyDividend(dividend);
+        return indexService.getIndex(Fixtures.indexName(0));
+    }
+
+    @Benchmark
+    public IndexEntity applyPriceUpdate() {
+        price = price == Fixtures.SHARE_PRICE ? Fixtures.SHARE_PRICE + 1 : Fixtures.SHARE_PRICE;
+        indexService.applyPriceUpdates(Map.of(Fixtures.shareName(1), price));
+        return indexService.getIndex(Fixtures.indexName(0));
+    }
+}
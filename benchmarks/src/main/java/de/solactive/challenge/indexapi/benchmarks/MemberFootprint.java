@@ -0,0 +1,49 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.InstrumentMaster;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Arrays;
+
+/**
+ * Retained heap of an IndexEntity snapshot per member, and the heap a price change adds on top of the snapshot
+ * it replaces (what every published snapshot costs while both are reachable). The share name Strings are not
+ * counted with a snapshot: members reference them by ID in the InstrumentMaster, once for all indices. The
+ * PriceBook the snapshot reads is counted with it, although indices holding the same shares share one book.
+ * With -Dindex.storage=OFF_HEAP the direct memory taken by the snapshot is reported next to its heap.
+ * <p>
+ * java -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.MemberFootprint [member counts...]
+ */
+public final class MemberFootprint {
+
+    private MemberFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int[] memberCounts = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{10, 100, 1000, 5000};
+        MemberStorage storage = MemberStorage.valueOf(System.getProperty("index.storage", "HEAP"));
+        System.out.printf("%10s %14s %14s %18s %16s%n", "members", "bytes", "bytes/member", "price change bytes",
+                "off-heap bytes");
+        for (int memberCount : memberCounts) {
+            long offHeapBefore = MemberStorage.getOffHeapBytes();
+            InstrumentMaster instruments = new InstrumentMaster();
+            IndexEntity indexEntity = new IndexMapperImpl().toEntity(Fixtures.index(Fixtures.indexName(0), memberCount),
+                    storage, NumericMode.DOUBLE, instruments);
+            long bytes = GraphLayout.parseInstance(indexEntity).subtract(GraphLayout.parseInstance(instruments)).totalSize();
+            long offHeapBytes = MemberStorage.getOffHeapBytes() - offHeapBefore;
+
+            int shareId = indexEntity.getShareId(memberCount / 2);
+            IndexEntity next = indexEntity.withPrices(indexEntity.getPrices().withPrice(shareId, Fixtures.SHARE_PRICE + 1), shareId);
+            long priceChangeBytes = GraphLayout.parseInstance(next).subtract(GraphLayout.parseInstance(indexEntity)).totalSize();
+
+            System.out.printf("%10d %14d %14.1f %18d %16d%n", memberCount, bytes, bytes / (double) memberCount,
+                    priceChangeBytes, offHeapBytes);
+        }
+    }
+}
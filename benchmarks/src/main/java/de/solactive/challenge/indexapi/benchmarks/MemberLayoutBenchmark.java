@@ -0,0 +1,66 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.InstrumentMaster;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The member loops of one IndexEntity snapshot, without the IndexService around them: re-summing the market value
+ * over all members, looking every member up by name, and building the next snapshot for a price change,
+ * with the member columns on the heap and off-heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MemberLayoutBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    int memberCount;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    MemberStorage storage;
+
+    private IndexEntity indexEntity;
+    private String[] shareNames;
+    private double price = Fixtures.SHARE_PRICE;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexEntity = new IndexMapperImpl().toEntity(Fixtures.index(Fixtures.indexName(0), memberCount), storage,
+                NumericMode.DOUBLE, new InstrumentMaster());
+        shareNames = new String[memberCount];
+        for (int i = 0; i < memberCount; i++) {
+            shareNames[i] = Fixtures.shareName(i);
+        }
+    }
+
+    @Benchmark
+    public double resumMarketValue() {
+        return indexEntity.calculateMarketValue();
+    }
+
+    // Every member looked up by its name, in an order unrelated to the member order
+    @Benchmark
+    public double lookupAllShares() {
+        double sum = 0;
+        for (String shareName : shareNames) {
+            sum += indexEntity.getShare(shareName).getSharePrice();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public IndexEntity withPrices() {
+        price = price == Fixtures.SHARE_PRICE ? Fixtures.SHARE_PRICE + 1 : Fixtures.SHARE_PRICE;
+        int shareId = indexEntity.getShareId(indexEntity.getSlot(shareNames[memberCount / 2]));
+        return indexEntity.withPrices(indexEntity.getPrices().withPrice(shareId, price), shareId);
+    }
+}
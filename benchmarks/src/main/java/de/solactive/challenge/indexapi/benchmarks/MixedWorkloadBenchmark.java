@@ -0,0 +1,98 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+import de.solactive.challenge.indexapi.services.IndexStateCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent readers and writers on 1000 indices of 50 shares. Readers fetch the serialized state of a random
+ * index through IndexStateCache, as GET /api/indexState/{indexName} does, so every write also costs the readers
+ * a cache miss. Writers add and delete their own share on a random index, or pay a dividend on a share held by
+ * every index once per 100 operations.
+ * <p>
+ * readMostly runs 3 readers per writer, writeHeavy 1 reader per 3 writers. JMH reports the throughput of each
+ * thread role separately and of the group as a whole.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MixedWorkloadBenchmark {
+
+    private static final int INDEX_COUNT = 1_000;
+    private static final int MEMBER_COUNT = 50;
+    private static final AtomicInteger WRITERS = new AtomicInteger();
+
+    private IndexService indexService;
+    private IndexStateCache indexStateCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexService = Fixtures.service(INDEX_COUNT, MEMBER_COUNT);
+        indexStateCache = new IndexStateCache(indexService, new IndexMapperImpl(), new ObjectMapper(), 64 * 1024 * 1024);
+    }
+
+    // Per writer thread, so writers never add or delete each other's share
+    @State(Scope.Thread)
+    public static class Writer {
+        private final String shareName = "W" + WRITERS.incrementAndGet() + ".OQ";
+        private final ShareDividendDTO dividend = new ShareDividendDTO(Fixtures.shareName(0), 1e-9);
+        private int operations;
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public byte[] readMostlyReader() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public Object readMostlyWriter(Writer writer) {
+        return write(writer);
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(1)
+    public byte[] writeHeavyReader() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(3)
+    public Object writeHeavyWriter(Writer writer) {
+        return write(writer);
+    }
+
+    private byte[] read() {
+        return indexStateCache.getIndexState(Fixtures.indexName(ThreadLocalRandom.current().nextInt(INDEX_COUNT)));
+    }
+
+    private Object write(Writer writer) {
+        if (++writer.operations % 100 == 0) {
+            indexService.applyDividend(writer.dividend);
+            return writer.dividend;
+        }
+        String indexName = Fixtures.indexName(ThreadLocalRandom.current().nextInt(INDEX_COUNT));
+        if (indexService.getIndex(indexName).getShare(writer.shareName) == null) {
+            return indexService.addShareToIndex(new ShareAdditionDTO(writer.shareName, Fixtures.SHARE_PRICE, 1.0, indexName));
+        }
+        indexService.deleteShareFromIndex(new ShareDeletionDTO(writer.shareName, indexName));
+        return indexName;
+    }
+}
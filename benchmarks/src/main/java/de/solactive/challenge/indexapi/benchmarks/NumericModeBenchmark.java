@@ -0,0 +1,72 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.IndexStateResponseDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.mappers.IndexMapper;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The IndexService mutations and the IndexMapper path of MemberCountBenchmark and SerializationBenchmark in both
+ * numeric modes, so the cost of the fixed-point arithmetic shows next to the double version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class NumericModeBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int memberCount;
+
+    @Param({"DOUBLE", "FIXED_POINT"})
+    NumericMode numericMode;
+
+    private final IndexMapper indexMapper = new IndexMapperImpl();
+    private IndexService indexService;
+    private final ShareAdditionDTO addition = new ShareAdditionDTO("X.OQ", Fixtures.SHARE_PRICE, 5.0, Fixtures.indexName(0));
+    private final ShareDeletionDTO deletion = new ShareDeletionDTO("X.OQ", Fixtures.indexName(0));
+    private final ShareDividendDTO dividend = new ShareDividendDTO(Fixtures.shareName(0), 1e-6);
+    private double price = Fixtures.SHARE_PRICE;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexService = Fixtures.service(1, memberCount, MemberStorage.HEAP, numericMode);
+    }
+
+    @Benchmark
+    public IndexEntity addAndDeleteShare() {
+        indexService.addShareToIndex(addition);
+        indexService.deleteShareFromIndex(deletion);
+        return indexService.getIndex(Fixtures.indexName(0));
+    }
+
+    @Benchmark
+    public IndexEntity applyDividend() {
+        indexService.applyDividend(dividend);
+        return indexService.getIndex(Fixtures.indexName(0));
+    }
+
+    @Benchmark
+    public IndexEntity applyPriceUpdate() {
+        price = price == Fixtures.SHARE_PRICE ? Fixtures.SHARE_PRICE + 1 : Fixtures.SHARE_PRICE;
+        indexService.applyPriceUpdates(Map.of(Fixtures.shareName(1), price));
+        return indexService.getIndex(Fixtures.indexName(0));
+    }
+
+    @Benchmark
+    public IndexStateResponseDTO toDto() {
+        return indexMapper.toDto(indexService.getIndex(Fixtures.indexName(0)));
+    }
+}
@@ -0,0 +1,89 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+import de.solactive.challenge.indexapi.services.PriceTickCoalescer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price tick ingestion through PriceTickCoalescer, in ticks per second. Index i holds 20 of 500 share names drawn
+ * at random, so a tick reaches 20 / 500 of the indices. Ticks are for random shares at alternating prices.
+ * <p>
+ * submit is the work of POST /api/priceUpdate on the request thread, without HTTP. ingest submits 1000 ticks and
+ * then runs one coalescing cycle applying them, so it includes the index updates: with the default cycle of 10 ms,
+ * 1000 ticks per cycle is 100k ticks/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PriceIngestionBenchmark {
+
+    private static final int SHARE_COUNT = 500;
+    private static final int MEMBER_COUNT = 20;
+    private static final int TICK_COUNT = 1 << 16;
+    private static final int TICKS_PER_CYCLE = 1000;
+
+    @Param({"100", "1000"})
+    int indexCount;
+
+    private PriceTickCoalescer priceTickCoalescer;
+    private final String[] tickShares = new String[TICK_COUNT];
+    private final double[] tickPrices = new double[TICK_COUNT];
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        IndexService indexService = new IndexService(new IndexMapperImpl());
+        Random random = new Random(42);
+        List<String> shareNames = new ArrayList<>(SHARE_COUNT);
+        for (int i = 0; i < SHARE_COUNT; i++) {
+            shareNames.add(Fixtures.shareName(i));
+        }
+        for (int i = 0; i < indexCount; i++) {
+            Collections.shuffle(shareNames, random);
+            List<ShareDTO> members = new ArrayList<>(MEMBER_COUNT);
+            for (int j = 0; j < MEMBER_COUNT; j++) {
+                members.add(new ShareDTO(shareNames.get(j), Fixtures.SHARE_PRICE, 10.0 + j));
+            }
+            indexService.createIndex(new IndexDTO(Fixtures.indexName(i), members));
+        }
+        for (int i = 0; i < TICK_COUNT; i++) {
+            tickShares[i] = Fixtures.shareName(random.nextInt(SHARE_COUNT));
+            tickPrices[i] = Fixtures.SHARE_PRICE + (i & 1);
+        }
+        // The benchmark runs the cycles itself
+        priceTickCoalescer = new PriceTickCoalescer(indexService, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        priceTickCoalescer.shutdown();
+    }
+
+    @Benchmark
+    public void submit() {
+        int i = tick++ & (TICK_COUNT - 1);
+        priceTickCoalescer.submit(tickShares[i], tickPrices[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS_PER_CYCLE)
+    public void ingest() {
+        for (int n = 0; n < TICKS_PER_CYCLE; n++) {
+            int i = tick++ & (TICK_COUNT - 1);
+            priceTickCoalescer.submit(tickShares[i], tickPrices[i]);
+        }
+        priceTickCoalescer.applyPendingPrices();
+    }
+}
@@ -0,0 +1,63 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.IndexStateResponseDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.mappers.IndexMapper;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+import de.solactive.challenge.indexapi.services.IndexStateCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GET /api/indexState/{indexName} path by member count: mapping the snapshot to its DTO, serializing the DTO,
+ * and the serialized state served from IndexStateCache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SerializationBenchmark {
+
+    @Param({"10", "100", "1000", "5000"})
+    int memberCount;
+
+    private final IndexMapper indexMapper = new IndexMapperImpl();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IndexEntity indexEntity;
+    private IndexStateResponseDTO indexState;
+    private IndexStateCache indexStateCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        IndexService indexService = Fixtures.service(1, memberCount);
+        indexEntity = indexService.getIndex(Fixtures.indexName(0));
+        indexState = indexMapper.toDto(indexEntity);
+        indexStateCache = new IndexStateCache(indexService, indexMapper, objectMapper, 64 * 1024 * 1024);
+    }
+
+    @Benchmark
+    public IndexStateResponseDTO toDto() {
+        return indexMapper.toDto(indexEntity);
+    }
+
+    @Benchmark
+    public byte[] serializeDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(indexState);
+    }
+
+    @Benchmark
+    public byte[] toDtoAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(indexMapper.toDto(indexEntity));
+    }
+
+    @Benchmark
+    public byte[] cachedState() {
+        return indexStateCache.getIndexState(Fixtures.indexName(0));
+    }
+}
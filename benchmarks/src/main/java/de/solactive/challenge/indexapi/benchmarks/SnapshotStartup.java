@@ -0,0 +1,94 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.journal.FileIndexJournal;
+import de.solactive.challenge.indexapi.journal.IndexSnapshotStore;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Startup time from a snapshot and a journal tail. The indices are built, written to a snapshot, the journal is
+ * compacted and the tail records are appended; then the snapshot is decoded on its own and the service is
+ * restarted from the snapshot and the tail, three times each.
+ * <pre>
+ * java -Xmx8g -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.SnapshotStartup 10000 500 100000 /tmp/snapshots
+ * </pre>
+ * Arguments: index count, members per index, journal tail records, directory of the snapshots and the journal
+ * (a temporary directory if omitted).
+ */
+public final class SnapshotStartup {
+
+    // Members are drawn from this many shares, like overlapping equity indices
+    private static final int SHARE_UNIVERSE = 5_000;
+
+    private SnapshotStartup() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int indexCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int membersPerIndex = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int tailRecords = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        Path directory = args.length > 3 ? Files.createDirectories(Path.of(args[3])) : Files.createTempDirectory("snapshots");
+
+        IndexSnapshotStore snapshotStore = new IndexSnapshotStore(directory, 2);
+        try (FileIndexJournal journal = journal(directory)) {
+            IndexService indexService = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+            for (int i = 0; i < indexCount; i++) {
+                List<ShareDTO> members = new ArrayList<>(membersPerIndex);
+                for (int m = 0; m < membersPerIndex; m++) {
+                    int share = (i * 7 + m * 10) % SHARE_UNIVERSE;
+                    members.add(new ShareDTO(String.format("S%04d.OQ", share), 10.0 + share % 100, 100.0));
+                }
+                indexService.createIndex(new IndexDTO(Fixtures.indexName(i), members));
+            }
+            long start = System.nanoTime();
+            snapshotStore.write(indexService.captureSnapshot());
+            System.out.printf("snapshot of %d indices x %d members written in %d ms, %d MiB%n", indexCount, membersPerIndex,
+                    (System.nanoTime() - start) / 1_000_000, snapshotBytes(directory) >> 20);
+            journal.compact(snapshotStore.getCompactableLsn());
+            for (int i = 0; i < tailRecords / 2; i++) {
+                String indexName = Fixtures.indexName(i % indexCount);
+                indexService.addShareToIndex(new ShareAdditionDTO("X.OQ", 50.0, 5.0, indexName));
+                indexService.deleteShareFromIndex(new ShareDeletionDTO("X.OQ", indexName));
+            }
+        }
+
+        for (int run = 0; run < 3; run++) {
+            System.gc();
+            long decodeStart = System.nanoTime();
+            snapshotStore.loadLatest();
+            System.out.printf("snapshot decoded in %d ms%n", (System.nanoTime() - decodeStart) / 1_000_000);
+            System.gc();
+            try (FileIndexJournal journal = journal(directory)) {
+                long start = System.nanoTime();
+                IndexService restarted = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+                System.out.printf("startup with snapshot and %d journal records: %d ms (%d indices)%n", tailRecords,
+                        (System.nanoTime() - start) / 1_000_000, restarted.getIndices().size());
+            }
+        }
+    }
+
+    private static FileIndexJournal journal(Path directory) throws IOException {
+        return new FileIndexJournal(directory, FileIndexJournal.Durability.ASYNC, 1024 * 1024, 10);
+    }
+
+    private static long snapshotBytes(Path directory) throws IOException {
+        long bytes = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().startsWith("snapshot-")).toList()) {
+                bytes += Files.size(file);
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,116 @@
+package de.solactive.challenge.indexapi.benchmarks;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.services.IndexService;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap, GC pauses and mutation throughput of one member storage under the same dataset. The indices are built,
+ * the retained heap and direct memory are measured after a full GC, then shares are added to and deleted from
+ * random indices for the given time, each mutation publishing a new snapshot of the index.
+ * <p>
+ * Run each storage in a JVM of its own, with the same heap settings:
+ * <pre>
+ * java -Xmx4g -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.StorageComparison HEAP 200000 50 60
+ * java -Xmx4g -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.StorageComparison OFF_HEAP 200000 50 60
+ * </pre>
+ * Arguments: storage, index count, members per index, seconds of mutations. -Dindex.storage.off-heap-max-bytes
+ * limits the direct memory as the application property does.
+ */
+public final class StorageComparison {
+
+    private StorageComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        MemberStorage storage = MemberStorage.valueOf(args.length > 0 ? args[0] : "HEAP");
+        int indexCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int memberCount = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+
+        storage.withOffHeapLimit(Long.getLong("index.storage.off-heap-max-bytes", Long.MAX_VALUE));
+        long buildStart = System.nanoTime();
+        IndexService indexService = Fixtures.service(indexCount, memberCount, storage, NumericMode.DOUBLE);
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        long heapBytes = retainedHeap();
+        System.out.printf("%s: %d indices x %d members built in %d ms%n", storage, indexCount, memberCount, buildMillis);
+        System.out.printf("  heap after full GC   %,14d bytes%n", heapBytes);
+        System.out.printf("  off-heap in use      %,14d bytes (%,d reserved)%n",
+                MemberStorage.getOffHeapBytes(), MemberStorage.getOffHeapReservedBytes());
+
+        PauseRecorder pauses = new PauseRecorder();
+        SplittableRandom random = new SplittableRandom(42);
+        long operations = 0;
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < end) {
+            String indexName = Fixtures.indexName(random.nextInt(indexCount));
+            indexService.addShareToIndex(new ShareAdditionDTO("X.OQ", Fixtures.SHARE_PRICE, 5.0, indexName));
+            indexService.deleteShareFromIndex(new ShareDeletionDTO("X.OQ", indexName));
+            operations += 2;
+        }
+        pauses.stop();
+
+        System.out.printf("  mutations            %,14.0f ops/s%n", operations / (double) seconds);
+        synchronized (pauses.byCollector) {
+            for (Map.Entry<String, long[]> collector : pauses.byCollector.entrySet()) {
+                long[] stats = collector.getValue();
+                System.out.printf("  %-20s %,8d collections, %,8d ms total, %,6d ms max%n",
+                        collector.getKey(), stats[0], stats[1], stats[2]);
+            }
+        }
+        System.out.printf("  heap after full GC   %,14d bytes%n", retainedHeap());
+        System.out.printf("  off-heap in use      %,14d bytes (%,d reserved)%n",
+                MemberStorage.getOffHeapBytes(), MemberStorage.getOffHeapReservedBytes());
+    }
+
+    // Released off-heap regions are only returned once the collector has found their columns unreachable
+    private static long retainedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(200);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // Collections, total and longest duration per collector, from the GC notifications of the JVM
+    private static final class PauseRecorder {
+
+        private final Map<String, long[]> byCollector = new TreeMap<>();
+        private volatile boolean stopped;
+
+        PauseRecorder() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (stopped || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        return;
+                    }
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    long duration = info.getGcInfo().getDuration();
+                    synchronized (byCollector) {
+                        long[] stats = byCollector.computeIfAbsent(info.getGcName(), k -> new long[3]);
+                        stats[0]++;
+                        stats[1] += duration;
+                        stats[2] = Math.max(stats[2], duration);
+                    }
+                }, null, null);
+            }
+        }
+
+        void stop() {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package de.solactive.challenge.indexapi.benchmarks.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Connection scalability of GET /api/indexEvents on the servlet stack (Tomcat, IndexController) against the
+ * reactive profile (Netty, ReactiveIndexController): heap, direct memory and threads per open stream, and the time
+ * until one price update reached every stream. The application runs from its executable jar in a JVM of its own
+ * and its memory is read from /actuator/metrics after a full collection. The streams are plain sockets.
+ * <pre>
+ * java -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.load.EventStreamConnections 1000 5000
+ * </pre>
+ * Arguments: the stream counts to measure. -Dapp.jar selects the executable jar (default
+ * ../target/IndexAPI-0.0.1-SNAPSHOT-exec.jar); run with ulimit -n above the largest stream count.
+ */
+public final class EventStreamConnections {
+
+    private static final Pattern VALUE = Pattern.compile("\"value\"\\s*:\\s*([-0-9.Ee+]+)");
+
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private EventStreamConnections() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Path.of(System.getProperty("app.jar", "../target/IndexAPI-0.0.1-SNAPSHOT-exec.jar"));
+        int[] streamCounts = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] {1_000, 5_000};
+
+        System.out.printf("%-9s %8s %14s %14s %10s %12s%n", "stack", "streams", "heap B/conn", "direct B/conn", "threads", "fan-out ms");
+        for (int streams : streamCounts) {
+            for (String stack : new String[] {"servlet", "reactive"}) {
+                String appArgs = "--server.tomcat.max-connections=" + (streams + 100) + " --logging.level.root=ERROR"
+                        + (stack.equals("reactive") ? " --spring.profiles.active=reactive" : "");
+                try (AppProcess app = AppProcess.start(jar, "-Xmx1g", appArgs)) {
+                    measure(app, stack, streams);
+                }
+            }
+        }
+    }
+
+    private static void measure(AppProcess app, String stack, int streams) throws Exception {
+        URI baseUri = app.baseUri();
+        post(baseUri, "/api/create", """
+                {"indexName":"INDEX_1","indexMembers":[
+                {"shareName":"A.OQ","sharePrice":10.0,"numberOfShares":20.0},
+                {"shareName":"B.OQ","sharePrice":20.0,"numberOfShares":30.0}]}""");
+
+        app.collectGarbage();
+        double heapBefore = metric(baseUri, "jvm.memory.used?tag=area:heap");
+        double directBefore = metric(baseUri, "jvm.buffer.memory.used?tag=id:direct");
+        double threadsBefore = metric(baseUri, "jvm.threads.live");
+        List<Socket> sockets = new ArrayList<>(streams);
+        try {
+            for (int i = 0; i < streams; i++) {
+                Socket socket = new Socket(baseUri.getHost(), baseUri.getPort());
+                socket.setSoTimeout(30_000);
+                socket.getOutputStream().write(("GET /api/indexEvents?indexName=INDEX_1 HTTP/1.1\r\n"
+                        + "Host: localhost\r\nAccept: text/event-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                sockets.add(socket);
+            }
+            Thread.sleep(2_000); // let the server register every subscription
+            app.collectGarbage();
+            long heapPerStream = (long) ((metric(baseUri, "jvm.memory.used?tag=area:heap") - heapBefore) / streams);
+            long directPerStream = (long) ((metric(baseUri, "jvm.buffer.memory.used?tag=id:direct") - directBefore) / streams);
+            long threads = (long) (metric(baseUri, "jvm.threads.live") - threadsBefore);
+
+            long start = System.nanoTime();
+            post(baseUri, "/api/priceUpdate", "{\"shareName\":\"A.OQ\",\"sharePrice\":11.0}");
+            for (Socket socket : sockets) {
+                awaitEvent(socket.getInputStream());
+            }
+            long fanOutMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("%-9s %8d %14d %14d %10d %12d%n", stack, streams, heapPerStream, directPerStream, threads, fanOutMillis);
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    // Reads the stream until the event of the price update arrived
+    private static void awaitEvent(InputStream input) throws IOException {
+        StringBuilder received = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        while (received.indexOf("\"shareName\":\"A.OQ\"") < 0) {
+            int read = input.read(buffer);
+            if (read < 0) {
+                throw new IOException("Stream closed before the event");
+            }
+            received.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void post(URI baseUri, String path, String json) throws IOException, InterruptedException {
+        HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(path + " failed with " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    // The value of an actuator metric, summed over the series the tag selects
+    private static double metric(URI baseUri, String nameAndTag) throws IOException, InterruptedException {
+        HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(baseUri.resolve("/actuator/metrics/" + nameAndTag)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher value = VALUE.matcher(response.body());
+        if (response.statusCode() != 200 || !value.find()) {
+            throw new IOException("/actuator/metrics/" + nameAndTag + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return Double.parseDouble(value.group(1));
+    }
+}
@@ -0,0 +1,177 @@
+package de.solactive.challenge.indexapi.benchmarks.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load generator: starts the application (or targets a running one), creates the index population,
+ * then sends the request mix at a fixed rate and reports latency percentiles and throughput per operation.
+ * <p>
+ * The load is open-loop: request i is due at start + i / rate whether or not earlier requests have completed,
+ * and its latency is measured from when it was due, not from when it could be sent. A stalled server thus shows
+ * up in the percentiles of every request that should have been sent during the stall, instead of silently
+ * lowering the request rate (coordinated omission).
+ * <p>
+ * java -cp target/benchmarks.jar de.solactive.challenge.indexapi.benchmarks.load.LoadGenerator --rate=2000 --duration=60
+ */
+public final class LoadGenerator {
+
+    // Latencies are recorded in microseconds, up to an hour
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final LoadOptions options;
+
+    private LoadGenerator(LoadOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        if (options.url != null) {
+            new LoadGenerator(options).run(URI.create(options.url));
+        } else {
+            System.out.println("Starting " + options.appJar + " " + options.appArgs);
+            try (AppProcess app = AppProcess.start(options.appJar, options.appJvmArgs, options.appArgs)) {
+                new LoadGenerator(options).run(app.baseUri());
+            }
+        }
+    }
+
+    private void run(URI baseUri) throws Exception {
+        Workload workload = new Workload(baseUri, options);
+        HttpResponse<String> populated = client.send(workload.populate(), HttpResponse.BodyHandlers.ofString());
+        if (populated.statusCode() != 200) {
+            throw new IOException("Creating the indices failed with " + populated.statusCode() + ": " + populated.body());
+        }
+        System.out.printf("Created %d indices of %d shares: %s%n", options.indices, options.members, populated.body());
+
+        if (options.warmupSeconds > 0) {
+            System.out.printf("Warm-up: %d s at %d req/s%n", options.warmupSeconds, options.rate);
+            schedule(workload, options.warmupSeconds);
+        }
+        System.out.printf("Measuring: %d s at %d req/s, mix %s%n", options.durationSeconds, options.rate, options.mix);
+        Results results = schedule(workload, options.durationSeconds);
+        results.print(System.out, options.durationSeconds);
+        if (options.hgrmDirectory != null) {
+            results.writePercentileDistributions();
+        }
+    }
+
+    // Sends the requests on schedule for the given seconds, then waits for the outstanding responses
+    private Results schedule(Workload workload, int seconds) throws InterruptedException {
+        Results results = new Results();
+        Phaser outstanding = new Phaser(1);
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        long requests = (long) options.rate * seconds;
+        long start = System.nanoTime();
+        long lagging = 0;
+        for (long i = 0; i < requests; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (-wait > TimeUnit.MILLISECONDS.toNanos(10)) {
+                lagging++;
+            }
+            Workload.Request request = workload.next();
+            outstanding.register();
+            client.sendAsync(request.httpRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        results.record(request.operation(), due, System.nanoTime(), response != null ? response.statusCode() : -1);
+                        outstanding.arriveAndDeregister();
+                    });
+        }
+        try {
+            outstanding.awaitAdvanceInterruptibly(outstanding.arrive(), 60, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            System.out.println("Responses still outstanding after 60 s, they are left out");
+        }
+        if (lagging > 0) {
+            System.out.printf("%d requests were sent more than 10 ms late, the generator itself could not keep the rate%n", lagging);
+        }
+        return results;
+    }
+
+    private final class Results {
+
+        private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        private final Histogram all = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final Map<Operation, Map<Integer, AtomicLong>> statuses = new EnumMap<>(Operation.class);
+
+        Results() {
+            for (Operation operation : options.mix.keySet()) {
+                histograms.put(operation, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+                statuses.put(operation, new ConcurrentHashMap<>());
+            }
+        }
+
+        // A failed request (status -1) is recorded with the time until it failed
+        void record(Operation operation, long due, long completed, int status) {
+            long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(completed - due), MAX_LATENCY_MICROS);
+            histograms.get(operation).recordValue(micros);
+            all.recordValue(micros);
+            statuses.get(operation).computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+        }
+
+        void print(PrintStream out, int seconds) {
+            out.printf("%-10s %10s %10s %10s %10s %10s %10s  %s%n",
+                    "operation", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "statuses");
+            for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+                print(out, entry.getKey().name(), entry.getValue(), seconds, new TreeMap<>(statuses.get(entry.getKey())).toString());
+            }
+            print(out, "ALL", all, seconds, "");
+        }
+
+        private void print(PrintStream out, String name, Histogram histogram, int seconds, String statusCounts) {
+            out.printf("%-10s %10d %10.0f %10.3f %10.3f %10.3f %10.3f  %s%n", name,
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / (double) seconds,
+                    histogram.getValueAtPercentile(50) / 1e3,
+                    histogram.getValueAtPercentile(99) / 1e3,
+                    histogram.getValueAtPercentile(99.9) / 1e3,
+                    histogram.getMaxValue() / 1e3,
+                    statusCounts);
+        }
+
+        // Full distributions in the HdrHistogram .hgrm format, in milliseconds, for plotting
+        void writePercentileDistributions() throws IOException {
+            Files.createDirectories(options.hgrmDirectory);
+            for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(
+                        options.hgrmDirectory.resolve(entry.getKey().name().toLowerCase() + ".hgrm")))) {
+                    entry.getValue().outputPercentileDistribution(out, 1e3);
+                }
+            }
+        }
+    }
+}
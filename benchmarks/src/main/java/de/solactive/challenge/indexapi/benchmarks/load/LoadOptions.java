@@ -0,0 +1,109 @@
+package de.solactive.challenge.indexapi.benchmarks.load;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line of the load generator, every option as --name=value.
+ */
+final class LoadOptions {
+
+    static final String USAGE = """
+            Options (all optional):
+              --url=http://host:port        drive a running application instead of starting one
+              --app-jar=path                executable jar to start (default ../target/IndexAPI-0.0.1-SNAPSHOT-exec.jar)
+              --app-args="..."              arguments of the started application, e.g. --spring.profiles.active=reactive
+              --app-jvm-args="..."          JVM arguments of the started application (default -Xmx1g)
+              --rate=N                      requests per second, sent on schedule whatever the latency (default 1000)
+              --duration=S                  measured seconds (default 30)
+              --warmup=S                    seconds at the same rate before measuring, not reported (default 10)
+              --mix=op:weight,...           request mix over state, page, adjust, dividend, create,
+                                            price, prices
+                                            (default state:90,adjust:8,dividend:2)
+              --indices=N                   indices created before the run (default 1000)
+              --members=N                   shares per index (default 20)
+              --shares=N                    distinct share names the members are drawn from (default 500)
+              --seed=N                      random seed of the population and the request sequence (default 42)
+              --hgrm=dir                    also write each histogram's percentile distribution to dir/<op>.hgrm
+            """;
+
+    final String url;
+    final Path appJar;
+    final String appArgs;
+    final String appJvmArgs;
+    final int rate;
+    final int durationSeconds;
+    final int warmupSeconds;
+    final Map<Operation, Integer> mix;
+    final int indices;
+    final int members;
+    final int shares;
+    final long seed;
+    final Path hgrmDirectory;
+
+    private LoadOptions(Map<String, String> values) {
+        url = values.remove("url");
+        appJar = Path.of(values.getOrDefault("app-jar", "../target/IndexAPI-0.0.1-SNAPSHOT-exec.jar"));
+        values.remove("app-jar");
+        appArgs = orDefault(values, "app-args", "");
+        appJvmArgs = orDefault(values, "app-jvm-args", "-Xmx1g");
+        rate = Integer.parseInt(orDefault(values, "rate", "1000"));
+        durationSeconds = Integer.parseInt(orDefault(values, "duration", "30"));
+        warmupSeconds = Integer.parseInt(orDefault(values, "warmup", "10"));
+        mix = parseMix(orDefault(values, "mix", "state:90,adjust:8,dividend:2"));
+        indices = Integer.parseInt(orDefault(values, "indices", "1000"));
+        members = Integer.parseInt(orDefault(values, "members", "20"));
+        shares = Integer.parseInt(orDefault(values, "shares", "500"));
+        seed = Long.parseLong(orDefault(values, "seed", "42"));
+        String hgrm = values.remove("hgrm");
+        hgrmDirectory = hgrm != null ? Path.of(hgrm) : null;
+
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        if (rate < 1 || durationSeconds < 1 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("rate and duration must be positive, warmup not negative");
+        }
+        if (members < 2 || members > shares) {
+            throw new IllegalArgumentException("members must be between 2 and shares");
+        }
+    }
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Not an option: " + arg);
+            }
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadOptions(values);
+    }
+
+    private static String orDefault(Map<String, String> values, String name, String defaultValue) {
+        String value = values.remove(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Not an op:weight pair: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight: " + entry);
+            }
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix has no weight");
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,21 @@
+package de.solactive.challenge.indexapi.benchmarks.load;
+
+/**
+ * Request kinds of a load mix, each reported with its own histogram.
+ */
+enum Operation {
+    /** GET /api/indexState/{indexName} of a random index */
+    STATE,
+    /** GET /api/indexState?limit=100 */
+    PAGE,
+    /** POST /api/indexAdjustment adding or deleting a share of a random index */
+    ADJUST,
+    /** POST /api/indexAdjustment paying a dividend on a random share */
+    DIVIDEND,
+    /** POST /api/create of a new index */
+    CREATE,
+    /** POST /api/priceUpdate of a random share */
+    PRICE,
+    /** POST /api/priceUpdate/batch of 100 random shares */
+    PRICES
+}
@@ -0,0 +1,135 @@
+package de.solactive.challenge.indexapi.benchmarks.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * The indices created before a run and the requests of the run. Index i is named LOAD_i and holds a random subset
+ * of the share names S0.OQ .. S(shares-1).OQ, so a dividend reaches every index holding the drawn share.
+ * Requests are drawn from the mix by weight; not thread-safe, the request schedule runs on one thread.
+ */
+final class Workload {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final double SHARE_PRICE = 1_000.0;
+    private static final int PRICE_BATCH_SIZE = 100;
+
+    private final URI baseUri;
+    private final LoadOptions options;
+    private final SplittableRandom random;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    // Per index, whether the next adjustment adds or deletes the extra share
+    private final boolean[] extraShareAdded;
+    private int createdIndices;
+
+    record Request(Operation operation, HttpRequest httpRequest) {
+    }
+
+    Workload(URI baseUri, LoadOptions options) {
+        this.baseUri = baseUri;
+        this.options = options;
+        this.random = new SplittableRandom(options.seed);
+        this.operations = options.mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int sum = 0;
+        for (int i = 0; i < operations.length; i++) {
+            sum += options.mix.get(operations[i]);
+            cumulativeWeights[i] = sum;
+        }
+        this.extraShareAdded = new boolean[options.indices];
+    }
+
+    // NDJSON body for POST /api/create/bulk with every index of the population
+    HttpRequest populate() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < options.indices; i++) {
+            body.append(indexJson("LOAD_" + i)).append('\n');
+        }
+        return HttpRequest.newBuilder(baseUri.resolve("/api/create/bulk"))
+                .timeout(Duration.ofMinutes(5))
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    Request next() {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (draw >= cumulativeWeights[i]) {
+            i++;
+        }
+        Operation operation = operations[i];
+        return new Request(operation, switch (operation) {
+            case STATE -> get("/api/indexState/LOAD_" + random.nextInt(options.indices));
+            case PAGE -> get("/api/indexState?limit=100");
+            case ADJUST -> adjustment();
+            case DIVIDEND -> post("/api/indexAdjustment", """
+                    {"dividendOperation":{"shareName":"S%d.OQ","dividend":0.0001}}""".formatted(random.nextInt(options.shares)));
+            case CREATE -> post("/api/create", indexJson("CREATED_" + createdIndices++));
+            case PRICE -> post("/api/priceUpdate", priceJson());
+            case PRICES -> priceBatch();
+        });
+    }
+
+    // A tick of a random share, at most 0.99 above the creation price
+    private String priceJson() {
+        return "{\"shareName\":\"S" + random.nextInt(options.shares) + ".OQ\",\"sharePrice\":"
+                + (SHARE_PRICE + random.nextInt(100) / 100.0) + "}";
+    }
+
+    private HttpRequest priceBatch() {
+        StringBuilder json = new StringBuilder("{\"prices\":[");
+        for (int i = 0; i < PRICE_BATCH_SIZE; i++) {
+            json.append(i > 0 ? "," : "").append(priceJson());
+        }
+        return post("/api/priceUpdate/batch", json.append("]}").toString());
+    }
+
+    // Alternately adds and deletes the share X.OQ of a random index
+    private HttpRequest adjustment() {
+        int index = random.nextInt(options.indices);
+        boolean add = !extraShareAdded[index];
+        extraShareAdded[index] = add;
+        if (add) {
+            return post("/api/indexAdjustment", """
+                    {"additionOperation":{"shareName":"X.OQ","sharePrice":%s,"numberOfShares":10.0,"indexName":"LOAD_%d"}}"""
+                    .formatted(SHARE_PRICE, index));
+        }
+        return post("/api/indexAdjustment", """
+                {"deletionOperation":{"shareName":"X.OQ","indexName":"LOAD_%d"}}""".formatted(index));
+    }
+
+    private String indexJson(String indexName) {
+        List<Integer> shareIds = new ArrayList<>(options.shares);
+        for (int i = 0; i < options.shares; i++) {
+            shareIds.add(i);
+        }
+        Collections.shuffle(shareIds, new Random(random.nextLong()));
+        StringBuilder json = new StringBuilder("{\"indexName\":\"").append(indexName).append("\",\"indexMembers\":[");
+        for (int i = 0; i < options.members; i++) {
+            json.append(i > 0 ? "," : "")
+                    .append("{\"shareName\":\"S").append(shareIds.get(i)).append(".OQ\",\"sharePrice\":").append(SHARE_PRICE)
+                    .append(",\"numberOfShares\":").append(10.0 + i).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+}
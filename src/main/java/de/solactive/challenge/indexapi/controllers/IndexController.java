@@ -1,26 +1,48 @@
 package de.solactive.challenge.indexapi.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import de.solactive.challenge.indexapi.services.IndexService;
+import de.solactive.challenge.indexapi.services.IndexBulkLoader;
+import de.solactive.challenge.indexapi.services.IndexEventStream;
+import de.solactive.challenge.indexapi.services.IndexStateCache;
 import de.solactive.challenge.indexapi.dto.*;
 import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/*
+ Mutations go through the IndexExecutor. In SHARDED mode they answer with the future of the shard owning the index,
+ so the request thread is released while the shard runs the operation; in LOCKS mode the future is already
+ completed and the response is returned as is, without an async dispatch.
+ Validation and status codes are those of IndexRequestHandler, shared with ReactiveIndexController.
+ */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 public class IndexController {
 
+    private final IndexRequestHandler indexRequestHandler;
+    private final IndexBulkLoader indexBulkLoader;
+    private final IndexEventStream indexEventStream;
+    private final ObjectMapper objectMapper;
 
-    private final IndexService indexService;
-
-    public IndexController(IndexService indexService) {
-        this.indexService = indexService;
-
+    public IndexController(IndexRequestHandler indexRequestHandler, IndexBulkLoader indexBulkLoader,
+                           IndexEventStream indexEventStream, ObjectMapper objectMapper) {
+        this.indexRequestHandler = indexRequestHandler;
+        this.indexBulkLoader = indexBulkLoader;
+        this.indexEventStream = indexEventStream;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -30,18 +52,21 @@ public class IndexController {
      * @return HTTP 201 (Created), 409 (Conflict), or 400 (Bad Request).
      */
     @PostMapping("/create")
-    public ResponseEntity<String> createIndex(@Valid @RequestBody IndexDTO indexDTO) {
-
-
+    public Object createIndex(@Valid @RequestBody IndexDTO indexDTO) {
+        return respond(indexRequestHandler.createIndex(indexDTO));
+    }
 
-        boolean isCreated = indexService.createIndex(indexDTO);
-        if (isCreated) {
-           // Index created successfully
-            return ResponseEntity.status(201).build();
-        } else {
-            // Index already exists
-            return ResponseEntity.status(409).build();
-        }
+    /**
+     * POST /api/create/bulk - Creates many indices from a JSON array or NDJSON payload.
+     * Indices are created while the payload is being read.
+     *
+     * @param payload The request body, one index definition per array element or per line.
+     * @return HTTP 200 with the counts of created, conflicting and invalid indices,
+     *         or 400 with the counts so far if the payload is not well-formed JSON.
+     */
+    @PostMapping(value = "/create/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkCreateResponseDTO> createIndices(InputStream payload) throws IOException {
+        return indexRequestHandler.createIndicesResponse(indexBulkLoader.createIndices(payload));
     }
 
     /**
@@ -51,47 +76,63 @@ public class IndexController {
      * @return HTTP 201, 200, 400, 401, 404, or 405 depending on the operation result.
      */
     @PostMapping("/indexAdjustment")
-    public ResponseEntity<String> indexAdjustment(@Valid @RequestBody IndexAdjustmentRequestsDTO requestsDTO) {
-        try {
+    public Object indexAdjustment(@Valid @RequestBody IndexAdjustmentRequestsDTO requestsDTO) {
+        return respond(indexRequestHandler.indexAdjustment(requestsDTO));
+    }
 
-            if (requestsDTO.getAdditionOperation() != null) {
-                // perform addition
-               if ( indexService.addShareToIndex(requestsDTO.getAdditionOperation())) {
-                   return ResponseEntity.status(201).build(); //201 Share added successfully
-               } else {
-                   return ResponseEntity.status(202).build(); // 202 Failed: Share already exist
-               }
-
-            } else if (requestsDTO.getDeletionOperation() != null) {
-                // perform deletion
-                indexService.deleteShareFromIndex(requestsDTO.getDeletionOperation());
-                return ResponseEntity.ok().build(); //200 ok
-            } else if (requestsDTO.getDividendOperation() != null) {
-                // perform dividen
-                indexService.applyDividend(requestsDTO.getDividendOperation());
-                return ResponseEntity.ok().build(); // 200 ok
-            }
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(401).build();  // 401 Unauthorized
-        } catch (NoSuchElementException e) {
-            return ResponseEntity.status(404).build();  // 404 Not Found
-        } catch (IllegalStateException e) {
-            return ResponseEntity.status(405).build();  // 405 Method Not Allowed
-        }
+    /**
+     * POST /api/indexAdjustment/batch - Applies an ordered list of adjustments in one request.
+     * Every index involved is locked once for the whole batch.
+     *
+     * @param requestsDTO The operations, and whether an index must stay unchanged if any of its operations fails.
+     * @return HTTP 200 with one result per operation, or 400 (Bad Request).
+     */
+    @PostMapping("/indexAdjustment/batch")
+    public Object indexAdjustmentBatch(@Valid @RequestBody BatchAdjustmentRequestsDTO requestsDTO) {
+        return respond(indexRequestHandler.indexAdjustmentBatch(requestsDTO));
+    }
 
-        return ResponseEntity.badRequest().build(); // Invalid request 400
+    /**
+     * POST /api/priceUpdate - Sets the market price of a share in every index holding it.
+     * Prices are applied asynchronously, bursts for the same share are coalesced to the latest price.
+     *
+     * @param priceUpdateDTO The share and its new price.
+     * @return HTTP 202 (Accepted) or 400 (Bad Request).
+     */
+    @PostMapping("/priceUpdate")
+    public ResponseEntity<Void> priceUpdate(@Valid @RequestBody PriceUpdateDTO priceUpdateDTO) {
+        return indexRequestHandler.priceUpdate(List.of(priceUpdateDTO));
+    }
 
+    /**
+     * POST /api/priceUpdate/batch - Submits many price updates in one request, see /priceUpdate.
+     *
+     * @param batchDTO The prices, later entries for the same share win.
+     * @return HTTP 202 (Accepted) or 400 (Bad Request).
+     */
+    @PostMapping("/priceUpdate/batch")
+    public ResponseEntity<Void> priceUpdateBatch(@Valid @RequestBody PriceUpdateBatchDTO batchDTO) {
+        return indexRequestHandler.priceUpdate(batchDTO.getPrices());
     }
 
     /**
      * GET /api/indexState - Returns the state of all indices.
+     * The body is assembled from serialized per-index fragments cached by index version.
+     * With any of the paging parameters, one page in index name order is returned instead,
+     * with the cursor of the next page in nextCursor (null on the last page).
      *
-     * @return List of all index states.
+     * @param prefix Only indices whose name starts with the prefix.
+     * @param cursor nextCursor of the previous page.
+     * @param limit  Page size, 1 to 1000, 100 by default.
+     * @param view   FULL (with members) or VALUES (index name and value only).
+     * @return List of all index states, one page of them, or 400 (Bad Request) for an invalid limit or cursor.
      */
     @GetMapping("/indexState")
-    public ResponseEntity<Map<String, List<IndexStateResponseDTO>>> getAllIndicesWithState() {
-        List<IndexStateResponseDTO> response = indexService.getAllIndicesWithState();
-        return ResponseEntity.ok(Map.of("indexDetails", response)); // 200
+    public ResponseEntity<byte[]> getAllIndicesWithState(@RequestParam(required = false) String prefix,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(required = false) IndexStateCache.View view) {
+        return indexRequestHandler.getAllIndicesWithState(prefix, cursor, limit, view);
     }
 
     /**
@@ -101,15 +142,129 @@ public class IndexController {
      * @return The state of the specified index or 404 (Not Found).
      */
     @GetMapping("/indexState/{indexName}")
-    public ResponseEntity<IndexStateResponseDTO> getIndexByName(@PathVariable String indexName) {
-        IndexStateResponseDTO responseDTO = indexService.getIndexByName(indexName);
-        if (responseDTO != null) {
-            return ResponseEntity.ok(responseDTO); // 200 ok
-        } else {
-            return ResponseEntity.status(404).body(null); // 404 not found
+    public ResponseEntity<byte[]> getIndexByName(@PathVariable String indexName) {
+        return indexRequestHandler.getIndexByName(indexName);
+    }
+
+    /**
+     * GET /api/indexHistory/{indexName} - Returns the recorded values of an index, one point per published change.
+     *
+     * @param indexName The name of the index.
+     * @param from      Start of the time range in epoch milliseconds, inclusive, the oldest point by default.
+     * @param to        End of the time range in epoch milliseconds, inclusive, the latest point by default.
+     * @param interval  Bucket width in milliseconds for OHLC buckets instead of the raw points.
+     * @return The points or buckets of the range, 404 (Not Found) or 400 (Bad Request) for an invalid range.
+     */
+    @GetMapping("/indexHistory/{indexName}")
+    public ResponseEntity<byte[]> getIndexHistory(@PathVariable String indexName,
+                                                  @RequestParam(defaultValue = "0") long from,
+                                                  @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to,
+                                                  @RequestParam(required = false) Long interval) {
+        return indexRequestHandler.getIndexHistory(indexName, from, to, interval);
+    }
+
+    /**
+     * GET /api/indexConstituents/{indexName} - Returns the heaviest members of an index, or the members within
+     * a weight range, by descending weight. At least one of the parameters is required.
+     *
+     * @param indexName The name of the index.
+     * @param limit     Maximum number of members, all members within the weight range by default.
+     * @param minWeight Lowest weight in percent, inclusive.
+     * @param maxWeight Highest weight in percent, inclusive.
+     * @return The index state with the selected members, 404 (Not Found) or 400 (Bad Request) for invalid parameters.
+     */
+    @GetMapping("/indexConstituents/{indexName}")
+    public ResponseEntity<byte[]> getIndexConstituents(@PathVariable String indexName,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(required = false) Double minWeight,
+                                                       @RequestParam(required = false) Double maxWeight) {
+        return indexRequestHandler.getIndexConstituents(indexName, limit, minWeight, maxWeight);
+    }
+
+    /**
+     * DELETE /api/index/{indexName} - Deletes an index. Its name can be used for a new index afterwards.
+     *
+     * @param indexName The name of the index to delete.
+     * @return HTTP 200 (OK) or 404 (Not Found).
+     */
+    @DeleteMapping("/index/{indexName}")
+    public Object deleteIndex(@PathVariable String indexName) {
+        return respond(indexRequestHandler.deleteIndex(indexName));
+    }
+
+    /**
+     * GET /api/indexEvents - Server-Sent Events stream with one "index" event per published index change.
+     *
+     * @param indexNames Optional indices to receive events for, all indices if omitted.
+     * @param overflow   What happens to new changes while this subscriber's buffer is full: DROP or CONFLATE.
+     * @return The event stream, the event id is the index version.
+     */
+    @GetMapping(value = "/indexEvents", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamIndexEvents(@RequestParam(name = "indexName", required = false) Set<String> indexNames,
+                                        @RequestParam(defaultValue = "CONFLATE") IndexEventStream.Overflow overflow) {
+        SseEmitter emitter = new SseEmitter(0L); // no timeout, the stream ends when the client disconnects
+        subscribe(emitter, indexNames, overflow, event -> emitter.send(SseEmitter.event()
+                .id(Long.toString(event.getVersion()))
+                .name("index")
+                .data(event, MediaType.APPLICATION_JSON)));
+        return emitter;
+    }
+
+    /**
+     * GET /api/indexEvents - The same stream as newline-delimited JSON, one event per line.
+     */
+    @GetMapping(value = "/indexEvents", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseBodyEmitter streamIndexEventsNdjson(@RequestParam(name = "indexName", required = false) Set<String> indexNames,
+                                                       @RequestParam(defaultValue = "CONFLATE") IndexEventStream.Overflow overflow) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        subscribe(emitter, indexNames, overflow, event -> {
+            byte[] json = objectMapper.writeValueAsBytes(event);
+            byte[] line = new byte[json.length + 1];
+            System.arraycopy(json, 0, line, 0, json.length);
+            line[json.length] = '\n';
+            emitter.send(line);
+        });
+        return emitter;
+    }
+
+    // The response of a completed future, so Spring only starts an async dispatch for a mutation still running
+    private static Object respond(CompletableFuture<? extends ResponseEntity<?>> response) {
+        if (!response.isDone()) {
+            return response;
+        }
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
         }
     }
 
+    private void subscribe(ResponseBodyEmitter emitter, Set<String> indexNames, IndexEventStream.Overflow overflow,
+                           EventWriter writer) {
+        IndexEventStream.Subscription subscription = indexEventStream.subscribe(indexNames, overflow, new IndexEventStream.Sink() {
+            @Override
+            public void send(IndexEventDTO event) throws IOException {
+                writer.write(event);
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> indexEventStream.unsubscribe(subscription));
+        emitter.onTimeout(() -> indexEventStream.unsubscribe(subscription));
+        emitter.onError(e -> indexEventStream.unsubscribe(subscription));
+    }
+
+    @FunctionalInterface
+    private interface EventWriter {
+        void write(IndexEventDTO event) throws IOException;
+    }
+
 
 
 
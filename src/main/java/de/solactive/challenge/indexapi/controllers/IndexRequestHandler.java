@@ -0,0 +1,203 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import de.solactive.challenge.indexapi.dto.AdjustmentResultDTO;
+import de.solactive.challenge.indexapi.dto.BatchAdjustmentRequestsDTO;
+import de.solactive.challenge.indexapi.dto.BulkCreateResponseDTO;
+import de.solactive.challenge.indexapi.dto.IndexAdjustmentRequestsDTO;
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.PriceUpdateDTO;
+import de.solactive.challenge.indexapi.services.AdjustmentResult;
+import de.solactive.challenge.indexapi.services.IndexConstituents;
+import de.solactive.challenge.indexapi.services.IndexExecutor;
+import de.solactive.challenge.indexapi.services.IndexHistory;
+import de.solactive.challenge.indexapi.services.IndexPage;
+import de.solactive.challenge.indexapi.services.IndexService;
+import de.solactive.challenge.indexapi.services.IndexStateCache;
+import de.solactive.challenge.indexapi.services.PriceTickCoalescer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/*
+ The /api contract shared by IndexController and ReactiveIndexController: parameter validation, the calls into the
+ services and the mapping of their results and exceptions to status codes. The controllers only bind the requests
+ and adapt the answers to their stack, so both stacks answer the same.
+ */
+@Component
+class IndexRequestHandler {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private final IndexService indexService;
+    private final IndexExecutor indexExecutor;
+    private final IndexStateCache indexStateCache;
+    private final IndexHistory indexHistory;
+    private final IndexConstituents indexConstituents;
+    private final PriceTickCoalescer priceTickCoalescer;
+
+    IndexRequestHandler(IndexService indexService, IndexExecutor indexExecutor, IndexStateCache indexStateCache,
+                        IndexHistory indexHistory, IndexConstituents indexConstituents, PriceTickCoalescer priceTickCoalescer) {
+        this.indexService = indexService;
+        this.indexExecutor = indexExecutor;
+        this.indexStateCache = indexStateCache;
+        this.indexHistory = indexHistory;
+        this.indexConstituents = indexConstituents;
+        this.priceTickCoalescer = priceTickCoalescer;
+    }
+
+    // 201 created, 409 already exists, 400 a conflicting share price or values out of the fixed-point range
+    CompletableFuture<ResponseEntity<Void>> createIndex(IndexDTO indexDTO) {
+        return indexExecutor.createIndex(indexDTO)
+                .thenApply(isCreated -> ResponseEntity.status(isCreated ? 201 : 409).<Void>build())
+                .exceptionally(e -> {
+                    Throwable cause = causeOf(e);
+                    if (cause instanceof IllegalArgumentException) {
+                        return ResponseEntity.badRequest().build(); // 400
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    ResponseEntity<BulkCreateResponseDTO> createIndicesResponse(BulkCreateResponseDTO response) {
+        if (response.isMalformed()) {
+            return ResponseEntity.badRequest().body(response); // 400
+        }
+        return ResponseEntity.ok(response); // 200
+    }
+
+    // 201 added, 202 share already exists, 200 deleted or dividend applied, 400 no operation, 401, 404 or 405 failed
+    CompletableFuture<ResponseEntity<Void>> indexAdjustment(IndexAdjustmentRequestsDTO requestsDTO) {
+        CompletableFuture<ResponseEntity<Void>> response;
+        if (requestsDTO.getAdditionOperation() != null) {
+            response = indexExecutor.addShareToIndex(requestsDTO.getAdditionOperation())
+                    .thenApply(isAdded -> ResponseEntity.status(isAdded ? 201 : 202).build());
+        } else if (requestsDTO.getDeletionOperation() != null) {
+            response = indexExecutor.deleteShareFromIndex(requestsDTO.getDeletionOperation())
+                    .thenApply(done -> ResponseEntity.ok().build());
+        } else if (requestsDTO.getDividendOperation() != null) {
+            response = indexExecutor.applyDividend(requestsDTO.getDividendOperation())
+                    .thenApply(done -> ResponseEntity.ok().build());
+        } else {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build()); // 400
+        }
+
+        return response.exceptionally(e -> {
+            Throwable cause = causeOf(e);
+            int status = statusOf(cause);
+            if (status == 0) {
+                throw new CompletionException(cause);
+            }
+            return ResponseEntity.status(status).build();
+        });
+    }
+
+    CompletableFuture<ResponseEntity<Map<String, List<AdjustmentResultDTO>>>> indexAdjustmentBatch(BatchAdjustmentRequestsDTO requestsDTO) {
+        return indexExecutor.applyAdjustments(requestsDTO.getOperations(), requestsDTO.isAllOrNothing()).thenApply(results -> {
+            List<AdjustmentResultDTO> response = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                AdjustmentResult result = results.get(i);
+                String message = result.error() != null ? result.error().getMessage() : result.outcome().name();
+                response.add(new AdjustmentResultDTO(i, statusOf(result), message));
+            }
+            return ResponseEntity.ok(Map.of("results", response)); // 200
+        });
+    }
+
+    // Same status codes as a single adjustment
+    static int statusOf(AdjustmentResult result) {
+        return switch (result.outcome()) {
+            case ADDED -> 201;
+            case ALREADY_EXISTS -> 202;
+            case DELETED, DIVIDEND_APPLIED -> 200;
+            case ROLLED_BACK -> 409;
+            case INVALID -> 400;
+            case FAILED -> {
+                int status = statusOf(result.error());
+                yield status != 0 ? status : 401;
+            }
+        };
+    }
+
+    // Status of a failed adjustment, 0 if the exception is not one of its outcomes
+    private static int statusOf(Throwable error) {
+        if (error instanceof IllegalArgumentException) {
+            return 401;
+        } else if (error instanceof NoSuchElementException) {
+            return 404;
+        } else if (error instanceof IllegalStateException) {
+            return 405;
+        }
+        return 0;
+    }
+
+    ResponseEntity<Void> priceUpdate(List<PriceUpdateDTO> prices) {
+        for (PriceUpdateDTO priceUpdateDTO : prices) {
+            priceTickCoalescer.submit(priceUpdateDTO.getShareName(), priceUpdateDTO.getSharePrice());
+        }
+        return ResponseEntity.accepted().build(); // 202
+    }
+
+    ResponseEntity<byte[]> getAllIndicesWithState(String prefix, String cursor, Integer limit, IndexStateCache.View view) {
+        if (prefix == null && cursor == null && limit == null && view == null) {
+            return json(indexStateCache.getAllIndicesState());
+        }
+
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build(); // 400
+        }
+        String afterIndexName;
+        try {
+            afterIndexName = cursor != null ? IndexStateCache.decodeCursor(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // 400 not a cursor
+        }
+        IndexPage page = indexService.getIndexPage(prefix, afterIndexName, pageSize);
+        return json(indexStateCache.getIndicesStatePage(page, view != null ? view : IndexStateCache.View.FULL));
+    }
+
+    ResponseEntity<byte[]> getIndexByName(String indexName) {
+        return json(indexStateCache.getIndexState(indexName));
+    }
+
+    ResponseEntity<byte[]> getIndexHistory(String indexName, long from, long to, Long interval) {
+        if (from > to || (interval != null && interval <= 0)) {
+            return ResponseEntity.badRequest().build(); // 400
+        }
+        return json(indexHistory.getHistory(indexName, from, to, interval != null ? interval : 0));
+    }
+
+    ResponseEntity<byte[]> getIndexConstituents(String indexName, Integer limit, Double minWeight, Double maxWeight) {
+        if ((limit == null && minWeight == null && maxWeight == null) || (limit != null && limit < 1)
+                || (minWeight != null && maxWeight != null && minWeight > maxWeight)) {
+            return ResponseEntity.badRequest().build(); // 400
+        }
+        return json(indexConstituents.getConstituents(indexName, limit != null ? limit : Integer.MAX_VALUE,
+                minWeight != null ? minWeight : Double.NEGATIVE_INFINITY, maxWeight != null ? maxWeight : Double.POSITIVE_INFINITY));
+    }
+
+    CompletableFuture<ResponseEntity<Void>> deleteIndex(String indexName) {
+        return indexExecutor.deleteIndex(indexName)
+                .thenApply(isDeleted -> ResponseEntity.status(isDeleted ? 200 : 404).build());
+    }
+
+    // 200 with the serialized body, 404 if there is none
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        if (body == null) {
+            return ResponseEntity.status(404).build(); // 404 not found
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body); // 200 ok
+    }
+
+    private static Throwable causeOf(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+}
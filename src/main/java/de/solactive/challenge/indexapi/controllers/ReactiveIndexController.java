@@ -0,0 +1,195 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import de.solactive.challenge.indexapi.dto.*;
+import de.solactive.challenge.indexapi.services.IndexBulkLoader;
+import de.solactive.challenge.indexapi.services.IndexEventStream;
+import de.solactive.challenge.indexapi.services.IndexStateCache;
+import jakarta.validation.Valid;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ The /api contract of IndexController on the reactive stack, active with the "reactive" profile. Both controllers
+ call IndexRequestHandler for validation and status codes, this one only adapts its answers to Mono and Flux.
+ Handlers never block the event loop: mutations complete through the futures of the IndexExecutor (the profile
+ selects the sharded executor), reads are served from immutable snapshots and the state cache, the bulk payload
+ is parsed on a bounded elastic thread while it streams in, and event streams only emit on subscriber demand.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+public class ReactiveIndexController {
+
+    private final IndexRequestHandler indexRequestHandler;
+    private final IndexBulkLoader indexBulkLoader;
+    private final IndexEventStream indexEventStream;
+
+    public ReactiveIndexController(IndexRequestHandler indexRequestHandler, IndexBulkLoader indexBulkLoader,
+                                   IndexEventStream indexEventStream) {
+        this.indexRequestHandler = indexRequestHandler;
+        this.indexBulkLoader = indexBulkLoader;
+        this.indexEventStream = indexEventStream;
+    }
+
+    /**
+     * POST /api/create - see IndexController.
+     */
+    @PostMapping("/create")
+    public Mono<ResponseEntity<Void>> createIndex(@Valid @RequestBody IndexDTO indexDTO) {
+        return Mono.fromFuture(indexRequestHandler.createIndex(indexDTO));
+    }
+
+    /**
+     * POST /api/create/bulk - see IndexController. The payload is read through a bounded buffer,
+     * so a large upload is never held in memory as a whole.
+     */
+    @PostMapping(value = "/create/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<BulkCreateResponseDTO>> createIndices(@RequestBody Flux<DataBuffer> payload) {
+        return Mono.fromCallable(() -> {
+                    try (InputStream input = DataBufferUtils.subscriberInputStream(payload, 16)) {
+                        return indexBulkLoader.createIndices(input);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(indexRequestHandler::createIndicesResponse);
+    }
+
+    /**
+     * POST /api/indexAdjustment - see IndexController, with the same status codes.
+     */
+    @PostMapping("/indexAdjustment")
+    public Mono<ResponseEntity<Void>> indexAdjustment(@Valid @RequestBody IndexAdjustmentRequestsDTO requestsDTO) {
+        return Mono.fromFuture(indexRequestHandler.indexAdjustment(requestsDTO));
+    }
+
+    /**
+     * POST /api/indexAdjustment/batch - see IndexController.
+     */
+    @PostMapping("/indexAdjustment/batch")
+    public Mono<ResponseEntity<Map<String, List<AdjustmentResultDTO>>>> indexAdjustmentBatch(@Valid @RequestBody BatchAdjustmentRequestsDTO requestsDTO) {
+        return Mono.fromFuture(indexRequestHandler.indexAdjustmentBatch(requestsDTO));
+    }
+
+    /**
+     * POST /api/priceUpdate - see IndexController.
+     */
+    @PostMapping("/priceUpdate")
+    public ResponseEntity<Void> priceUpdate(@Valid @RequestBody PriceUpdateDTO priceUpdateDTO) {
+        return indexRequestHandler.priceUpdate(List.of(priceUpdateDTO));
+    }
+
+    /**
+     * POST /api/priceUpdate/batch - see IndexController.
+     */
+    @PostMapping("/priceUpdate/batch")
+    public ResponseEntity<Void> priceUpdateBatch(@Valid @RequestBody PriceUpdateBatchDTO batchDTO) {
+        return indexRequestHandler.priceUpdate(batchDTO.getPrices());
+    }
+
+    /**
+     * GET /api/indexState - see IndexController, with the same paging parameters.
+     */
+    @GetMapping("/indexState")
+    public ResponseEntity<byte[]> getAllIndicesWithState(@RequestParam(required = false) String prefix,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(required = false) IndexStateCache.View view) {
+        return indexRequestHandler.getAllIndicesWithState(prefix, cursor, limit, view);
+    }
+
+    /**
+     * GET /api/indexState/{indexName} - see IndexController.
+     */
+    @GetMapping("/indexState/{indexName}")
+    public ResponseEntity<byte[]> getIndexByName(@PathVariable String indexName) {
+        return indexRequestHandler.getIndexByName(indexName);
+    }
+
+    /**
+     * GET /api/indexHistory/{indexName} - see IndexController.
+     */
+    @GetMapping("/indexHistory/{indexName}")
+    public ResponseEntity<byte[]> getIndexHistory(@PathVariable String indexName,
+                                                  @RequestParam(defaultValue = "0") long from,
+                                                  @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to,
+                                                  @RequestParam(required = false) Long interval) {
+        return indexRequestHandler.getIndexHistory(indexName, from, to, interval);
+    }
+
+    /**
+     * GET /api/indexConstituents/{indexName} - see IndexController.
+     */
+    @GetMapping("/indexConstituents/{indexName}")
+    public ResponseEntity<byte[]> getIndexConstituents(@PathVariable String indexName,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       @RequestParam(required = false) Double minWeight,
+                                                       @RequestParam(required = false) Double maxWeight) {
+        return indexRequestHandler.getIndexConstituents(indexName, limit, minWeight, maxWeight);
+    }
+
+    /**
+     * DELETE /api/index/{indexName} - see IndexController.
+     */
+    @DeleteMapping("/index/{indexName}")
+    public Mono<ResponseEntity<Void>> deleteIndex(@PathVariable String indexName) {
+        return Mono.fromFuture(indexRequestHandler.deleteIndex(indexName));
+    }
+
+    /**
+     * GET /api/indexEvents - Server-Sent Events, see IndexController.
+     */
+    @GetMapping(value = "/indexEvents", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<IndexEventDTO>> streamIndexEvents(@RequestParam(name = "indexName", required = false) Set<String> indexNames,
+                                                                  @RequestParam(defaultValue = "CONFLATE") IndexEventStream.Overflow overflow) {
+        return events(indexNames, overflow).map(event -> ServerSentEvent.builder(event)
+                .id(Long.toString(event.getVersion()))
+                .event("index")
+                .build());
+    }
+
+    /**
+     * GET /api/indexEvents - newline-delimited JSON, see IndexController.
+     */
+    @GetMapping(value = "/indexEvents", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<IndexEventDTO> streamIndexEventsNdjson(@RequestParam(name = "indexName", required = false) Set<String> indexNames,
+                                                       @RequestParam(defaultValue = "CONFLATE") IndexEventStream.Overflow overflow) {
+        return events(indexNames, overflow);
+    }
+
+    // Events are only sent on demand: a slow subscriber's changes wait in its IndexEventStream buffer
+    private Flux<IndexEventDTO> events(Set<String> indexNames, IndexEventStream.Overflow overflow) {
+        return Flux.create(emitter -> {
+            IndexEventStream.Subscription subscription = indexEventStream.subscribe(indexNames, overflow, new IndexEventStream.Sink() {
+                @Override
+                public void send(IndexEventDTO event) {
+                    emitter.next(event);
+                }
+
+                @Override
+                public void close() {
+                    emitter.complete();
+                }
+
+                @Override
+                public long demand() {
+                    return emitter.requestedFromDownstream();
+                }
+            });
+            emitter.onRequest(n -> subscription.resume());
+            emitter.onDispose(() -> indexEventStream.unsubscribe(subscription));
+        });
+    }
+}
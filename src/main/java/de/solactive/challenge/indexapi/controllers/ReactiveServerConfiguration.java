@@ -0,0 +1,20 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Runs the "reactive" profile on Netty. Tomcat is on the classpath for the servlet stack and would otherwise
+ * be picked for the reactive stack as well, with a container thread per blocked servlet request.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveServerConfiguration {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,54 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import de.solactive.challenge.indexapi.services.RequestTiming;
+import de.solactive.challenge.indexapi.services.RequestTimings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Times the JSON binding of @RequestBody arguments for the Server-Timing header, see ServerTimingFilter.
+ */
+@ControllerAdvice
+@Profile("!reactive")
+@ConditionalOnProperty(name = "index.server-timing.enabled", havingValue = "true")
+public class ServerTimingBodyAdvice extends RequestBodyAdviceAdapter {
+
+    private final RequestTimings requestTimings;
+
+    public ServerTimingBodyAdvice(RequestTimings requestTimings) {
+        this.requestTimings = requestTimings;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestTiming timing = requestTimings.current();
+        if (timing != null) {
+            timing.bodyReadStarted();
+        }
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestTiming timing = requestTimings.current();
+        if (timing != null) {
+            timing.bodyReadCompleted();
+        }
+        return body;
+    }
+}
@@ -0,0 +1,126 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import de.solactive.challenge.indexapi.services.RequestTiming;
+import de.solactive.challenge.indexapi.services.RequestTimings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds the stage timings of each request as Server-Timing header (see RequestTiming), and logs the requests
+ * slower than index.server-timing.log-threshold-millis with the breakdown, including the time taken to write the
+ * response. Only registered with index.server-timing.enabled=true, otherwise no request is timed.
+ * <p>
+ * Mutations running on a shard answer with a future, so the timing is kept as request attribute across the async
+ * dispatch that writes the response.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "index.server-timing.enabled", havingValue = "true")
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String SERVER_TIMING = "Server-Timing";
+    private static final String TIMING_ATTRIBUTE = ServerTimingFilter.class.getName() + ".timing";
+    private static final Logger log = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+    private final RequestTimings requestTimings;
+    private final long logThresholdNanos;
+
+    public ServerTimingFilter(RequestTimings requestTimings,
+                              @Value("${index.server-timing.log-threshold-millis:100}") long logThresholdMillis) {
+        this.requestTimings = requestTimings;
+        this.logThresholdNanos = TimeUnit.MILLISECONDS.toNanos(logThresholdMillis);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing = (RequestTiming) request.getAttribute(TIMING_ATTRIBUTE);
+        if (timing == null) {
+            timing = new RequestTiming();
+            request.setAttribute(TIMING_ATTRIBUTE, timing);
+        }
+        TimedResponse timedResponse = new TimedResponse(response, timing);
+        requestTimings.attach(timing);
+        try {
+            filterChain.doFilter(request, timedResponse);
+        } finally {
+            requestTimings.detach();
+        }
+        if (request.isAsyncStarted()) {
+            return; // the async dispatch writes the response
+        }
+
+        timedResponse.addServerTiming(); // no body was written
+        if (timing.getTotalNanos() >= logThresholdNanos) {
+            log.warn("Slow request {} {} answered {}: {}", request.getMethod(), request.getRequestURI(),
+                    response.getStatus(), timing.toBreakdown());
+        }
+    }
+
+    // Adds the header right before the response is committed by the first write
+    private static final class TimedResponse extends HttpServletResponseWrapper {
+
+        private final RequestTiming timing;
+
+        TimedResponse(HttpServletResponse response, RequestTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        void addServerTiming() {
+            if (timing.responded() && !isCommitted()) {
+                setHeader(SERVER_TIMING, timing.toServerTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+    }
+}
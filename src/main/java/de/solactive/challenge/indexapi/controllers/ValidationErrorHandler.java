@@ -4,6 +4,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 
 @ControllerAdvice
@@ -20,4 +21,10 @@ public class ValidationErrorHandler {
     public ResponseEntity<Void> handleValidationErrors(MethodArgumentNotValidException ex) {
         return ResponseEntity.badRequest().build();  // 400 Bad Request with empty body
     }
+
+    // The same for the reactive stack of the "reactive" profile
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Void> handleValidationErrors(WebExchangeBindException ex) {
+        return ResponseEntity.badRequest().build();  // 400 Bad Request with empty body
+    }
 }
@@ -0,0 +1,19 @@
+package de.solactive.challenge.indexapi.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class AdjustmentResultDTO {
+
+    private int operation;  // position of the operation in the batch
+    private int status;     // same status code the single /indexAdjustment request would return
+    private String message;
+
+    public AdjustmentResultDTO(int operation, int status, String message) {
+        this.operation = operation;
+        this.status = status;
+        this.message = message;
+    }
+}
@@ -0,0 +1,22 @@
+package de.solactive.challenge.indexapi.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+public class BatchAdjustmentRequestsDTO {
+
+    // Applied in order, each entry holds one of addition, deletion or dividend
+    @Valid
+    @NotEmpty(message = "A batch must contain at least one operation")
+    private List<IndexAdjustmentRequestsDTO> operations;
+
+    // Keep an index unchanged if any operation on it fails
+    private boolean allOrNothing;
+
+}
@@ -0,0 +1,21 @@
+package de.solactive.challenge.indexapi.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BulkCreateResponseDTO {
+
+    private long created;
+    private long conflicts;  // index already exists
+    private long invalid;    // failed validation, or could not be read
+    private boolean malformed;  // reading stopped at a syntax error
+
+    public BulkCreateResponseDTO(long created, long conflicts, long invalid, boolean malformed) {
+        this.created = created;
+        this.conflicts = conflicts;
+        this.invalid = invalid;
+        this.malformed = malformed;
+    }
+}
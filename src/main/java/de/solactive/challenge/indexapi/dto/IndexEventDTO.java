@@ -0,0 +1,30 @@
+package de.solactive.challenge.indexapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@JsonPropertyOrder({ "indexName", "version", "indexValue", "changedMembers", "removedShares", "deleted" })
+public class IndexEventDTO {
+
+    private String indexName;
+    private long version;       // version of the index snapshot the event describes
+    private double indexValue;
+    private List<IndexMemberResponseDTO> changedMembers;  // added members and members whose price or number of shares changed
+    private List<String> removedShares;
+    private boolean deleted;    // the index was deleted, removedShares lists all of its members
+
+    public IndexEventDTO(String indexName, long version, double indexValue, List<IndexMemberResponseDTO> changedMembers,
+                         List<String> removedShares, boolean deleted) {
+        this.indexName = indexName;
+        this.version = version;
+        this.indexValue = indexValue;
+        this.changedMembers = changedMembers;
+        this.removedShares = removedShares;
+        this.deleted = deleted;
+    }
+}
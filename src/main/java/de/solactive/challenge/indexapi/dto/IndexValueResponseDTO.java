@@ -0,0 +1,18 @@
+package de.solactive.challenge.indexapi.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Index state without the member list, for GET /indexState?view=VALUES
+@Getter
+@Setter
+public class IndexValueResponseDTO {
+
+    private String indexName;
+    private double indexValue;
+
+    public IndexValueResponseDTO(String indexName, double indexValue) {
+        this.indexName = indexName;
+        this.indexValue = indexValue;
+    }
+}
@@ -0,0 +1,18 @@
+package de.solactive.challenge.indexapi.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Setter
+@Getter
+public class PriceUpdateBatchDTO {
+
+    @Valid
+    @NotEmpty(message = "A batch must contain at least one price")
+    private List<PriceUpdateDTO> prices;
+
+}
@@ -0,0 +1,22 @@
+package de.solactive.challenge.indexapi.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+
+@Setter
+@Getter
+public class PriceUpdateDTO {
+
+    @NotBlank(message = "Share name cannot be blank")
+    private String shareName;
+
+    @Positive(message = "Share price must be positive")
+    private double sharePrice;
+
+    public PriceUpdateDTO(String shareName, double sharePrice) {
+        this.shareName = shareName;
+        this.sharePrice = sharePrice;
+    }
+}
@@ -0,0 +1,182 @@
+package de.solactive.challenge.indexapi.entities;
+
+/*
+ Decimal fixed-point arithmetic on scaled longs for the FIXED_POINT numeric mode: a value v at scale s is the long
+ v * 10^s. Every result is rounded half even to the scale of the result, and products and quotients are exact
+ before that rounding (128-bit intermediates), so the same inputs give the same digits on every JVM.
+ Values are kept as scaled longs between the operations, doubles are only converted at the edges (requests in,
+ responses out), so values up to about 9.2e12 at SCALE keep every decimal.
+ Results out of range are rejected with an IllegalArgumentException, like any other invalid input.
+ */
+public final class FixedPoint {
+
+    // Decimals of prices, numbers of shares, dividends, market and index values, weights
+    public static final int SCALE = 6;
+    public static final int DIVISOR_SCALE = 10;
+
+    // Quotients below 2^50 are estimated in double precision with an error below 1
+    private static final double ESTIMATED_QUOTIENT_LIMIT = 0x1p50;
+    private static final long ESTIMATED_DIVISOR_LIMIT = 1L << 60;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    public static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not finite or its scaled value does not fit in a long
+     */
+    public static long toScaled(double value, int scale) {
+        double scaled = Math.rint(value * POWERS_OF_TEN[scale]);
+        if (!(Math.abs(scaled) < 0x1p63)) {
+            throw new IllegalArgumentException("Value out of the fixed-point range: " + value);
+        }
+        return (long) scaled;
+    }
+
+    // Nearest double, exact below 2^53 units
+    public static double toDouble(long scaled, int scale) {
+        return scaled / (double) POWERS_OF_TEN[scale];
+    }
+
+    // The value rounded half even to the scale
+    public static double round(double value, int scale) {
+        return toDouble(toScaled(value, scale), scale);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the sum does not fit in a long
+     */
+    public static long add(long a, long b) {
+        long sum = a + b;
+        if (((a ^ sum) & (b ^ sum)) < 0) {
+            throw new IllegalArgumentException("Fixed-point overflow");
+        }
+        return sum;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the difference does not fit in a long
+     */
+    public static long subtract(long a, long b) {
+        long difference = a - b;
+        if (((a ^ b) & (a ^ difference)) < 0) {
+            throw new IllegalArgumentException("Fixed-point overflow");
+        }
+        return difference;
+    }
+
+    /**
+     * a * b / c rounded half even, with the product exact in 128 bits.
+     *
+     * @throws IllegalArgumentException if c is 0 or the result does not fit in a long
+     */
+    public static long multiplyDivide(long a, long b, long c) {
+        if (c == 0) {
+            throw new IllegalArgumentException("Division by zero");
+        }
+        boolean negative = (a < 0) ^ (b < 0) ^ (c < 0);
+        long x = absolute(a);
+        long y = absolute(b);
+        long z = absolute(c);
+
+        long quotient;
+        long remainder;
+        double estimate = (double) x * (double) y / (double) z;
+        if (estimate < ESTIMATED_QUOTIENT_LIMIT && z < ESTIMATED_DIVISOR_LIMIT) {
+            // The estimate is off by less than 2, so the remainder fits in a long even though x * y may not,
+            // and it is corrected without an integer division
+            quotient = (long) estimate;
+            remainder = x * y - quotient * z;
+            while (remainder < 0) {
+                quotient--;
+                remainder += z;
+            }
+            while (remainder >= z) {
+                quotient++;
+                remainder -= z;
+            }
+        } else if (Math.multiplyHigh(x, y) == 0 && x * y >= 0) {
+            long product = x * y;
+            quotient = product / z;
+            remainder = product - quotient * z;
+        } else {
+            // Non-negative operands below 2^63: the signed high word is the unsigned one
+            long high = Math.multiplyHigh(x, y);
+            long low = x * y;
+            if (Long.compareUnsigned(high, z) >= 0) {
+                throw new IllegalArgumentException("Fixed-point overflow");
+            }
+            quotient = divideUnsigned(high, low, z);
+            remainder = low - quotient * z;
+            if (quotient < 0) {
+                throw new IllegalArgumentException("Fixed-point overflow");
+            }
+        }
+        // Half even: up if the remainder is more than half the divisor, or exactly half and the quotient is odd
+        long rest = z - remainder;
+        if (remainder > rest || (remainder == rest && (quotient & 1) != 0)) {
+            if (quotient == Long.MAX_VALUE) {
+                throw new IllegalArgumentException("Fixed-point overflow");
+            }
+            quotient++;
+        }
+        return negative ? -quotient : quotient;
+    }
+
+    private static long absolute(long value) {
+        if (value == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Fixed-point overflow");
+        }
+        return Math.abs(value);
+    }
+
+    /*
+     Quotient of the unsigned 128-bit value (high, low) by divisor, for high < divisor < 2^63, so the quotient
+     fits in 64 bits. Long division by two 32-bit digits after normalizing the divisor (Hacker's Delight, divlu).
+     */
+    static long divideUnsigned(long high, long low, long divisor) {
+        final long base = 1L << 32;
+        int shift = Long.numberOfLeadingZeros(divisor); // at least 1, the divisor is below 2^63
+        long v = divisor << shift;
+        long vHigh = v >>> 32;
+        long vLow = v & 0xFFFFFFFFL;
+        long u32 = (high << shift) | (low >>> (64 - shift));
+        long u10 = low << shift;
+        long u1 = u10 >>> 32;
+        long u0 = u10 & 0xFFFFFFFFL;
+
+        long q1 = Long.divideUnsigned(u32, vHigh);
+        long rHat = Long.remainderUnsigned(u32, vHigh);
+        while (q1 >= base || Long.compareUnsigned(q1 * vLow, rHat * base + u1) > 0) {
+            q1--;
+            rHat += vHigh;
+            if (rHat >= base) {
+                break;
+            }
+        }
+        long u21 = u32 * base + u1 - q1 * v;
+
+        long q0 = Long.divideUnsigned(u21, vHigh);
+        rHat = Long.remainderUnsigned(u21, vHigh);
+        while (q0 >= base || Long.compareUnsigned(q0 * vLow, rHat * base + u0) > 0) {
+            q0--;
+            rHat += vHigh;
+            if (rHat >= base) {
+                break;
+            }
+        }
+        return q1 * base + q0;
+    }
+}
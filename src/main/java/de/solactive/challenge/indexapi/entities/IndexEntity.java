@@ -1,22 +1,570 @@
 package de.solactive.challenge.indexapi.entities;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/*
+ Immutable snapshot of an index. Writers build the next snapshot with the with... methods under the
+ index lock and publish it by replacing the entry in IndexService's ConcurrentHashMap, so readers take
+ no lock and always see a consistent index.
+ Members are stored column-wise, in slots sorted by share name: parallel columns of instrument IDs and
+ stored numbers of shares, plus an open-addressing table from instrument ID to slot. Prices are not copied into
+ the index: a member reads the price of its instrument from the PriceBook version the snapshot references, the
+ same book every index holding the share is published with. A price change therefore builds one new book version
+ and moves the market value of each holder by the change of the member value, sharing the IDs, the numbers of
+ shares and the table with the previous snapshot.
+ The share column is kept on the heap or off-heap, in the MemberStorage the index was built in.
+ The arithmetic follows the NumericMode the index was built in: with FIXED_POINT the share column, the divisor
+ and the market value are scaled longs, and doubles are only converted at the getters and with... arguments.
+ Share names are resolved through the InstrumentMaster of the IndexService that built the index, so every index
+ of the service holding a share uses its one name.
+ ShareEntity objects are only created for callers asking for a member as an object.
+ */
 @Getter
-@Setter
 public class IndexEntity {
 
-    private String indexName;
-   //  private double indexValue --- should not be stored as it will be calculated and presented in DTO
-    private Map<String, ShareEntity> shares;
+    // Number of incremental market value updates after which the aggregate is re-summed from the members
+    public static final int RESUMMATION_INTERVAL = 1024;
 
+    // FIXED_POINT: 1 at FixedPoint.SCALE and at FixedPoint.DIVISOR_SCALE
+    private static final long UNIT = FixedPoint.powerOfTen(FixedPoint.SCALE);
+    private static final long DIVISOR_UNIT = FixedPoint.powerOfTen(FixedPoint.DIVISOR_SCALE);
 
-    public IndexEntity(String indexName, Map<String, ShareEntity> shares) {
+    private final String indexName;
+
+    // Table the instrument IDs of the members are interned in
+    @Getter(AccessLevel.NONE)
+    private final InstrumentMaster instruments;
+
+    // Instrument IDs of the members, in share name order
+    @Getter(AccessLevel.NONE)
+    private final int[] shareIds;
+
+    // Prices of the members by instrument ID, shared with the other snapshots built from the same version
+    private final PriceBook prices;
+
+    // Stored numbers of shares, before the divisor is applied
+    @Getter(AccessLevel.NONE)
+    private final LongColumn numberOfShares;
+
+    // Open addressing with linear probing by instrument ID: slot + 1, 0 for an empty entry
+    @Getter(AccessLevel.NONE)
+    private final int[] slotTable;
+
+    /*
+     Index divisor: the stored number of shares of every member is divided by it to get the
+     number of shares presented to clients. Adjustments that used to rescale every member
+     (addition, deletion, dividend) only change the divisor, so they no longer depend on the index size.
+     Effective numbers of shares match the former per-member rescaling within 1e-9 (relative).
+     */
+    private final double divisor;
+
+    // FIXED_POINT: the divisor at FixedPoint.DIVISOR_SCALE, divisor is its nearest double
+    @Getter(AccessLevel.NONE)
+    private final long scaledDivisor;
+
+    /*
+     Running aggregate of sharePrice * stored numberOfShares over all members, updated by delta on
+     every mutation. The index value is marketValue / divisor, so reading it needs no member scan.
+     A compensated (Kahan) re-summation every RESUMMATION_INTERVAL updates bounds the drift.
+     */
+    private final double marketValue;
+
+    private final int updatesSinceResummation;
+
+    // FIXED_POINT: sum of the member values rounded to FixedPoint.SCALE, marketValue is its nearest double
+    @Getter(AccessLevel.NONE)
+    private final long scaledMarketValue;
+
+    private final NumericMode numericMode;
+
+    // Incremented by every snapshot published for this index, starting at 1 on creation
+    private final long version;
+
+
+    public IndexEntity(String indexName, Map<String, ShareEntity> shares, InstrumentMaster instruments) {
+        this(indexName, shares, MemberStorage.HEAP, NumericMode.DOUBLE, instruments);
+    }
+
+    /**
+     * Index reading its prices from a book of its own holding the prices of the shares.
+     *
+     * @throws IllegalArgumentException with FIXED_POINT, if a price or number of shares is out of its range
+     */
+    public IndexEntity(String indexName, Map<String, ShareEntity> shares, MemberStorage storage, NumericMode numericMode,
+                       InstrumentMaster instruments) {
+        this(indexName, shares, storage, numericMode, instruments, PriceBook.EMPTY.withPrices(shares.values(), instruments));
+    }
+
+    /**
+     * Index reading its prices from the given book, which must hold the prices of the shares; the prices of the
+     * share entities are not used.
+     *
+     * @throws IllegalArgumentException with FIXED_POINT, if a price or number of shares is out of its range
+     */
+    public IndexEntity(String indexName, Map<String, ShareEntity> shares, MemberStorage storage, NumericMode numericMode,
+                       InstrumentMaster instruments, PriceBook prices) {
+        ShareEntity[] members = shares.values().toArray(new ShareEntity[0]);
+        Arrays.sort(members, Comparator.comparing(ShareEntity::getShareName));
+        this.indexName = indexName;
+        this.instruments = instruments;
+        this.numericMode = numericMode;
+        this.shareIds = new int[members.length];
+        long[] counts = new long[members.length];
+        for (int slot = 0; slot < members.length; slot++) {
+            shareIds[slot] = instruments.intern(members[slot].getShareName());
+            counts[slot] = numericMode.encode(members[slot].getNumberOfShares());
+        }
+        this.prices = prices;
+        this.numberOfShares = storage.column(counts);
+        this.slotTable = buildSlotTable(shareIds);
+        this.divisor = 1.0;
+        this.scaledDivisor = DIVISOR_UNIT;
+        this.scaledMarketValue = numericMode == NumericMode.FIXED_POINT ? sumScaledMarketValue(shareIds, prices, numberOfShares) : 0;
+        this.marketValue = numericMode == NumericMode.FIXED_POINT
+                ? FixedPoint.toDouble(scaledMarketValue, FixedPoint.SCALE)
+                : sumMarketValue(shareIds, prices, numberOfShares);
+        this.updatesSinceResummation = 0;
+        this.version = 1;
+    }
+
+    private IndexEntity(String indexName, InstrumentMaster instruments, int[] shareIds, PriceBook prices,
+                        LongColumn numberOfShares, int[] slotTable, double divisor, long scaledDivisor, double marketValue,
+                        long scaledMarketValue, int updatesSinceResummation, long version, NumericMode numericMode) {
         this.indexName = indexName;
-        this.shares = shares;
+        this.instruments = instruments;
+        this.shareIds = shareIds;
+        this.prices = prices;
+        this.numberOfShares = numberOfShares;
+        this.slotTable = slotTable;
+        this.divisor = divisor;
+        this.scaledDivisor = scaledDivisor;
+        this.marketValue = marketValue;
+        this.scaledMarketValue = scaledMarketValue;
+        this.updatesSinceResummation = updatesSinceResummation;
+        this.version = version;
+        this.numericMode = numericMode;
+    }
+
+    /**
+     * Rebuilds a snapshot exactly as it was written to a binary snapshot file, from the values returned by the
+     * getStored... methods. The columns must be sorted by share name; with HEAP storage the share array is taken
+     * over without copying. The share names are interned in the given table and the prices set in the given book,
+     * see getPrices for the book the snapshot reads.
+     */
+    public static IndexEntity restore(String indexName, String[] sortedShareNames, long[] storedSharePrices,
+                                      long[] storedNumberOfShares, long storedDivisor, long storedMarketValue,
+                                      int updatesSinceResummation, long version, MemberStorage storage,
+                                      NumericMode numericMode, InstrumentMaster instruments, PriceBook prices) {
+        int[] shareIds = new int[sortedShareNames.length];
+        for (int slot = 0; slot < shareIds.length; slot++) {
+            shareIds[slot] = instruments.intern(sortedShareNames[slot]);
+        }
+        PriceBook restoredPrices = prices.withStoredPrices(shareIds, storedSharePrices, numericMode);
+        LongColumn counts = storage.column(storedNumberOfShares);
+        if (numericMode == NumericMode.FIXED_POINT) {
+            return new IndexEntity(indexName, instruments, shareIds, restoredPrices, counts, buildSlotTable(shareIds),
+                    FixedPoint.toDouble(storedDivisor, FixedPoint.DIVISOR_SCALE), storedDivisor,
+                    FixedPoint.toDouble(storedMarketValue, FixedPoint.SCALE), storedMarketValue, 0, version, numericMode);
+        }
+        return new IndexEntity(indexName, instruments, shareIds, restoredPrices, counts, buildSlotTable(shareIds),
+                Double.longBitsToDouble(storedDivisor), 0, Double.longBitsToDouble(storedMarketValue), 0,
+                updatesSinceResummation, version, numericMode);
+    }
+
+    public double getIndexValue() {
+        return numericMode == NumericMode.FIXED_POINT
+                ? FixedPoint.toDouble(scaledIndexValue(), FixedPoint.SCALE)
+                : marketValue / divisor;
+    }
+
+    public int getShareCount() {
+        return shareIds.length;
+    }
+
+    // Slot of a member in share name order, -1 if the index does not hold the share
+    public int getSlot(String shareName) {
+        int shareId = instruments.idOf(shareName);
+        return shareId >= 0 ? getSlot(shareId) : -1;
+    }
+
+    // Slot of the member with the given instrument ID, -1 if the index does not hold it
+    public int getSlot(int shareId) {
+        int mask = slotTable.length - 1;
+        int entry;
+        for (int i = hash(shareId) & mask; (entry = slotTable[i]) != 0; i = (i + 1) & mask) {
+            if (shareIds[entry - 1] == shareId) {
+                return entry - 1;
+            }
+        }
+        return -1;
+    }
+
+    public int getShareId(int slot) {
+        return shareIds[slot];
+    }
+
+    public String getShareName(int slot) {
+        return instruments.nameOf(shareIds[slot]);
+    }
+
+    public double getSharePrice(int slot) {
+        return numericMode.decode(prices.stored(shareIds[slot], numericMode));
+    }
+
+    // Stored number of shares, before the divisor is applied
+    public double getNumberOfShares(int slot) {
+        return numericMode.decode(numberOfShares.get(slot));
+    }
+
+    public double getEffectiveNumberOfShares(int slot) {
+        return effectiveNumberOfShares(numberOfShares.get(slot));
+    }
+
+    // Price in the representation of the numeric mode: the bits of the double with DOUBLE, scaled with FIXED_POINT
+    public long getStoredSharePrice(int slot) {
+        return prices.stored(shareIds[slot], numericMode);
+    }
+
+    public long getStoredNumberOfShares(int slot) {
+        return numberOfShares.get(slot);
+    }
+
+    // Divisor as restored by restore: the bits of the double with DOUBLE, scaled to FixedPoint.DIVISOR_SCALE with FIXED_POINT
+    public long getStoredDivisor() {
+        return numericMode == NumericMode.FIXED_POINT ? scaledDivisor : Double.doubleToRawLongBits(divisor);
+    }
+
+    public long getStoredMarketValue() {
+        return numericMode == NumericMode.FIXED_POINT ? scaledMarketValue : Double.doubleToRawLongBits(marketValue);
+    }
+
+    public ShareEntity getShare(String shareName) {
+        int slot = getSlot(shareName);
+        return slot >= 0 ? getMember(slot) : null;
+    }
+
+    private ShareEntity getMember(int slot) {
+        return new ShareEntity(getShareName(slot), getSharePrice(slot), getNumberOfShares(slot));
+    }
+
+    // Members sorted by share name, as a read-only view creating each ShareEntity on access
+    public List<ShareEntity> getMembers() {
+        return new AbstractList<>() {
+            @Override
+            public ShareEntity get(int index) {
+                return getMember(index);
+            }
+
+            @Override
+            public int size() {
+                return shareIds.length;
+            }
+        };
+    }
+
+    // Read-only map view of the members keyed by share name
+    public Map<String, ShareEntity> getShares() {
+        return new AbstractMap<>() {
+            @Override
+            public ShareEntity get(Object key) {
+                return key instanceof String shareName ? getShare(shareName) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof String shareName && getSlot(shareName) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return shareIds.length;
+            }
+
+            @Override
+            public Set<Entry<String, ShareEntity>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, ShareEntity>> iterator() {
+                        Iterator<ShareEntity> iterator = getMembers().iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return iterator.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, ShareEntity> next() {
+                                ShareEntity shareEntity = iterator.next();
+                                return new SimpleImmutableEntry<>(shareEntity.getShareName(), shareEntity);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return shareIds.length;
+                    }
+                };
+            }
+        };
+    }
+
+    /* Next snapshot with a share the index does not hold added, keeping the index value
+        1. Total Index Value = Get Current Index value + New Share Price * new number of shares
+        2. The number of share of each share is then readjusted as
+            NumOfShare * Current Index Value / Total Index Value
+           which is done by scaling the index divisor by Total Index Value / Current Index Value.
+           The new share is stored pre-multiplied by the old divisor so it is readjusted like the others.
+        Every step is rounded as the numeric mode of the index prescribes. The price of the share is read
+        from nextPrices, the book the next snapshot references.
+     */
+    public IndexEntity withAddition(PriceBook nextPrices, String shareName, double numberOfShares) {
+        int shareId = instruments.intern(shareName);
+        int slot = insertionSlot(shareName);
+        int[] nextIds = insert(shareIds, slot, shareId);
+        long price = nextPrices.stored(shareId, numericMode);
+        if (numericMode == NumericMode.FIXED_POINT) {
+            long shares = numericMode.encode(numberOfShares);
+            long currentIndexValue = scaledIndexValue();
+            long storedShares = FixedPoint.multiplyDivide(shares, scaledDivisor, DIVISOR_UNIT);
+            long nextDivisor = FixedPoint.multiplyDivide(scaledDivisor,
+                    FixedPoint.add(currentIndexValue, memberValue(price, shares)), currentIndexValue);
+            return nextScaled(nextIds, nextPrices, this.numberOfShares.insert(slot, storedShares),
+                    buildSlotTable(nextIds), nextDivisor, FixedPoint.add(scaledMarketValue, memberValue(price, storedShares)));
+        }
+        double sharePrice = numericMode.decode(price);
+        double currentIndexValue = getIndexValue();
+        double storedShares = numberOfShares * divisor;
+        return next(nextIds, nextPrices, this.numberOfShares.insert(slot, numericMode.encode(storedShares)),
+                buildSlotTable(nextIds), divisor * (currentIndexValue + sharePrice * numberOfShares) / currentIndexValue,
+                sharePrice * storedShares, 0);
+    }
+
+    // Next snapshot without a member, the remaining members are readjusted through the divisor to keep the index value
+    public IndexEntity withDeletion(String shareName) {
+        int slot = getSlot(shareName);
+        int[] nextIds = remove(shareIds, slot);
+        long price = prices.stored(shareIds[slot], numericMode);
+        long shares = numberOfShares.get(slot);
+        if (numericMode == NumericMode.FIXED_POINT) {
+            long currentIndexValue = scaledIndexValue();
+            long removedShareValue = memberValue(price, scaledEffectiveNumberOfShares(shares));
+            long nextDivisor = FixedPoint.multiplyDivide(scaledDivisor,
+                    FixedPoint.subtract(currentIndexValue, removedShareValue), currentIndexValue);
+            return nextScaled(nextIds, prices, numberOfShares.remove(slot), buildSlotTable(nextIds),
+                    nextDivisor, FixedPoint.subtract(scaledMarketValue, memberValue(price, shares)));
+        }
+        double currentIndexValue = getIndexValue();
+        double removedShareValue = numericMode.decode(price) * (numericMode.decode(shares) / divisor);
+        return next(nextIds, prices, numberOfShares.remove(slot), buildSlotTable(nextIds),
+                divisor * (currentIndexValue - removedShareValue) / currentIndexValue,
+                -numericMode.decode(price) * numericMode.decode(shares), 0);
+    }
+
+    /*
+     Next snapshot with the dividend deducted from the price of a member, the divisor keeps the index value.
+     nextPrices holds the price after the dividend, see PriceBook.withDividend.
+     */
+    public IndexEntity withDividend(PriceBook nextPrices, String shareName, double dividend) {
+        int slot = getSlot(shareName);
+        long price = prices.stored(shareIds[slot], numericMode);
+        long nextPrice = nextPrices.stored(shareIds[slot], numericMode);
+        long shares = numberOfShares.get(slot);
+        if (numericMode == NumericMode.FIXED_POINT) {
+            long scaledDividend = numericMode.encode(dividend);
+            long currentIndexValue = scaledIndexValue();
+            long reductionInIndexValue = memberValue(scaledDividend, scaledEffectiveNumberOfShares(shares));
+            long nextDivisor = FixedPoint.multiplyDivide(scaledDivisor,
+                    FixedPoint.subtract(currentIndexValue, reductionInIndexValue), currentIndexValue);
+            return nextScaled(shareIds, nextPrices, numberOfShares, slotTable, nextDivisor,
+                    FixedPoint.add(scaledMarketValue, FixedPoint.subtract(memberValue(nextPrice, shares), memberValue(price, shares))));
+        }
+        double currentIndexValue = getIndexValue();
+        double reductionInIndexValue = dividend * (numericMode.decode(shares) / divisor);
+        return next(shareIds, nextPrices, numberOfShares, slotTable,
+                divisor * (currentIndexValue - reductionInIndexValue) / currentIndexValue,
+                (numericMode.decode(nextPrice) - numericMode.decode(price)) * numericMode.decode(shares), 0);
+    }
+
+    /*
+     Next snapshot reading the prices of the given shares from nextPrices, the divisor is unchanged so the index
+     value moves with them. The market value moves by the change of each member value, the columns are shared.
+     The IDs must be distinct; returns this snapshot if none of the shares it holds has a new price.
+     */
+    public IndexEntity withPrices(PriceBook nextPrices, int... changedShareIds) {
+        boolean changed = false;
+        double marketValueDelta = 0;
+        long scaledMarketValueDelta = 0;
+        for (int shareId : changedShareIds) {
+            int slot = getSlot(shareId);
+            if (slot < 0) {
+                continue;
+            }
+            long price = prices.stored(shareId, numericMode);
+            long nextPrice = nextPrices.stored(shareId, numericMode);
+            if (price != nextPrice) {
+                long shares = numberOfShares.get(slot);
+                marketValueDelta += memberValueDelta(price, nextPrice, shares);
+                scaledMarketValueDelta = FixedPoint.add(scaledMarketValueDelta,
+                        scaledValue(nextPrice, shares) - scaledValue(price, shares));
+                changed = true;
+            }
+        }
+        return changed
+                ? next(shareIds, nextPrices, numberOfShares, slotTable, divisor, marketValueDelta, scaledMarketValueDelta)
+                : this;
+    }
+
+    // The same snapshot reading its prices from another book, which must hold the same prices for its members
+    public IndexEntity withSharedPrices(PriceBook sharedPrices) {
+        return new IndexEntity(indexName, instruments, shareIds, sharedPrices, numberOfShares, slotTable, divisor, scaledDivisor,
+                marketValue, scaledMarketValue, updatesSinceResummation, version, numericMode);
+    }
+
+    // Market value re-summed from the members, independent of the running aggregate
+    public double calculateMarketValue() {
+        return numericMode == NumericMode.FIXED_POINT
+                ? FixedPoint.toDouble(sumScaledMarketValue(shareIds, prices, numberOfShares), FixedPoint.SCALE)
+                : sumMarketValue(shareIds, prices, numberOfShares);
+    }
+
+    private IndexEntity next(int[] nextIds, PriceBook nextPrices, LongColumn nextNumberOfShares, int[] nextSlotTable,
+                             double nextDivisor, double marketValueDelta, long scaledMarketValueDelta) {
+        if (numericMode == NumericMode.FIXED_POINT) {
+            return nextScaled(nextIds, nextPrices, nextNumberOfShares, nextSlotTable,
+                    FixedPoint.toScaled(nextDivisor, FixedPoint.DIVISOR_SCALE), FixedPoint.add(scaledMarketValue, scaledMarketValueDelta));
+        }
+        if (updatesSinceResummation + 1 >= RESUMMATION_INTERVAL) {
+            return new IndexEntity(indexName, instruments, nextIds, nextPrices, nextNumberOfShares, nextSlotTable, nextDivisor, 0,
+                    sumMarketValue(nextIds, nextPrices, nextNumberOfShares), 0, 0, version + 1, numericMode);
+        }
+        return new IndexEntity(indexName, instruments, nextIds, nextPrices, nextNumberOfShares, nextSlotTable, nextDivisor, 0,
+                marketValue + marketValueDelta, 0, updatesSinceResummation + 1, version + 1, numericMode);
+    }
+
+    // FIXED_POINT: the scaled sum is exact, there is no drift to re-sum
+    private IndexEntity nextScaled(int[] nextIds, PriceBook nextPrices, LongColumn nextNumberOfShares, int[] nextSlotTable,
+                                   long nextScaledDivisor, long nextScaledMarketValue) {
+        return new IndexEntity(indexName, instruments, nextIds, nextPrices, nextNumberOfShares, nextSlotTable,
+                FixedPoint.toDouble(nextScaledDivisor, FixedPoint.DIVISOR_SCALE), nextScaledDivisor,
+                FixedPoint.toDouble(nextScaledMarketValue, FixedPoint.SCALE), nextScaledMarketValue, 0, version + 1, numericMode);
+    }
+
+    private double effectiveNumberOfShares(long storedShares) {
+        return numericMode == NumericMode.FIXED_POINT
+                ? FixedPoint.toDouble(scaledEffectiveNumberOfShares(storedShares), FixedPoint.SCALE)
+                : numericMode.decode(storedShares) / divisor;
+    }
+
+    // FIXED_POINT: stored number of shares divided by the divisor, rounded to FixedPoint.SCALE
+    private long scaledEffectiveNumberOfShares(long storedShares) {
+        return FixedPoint.multiplyDivide(storedShares, DIVISOR_UNIT, scaledDivisor);
+    }
+
+    private long scaledIndexValue() {
+        return FixedPoint.multiplyDivide(scaledMarketValue, DIVISOR_UNIT, scaledDivisor);
+    }
+
+    // DOUBLE: change of the market value when the price of a member moves, 0 with FIXED_POINT
+    private double memberValueDelta(long sharePrice, long nextSharePrice, long shares) {
+        if (numericMode == NumericMode.FIXED_POINT) {
+            return 0;
+        }
+        return (numericMode.decode(nextSharePrice) - numericMode.decode(sharePrice)) * numericMode.decode(shares);
+    }
+
+    // Scaled market value of a member with FIXED_POINT, 0 with DOUBLE
+    private long scaledValue(long sharePrice, long shares) {
+        return numericMode == NumericMode.FIXED_POINT ? memberValue(sharePrice, shares) : 0;
+    }
+
+    // FIXED_POINT: price * number of shares rounded to FixedPoint.SCALE
+    private static long memberValue(long sharePrice, long shares) {
+        return FixedPoint.multiplyDivide(sharePrice, shares, UNIT);
+    }
+
+    // Slot at which a share not held by the index is inserted to keep the share name order
+    private int insertionSlot(String shareName) {
+        int low = 0;
+        int high = shareIds.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getShareName(middle).compareTo(shareName) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    // Table of a power of two size with at most two thirds of the entries used, so probing always ends
+    private static int[] buildSlotTable(int[] shareIds) {
+        int minimumSize = shareIds.length + shareIds.length / 2 + 1;
+        int[] table = new int[Math.max(2, Integer.highestOneBit(minimumSize - 1) << 1)];
+        int mask = table.length - 1;
+        for (int slot = 0; slot < shareIds.length; slot++) {
+            int i = hash(shareIds[slot]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = slot + 1;
+        }
+        return table;
+    }
+
+    // Fibonacci hashing, so consecutive IDs interned together do not fill neighbouring entries
+    private static int hash(int shareId) {
+        int h = shareId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int[] insert(int[] column, int slot, int value) {
+        int[] next = new int[column.length + 1];
+        System.arraycopy(column, 0, next, 0, slot);
+        next[slot] = value;
+        System.arraycopy(column, slot, next, slot + 1, column.length - slot);
+        return next;
+    }
+
+    private static int[] remove(int[] column, int slot) {
+        int[] next = new int[column.length - 1];
+        System.arraycopy(column, 0, next, 0, slot);
+        System.arraycopy(column, slot + 1, next, slot, column.length - slot - 1);
+        return next;
+    }
+
+    private static long sumScaledMarketValue(int[] shareIds, PriceBook prices, LongColumn numberOfShares) {
+        long sum = 0;
+        for (int slot = 0; slot < shareIds.length; slot++) {
+            sum = FixedPoint.add(sum, memberValue(prices.stored(shareIds[slot], NumericMode.FIXED_POINT), numberOfShares.get(slot)));
+        }
+        return sum;
+    }
+
+    // DOUBLE: Kahan summation over all members
+    private static double sumMarketValue(int[] shareIds, PriceBook prices, LongColumn numberOfShares) {
+        double sum = 0;
+        double compensation = 0;
+        for (int slot = 0; slot < shareIds.length; slot++) {
+            double y = Double.longBitsToDouble(prices.stored(shareIds[slot], NumericMode.DOUBLE))
+                    * Double.longBitsToDouble(numberOfShares.get(slot)) - compensation;
+            double t = sum + y;
+            compensation = (t - sum) - y;
+            sum = t;
+        }
+        return sum;
     }
 
 
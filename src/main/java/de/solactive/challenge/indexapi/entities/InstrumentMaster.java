@@ -0,0 +1,56 @@
+package de.solactive.challenge.indexapi.entities;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ Table of instruments of one IndexService: every share name is interned once to a dense int ID and one
+ canonical String, shared by all indices of the service holding the share. Index members reference their share by ID,
+ so 200 indices over the same 500 names hold 500 name Strings instead of 100000, and a lookup by ID
+ compares ints instead of Strings.
+ IDs are never reused, the table only grows with the distinct share names ever seen, like String.intern.
+ */
+public final class InstrumentMaster {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Canonical name per ID. Grown under the lock of this table, an ID is published through ids after its name
+    private volatile String[] names = new String[1024];
+
+    private int size;
+
+    // ID of the share, assigned on first use
+    public int intern(String shareName) {
+        Integer id = ids.get(shareName);
+        return id != null ? id : register(shareName);
+    }
+
+    // ID of the share, -1 if it was never interned
+    public int idOf(String shareName) {
+        Integer id = ids.get(shareName);
+        return id != null ? id : -1;
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized int register(String shareName) {
+        Integer id = ids.get(shareName);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = shareName;
+        ids.put(shareName, size);
+        return size++;
+    }
+
+}
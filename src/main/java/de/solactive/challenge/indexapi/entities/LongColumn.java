@@ -0,0 +1,81 @@
+package de.solactive.challenge.indexapi.entities;
+
+/*
+ Immutable column of 64-bit values, one per member slot of an IndexEntity, in the representation of its
+ NumericMode: the bits of doubles with DOUBLE, scaled longs with FIXED_POINT. Every change returns a new column
+ in the storage of this one, so columns can be shared between snapshots like the arrays they replace.
+ */
+abstract class LongColumn {
+
+    abstract int length();
+
+    abstract long get(int slot);
+
+    // Copy of the values on the heap
+    abstract long[] toArray();
+
+    // Column of the same storage holding the given values; the array must not be changed afterwards
+    abstract LongColumn withValues(long[] values);
+
+    abstract LongColumn with(int slot, long value);
+
+    abstract LongColumn insert(int slot, long value);
+
+    abstract LongColumn remove(int slot);
+
+    static final class OnHeap extends LongColumn {
+
+        private final long[] values;
+        // OFF_HEAP for a column built on the heap because the arena was over its limit
+        private final MemberStorage storage;
+
+        OnHeap(long[] values, MemberStorage storage) {
+            this.values = values;
+            this.storage = storage;
+        }
+
+        @Override
+        int length() {
+            return values.length;
+        }
+
+        @Override
+        long get(int slot) {
+            return values[slot];
+        }
+
+        @Override
+        long[] toArray() {
+            return values.clone();
+        }
+
+        @Override
+        LongColumn withValues(long[] values) {
+            return storage.column(values);
+        }
+
+        @Override
+        LongColumn with(int slot, long value) {
+            long[] next = values.clone();
+            next[slot] = value;
+            return storage.column(next);
+        }
+
+        @Override
+        LongColumn insert(int slot, long value) {
+            long[] next = new long[values.length + 1];
+            System.arraycopy(values, 0, next, 0, slot);
+            next[slot] = value;
+            System.arraycopy(values, slot, next, slot + 1, values.length - slot);
+            return storage.column(next);
+        }
+
+        @Override
+        LongColumn remove(int slot) {
+            long[] next = new long[values.length - 1];
+            System.arraycopy(values, 0, next, 0, slot);
+            System.arraycopy(values, slot + 1, next, slot, values.length - slot - 1);
+            return storage.column(next);
+        }
+    }
+}
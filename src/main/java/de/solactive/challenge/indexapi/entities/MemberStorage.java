@@ -0,0 +1,35 @@
+package de.solactive.challenge.indexapi.entities;
+
+/*
+ Where the numbers of shares of index members are kept (index.storage). Share IDs, the slot table, the
+ PriceBook holding the one price of every share and the index metadata stay on the heap with either storage.
+ HEAP: one long[] per column. OFF_HEAP: regions of direct memory chunks, so large index universes add
+ little to the live heap the garbage collector has to trace and copy. Over the off-heap limit, columns are
+ built on the heap until collections have returned enough regions.
+ Each IndexService builds its snapshots in the storage it was created with, and a column builds its successors
+ in its own storage, so services with different storages can share a JVM.
+ */
+public enum MemberStorage {
+    HEAP,
+    OFF_HEAP;
+
+    // Limit of the direct memory reserved for OFF_HEAP columns, returns this storage
+    public MemberStorage withOffHeapLimit(long maxReservedBytes) {
+        OffHeapArena.GLOBAL.setMaxReservedBytes(maxReservedBytes);
+        return this;
+    }
+
+    // Direct memory held by the columns of OFF_HEAP snapshots that are still reachable
+    public static long getOffHeapBytes() {
+        return OffHeapArena.GLOBAL.getAllocatedBytes();
+    }
+
+    public static long getOffHeapReservedBytes() {
+        return OffHeapArena.GLOBAL.getReservedBytes();
+    }
+
+    LongColumn column(long[] values) {
+        LongColumn column = this == OFF_HEAP ? OffHeapLongColumn.of(values) : null;
+        return column != null ? column : new LongColumn.OnHeap(values, this);
+    }
+}
@@ -0,0 +1,74 @@
+package de.solactive.challenge.indexapi.entities;
+
+import static de.solactive.challenge.indexapi.entities.FixedPoint.SCALE;
+
+/*
+ Arithmetic of prices, numbers of shares and divisors (index.numeric-mode).
+ DOUBLE: binary floating point, the rounding error of divisor adjustments accumulates over the life of an index.
+ FIXED_POINT: decimal fixed point, see FixedPoint. Inputs are rounded to SCALE decimals, divisors to DIVISOR_SCALE,
+ and every value derived from them is rounded half even to its scale, so replaying the same adjustments
+ reproduces the same digits as an official calculation with these rules. An index keeps its member columns,
+ divisor and market value as scaled longs, the market value as an exact sum of the rounded member values.
+ Each IndexService builds its indices in the mode it was created with, and an index keeps the mode it was created
+ or restored in, so services with different modes can share a JVM.
+ */
+public enum NumericMode {
+    DOUBLE {
+        @Override
+        public double multiply(double a, double b) {
+            return a * b;
+        }
+
+        @Override
+        public double percentage(double part, double total) {
+            return (part / total) * 100;
+        }
+
+        @Override
+        long encode(double value) {
+            return Double.doubleToRawLongBits(value);
+        }
+
+        @Override
+        double decode(long stored) {
+            return Double.longBitsToDouble(stored);
+        }
+    },
+
+    FIXED_POINT {
+        @Override
+        public double multiply(double a, double b) {
+            return decode(FixedPoint.multiplyDivide(encode(a), encode(b), FixedPoint.powerOfTen(SCALE)));
+        }
+
+        @Override
+        public double percentage(double part, double total) {
+            return decode(FixedPoint.multiplyDivide(encode(part), 100 * FixedPoint.powerOfTen(SCALE), encode(total)));
+        }
+
+        @Override
+        long encode(double value) {
+            return FixedPoint.toScaled(value, SCALE);
+        }
+
+        @Override
+        double decode(long stored) {
+            return FixedPoint.toDouble(stored, SCALE);
+        }
+    };
+
+    // Product of two values, e.g. price * number of shares
+    public abstract double multiply(double a, double b);
+
+    // part / total in percent
+    public abstract double percentage(double part, double total);
+
+    /**
+     * An input value (price, number of shares, dividend) as stored in the member columns of an index.
+     *
+     * @throws IllegalArgumentException with FIXED_POINT, if the value is not finite or out of its range
+     */
+    abstract long encode(double value);
+
+    abstract double decode(long stored);
+}
@@ -0,0 +1,124 @@
+package de.solactive.challenge.indexapi.entities;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ Off-heap memory of the OFF_HEAP member storage. Regions are carved out of direct ByteBuffer chunks in power of
+ two size classes, so the heap holds a few chunk objects instead of one long[] per column and snapshot.
+ A region is returned to the free list of its class by a Cleaner once the column owning it is unreachable:
+ lock-free readers may still hold a replaced snapshot, so a region cannot be released when it is replaced.
+ Regions larger than a chunk get a direct buffer of their own, released by the JDK with the buffer.
+ Released regions only come back after a collection, so under heavy churn the chunks could grow far beyond the
+ memory in use; beyond maxReservedBytes no chunk is added and allocate returns null instead.
+ */
+final class OffHeapArena {
+
+    static final OffHeapArena GLOBAL = new OffHeapArena(4 << 20);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final int MIN_REGION_SHIFT = 4;
+
+    private final int chunkBytes;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int top;
+    // Free regions per size class, chunk index in the high and offset in the low 32 bits
+    private final long[][] freeRegions;
+    private final int[] freeCounts;
+    private long allocatedBytes;
+    private long dedicatedBytes;
+    private volatile long maxReservedBytes = Long.MAX_VALUE;
+
+    OffHeapArena(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+        int classes = Integer.numberOfTrailingZeros(chunkBytes) - MIN_REGION_SHIFT + 1;
+        this.freeRegions = new long[classes][16];
+        this.freeCounts = new int[classes];
+        this.top = chunkBytes;
+    }
+
+    // Region of at least the given size, or null over the limit; the caller registers its owner with register
+    Region allocate(int bytes) {
+        int sizeClass = sizeClass(bytes);
+        if (sizeClass >= freeCounts.length) {
+            synchronized (this) {
+                if (getReservedBytes() + bytes > maxReservedBytes) {
+                    return null;
+                }
+                dedicatedBytes += bytes;
+            }
+            return new Region(ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()), 0, -1, sizeClass, bytes);
+        }
+        synchronized (this) {
+            int regionBytes = 1 << (sizeClass + MIN_REGION_SHIFT);
+            if (freeCounts[sizeClass] > 0) {
+                allocatedBytes += regionBytes;
+                long region = freeRegions[sizeClass][--freeCounts[sizeClass]];
+                int chunk = (int) (region >>> 32);
+                return new Region(chunks.get(chunk), (int) region, chunk, sizeClass, regionBytes);
+            }
+            if (top + regionBytes > chunkBytes) {
+                if (getReservedBytes() + chunkBytes > maxReservedBytes) {
+                    return null;
+                }
+                chunks.add(ByteBuffer.allocateDirect(chunkBytes).order(ByteOrder.nativeOrder()));
+                top = 0;
+            }
+            allocatedBytes += regionBytes;
+            int offset = top;
+            top += regionBytes;
+            return new Region(chunks.get(chunks.size() - 1), offset, chunks.size() - 1, sizeClass, regionBytes);
+        }
+    }
+
+    // Releases the region once the owner is unreachable, the action must not reference the owner
+    void register(Object owner, Region region) {
+        CLEANER.register(owner, new Release(this, region.chunk(), region.offset(), region.sizeClass(), region.bytes()));
+    }
+
+    private synchronized void release(int chunk, int offset, int sizeClass, int bytes) {
+        if (chunk < 0) {
+            dedicatedBytes -= bytes;
+            return;
+        }
+        allocatedBytes -= bytes;
+        if (freeCounts[sizeClass] == freeRegions[sizeClass].length) {
+            freeRegions[sizeClass] = Arrays.copyOf(freeRegions[sizeClass], freeCounts[sizeClass] * 2);
+        }
+        freeRegions[sizeClass][freeCounts[sizeClass]++] = ((long) chunk << 32) | offset;
+    }
+
+    void setMaxReservedBytes(long maxReservedBytes) {
+        this.maxReservedBytes = maxReservedBytes;
+    }
+
+    // Bytes held by live columns, including the rounding to the size classes
+    synchronized long getAllocatedBytes() {
+        return allocatedBytes + dedicatedBytes;
+    }
+
+    // Native memory taken from the JDK, released regions included
+    synchronized long getReservedBytes() {
+        return (long) chunks.size() * chunkBytes + dedicatedBytes;
+    }
+
+    private static int sizeClass(int bytes) {
+        int regionBytes = Math.max(bytes, 1 << MIN_REGION_SHIFT);
+        return 32 - Integer.numberOfLeadingZeros(regionBytes - 1) - MIN_REGION_SHIFT;
+    }
+
+    record Region(ByteBuffer buffer, int offset, int chunk, int sizeClass, int bytes) {
+    }
+
+    private record Release(OffHeapArena arena, int chunk, int offset, int sizeClass, int bytes) implements Runnable {
+        @Override
+        public void run() {
+            arena.release(chunk, offset, sizeClass, bytes);
+        }
+    }
+}
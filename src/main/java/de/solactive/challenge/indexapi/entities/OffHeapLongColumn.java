@@ -0,0 +1,102 @@
+package de.solactive.challenge.indexapi.entities;
+
+import java.nio.ByteBuffer;
+
+/*
+ Column kept in a region of the OffHeapArena. The heap only holds this object and its Cleaner registration;
+ the values are written once before the column is published and read with absolute gets afterwards.
+ Changes build an off-heap column again while the arena is within its limit, and a column on the heap otherwise.
+ */
+final class OffHeapLongColumn extends LongColumn {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    private OffHeapLongColumn(OffHeapArena.Region region, int length) {
+        this.buffer = region.buffer();
+        this.offset = region.offset();
+        this.length = length;
+    }
+
+    // Column holding the values, null if the arena is over its limit
+    static OffHeapLongColumn of(long[] values) {
+        OffHeapLongColumn column = allocate(values.length);
+        if (column != null) {
+            column.buffer.slice(column.offset, values.length << 3).order(column.buffer.order())
+                    .asLongBuffer().put(values);
+        }
+        return column;
+    }
+
+    // Column to be filled by the caller, null if the arena is over its limit
+    private static OffHeapLongColumn allocate(int length) {
+        OffHeapArena.Region region = OffHeapArena.GLOBAL.allocate(length << 3);
+        if (region == null) {
+            return null;
+        }
+        OffHeapLongColumn column = new OffHeapLongColumn(region, length);
+        OffHeapArena.GLOBAL.register(column, region);
+        return column;
+    }
+
+    @Override
+    int length() {
+        return length;
+    }
+
+    @Override
+    long get(int slot) {
+        return buffer.getLong(offset + (slot << 3));
+    }
+
+    @Override
+    long[] toArray() {
+        long[] values = new long[length];
+        buffer.slice(offset, length << 3).order(buffer.order()).asLongBuffer().get(values);
+        return values;
+    }
+
+    @Override
+    LongColumn withValues(long[] values) {
+        return MemberStorage.OFF_HEAP.column(values);
+    }
+
+    @Override
+    LongColumn with(int slot, long value) {
+        OffHeapLongColumn next = allocate(length);
+        if (next == null) {
+            return new OnHeap(toArray(), MemberStorage.OFF_HEAP).with(slot, value);
+        }
+        next.copy(0, this, 0, length);
+        next.buffer.putLong(next.offset + (slot << 3), value);
+        return next;
+    }
+
+    @Override
+    LongColumn insert(int slot, long value) {
+        OffHeapLongColumn next = allocate(length + 1);
+        if (next == null) {
+            return new OnHeap(toArray(), MemberStorage.OFF_HEAP).insert(slot, value);
+        }
+        next.copy(0, this, 0, slot);
+        next.buffer.putLong(next.offset + (slot << 3), value);
+        next.copy(slot + 1, this, slot, length - slot);
+        return next;
+    }
+
+    @Override
+    LongColumn remove(int slot) {
+        OffHeapLongColumn next = allocate(length - 1);
+        if (next == null) {
+            return new OnHeap(toArray(), MemberStorage.OFF_HEAP).remove(slot);
+        }
+        next.copy(0, this, 0, slot);
+        next.copy(slot, this, slot + 1, length - slot - 1);
+        return next;
+    }
+
+    private void copy(int toSlot, OffHeapLongColumn from, int fromSlot, int count) {
+        buffer.put(offset + (toSlot << 3), from.buffer, from.offset + (fromSlot << 3), count << 3);
+    }
+}
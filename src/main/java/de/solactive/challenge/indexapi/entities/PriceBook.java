@@ -0,0 +1,228 @@
+package de.solactive.challenge.indexapi.entities;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/*
+ Immutable table of the price of every instrument by its InstrumentMaster ID: the one price of a share, read by
+ every index holding it. Index snapshots reference the version of the book they were built with, so a published
+ snapshot always reads the prices its market value was computed from.
+ The book is a trie of 32-way nodes over the ID: a change copies the path to one leaf, a few nodes for any
+ number of instruments, and shares all other nodes with the previous version.
+ A price is kept in the representation of each NumericMode, the bits of the double and the value scaled to
+ FixedPoint.SCALE, so indices of both modes can hold the same share. A price out of the fixed-point range has no
+ scaled value, reading it with FIXED_POINT fails like encoding it would.
+ */
+public final class PriceBook {
+
+    public static final PriceBook EMPTY = new PriceBook(new long[2 * PriceBook.WIDTH], 0);
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    // FIXED_POINT value of a price out of the fixed-point range
+    private static final long OUT_OF_RANGE = Long.MIN_VALUE;
+
+    // long[] leaf of WIDTH (bits, scaled) pairs when shift is 0, Object[] of WIDTH children otherwise
+    private final Object root;
+    private final int shift;
+
+    private PriceBook(Object root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    /**
+     * Price of the share as a double, 0 if the book has none.
+     *
+     * @throws IllegalArgumentException with FIXED_POINT, if the price is out of the fixed-point range
+     */
+    public double getSharePrice(int shareId, NumericMode numericMode) {
+        return numericMode.decode(stored(shareId, numericMode));
+    }
+
+    // True if the book holds exactly this price for the share
+    public boolean hasPrice(int shareId, double sharePrice) {
+        long[] leaf = leafOf(shareId);
+        return leaf != null && leaf[(shareId & MASK) << 1] == Double.doubleToRawLongBits(sharePrice);
+    }
+
+    // True if both books hold the same price for the share, in both representations
+    public boolean hasSamePrice(int shareId, PriceBook other) {
+        long[] leaf = leafOf(shareId);
+        long[] otherLeaf = other.leafOf(shareId);
+        int i = (shareId & MASK) << 1;
+        return leaf != null && otherLeaf != null && leaf[i] == otherLeaf[i] && leaf[i + 1] == otherLeaf[i + 1];
+    }
+
+    public PriceBook withPrice(int shareId, double sharePrice) {
+        return with(new int[]{shareId}, new long[]{Double.doubleToRawLongBits(sharePrice), scaledOf(sharePrice)});
+    }
+
+    // Book with the price of every share, interning their names in the given table
+    public PriceBook withPrices(Collection<ShareEntity> shares, InstrumentMaster instruments) {
+        int[] shareIds = new int[shares.size()];
+        long[] entries = new long[2 * shareIds.length];
+        int i = 0;
+        for (ShareEntity shareEntity : shares) {
+            shareIds[i] = instruments.intern(shareEntity.getShareName());
+            entries[2 * i] = Double.doubleToRawLongBits(shareEntity.getSharePrice());
+            entries[2 * i + 1] = scaledOf(shareEntity.getSharePrice());
+            i++;
+        }
+        return with(shareIds, entries);
+    }
+
+    // Book with the dividend deducted from the price of the share, in each representation by its own arithmetic
+    public PriceBook withDividend(int shareId, double dividend) {
+        double nextPrice = Double.longBitsToDouble(stored(shareId, NumericMode.DOUBLE)) - dividend;
+        long scaledPrice = rawScaled(shareId);
+        long nextScaledPrice = OUT_OF_RANGE;
+        if (scaledPrice != OUT_OF_RANGE) {
+            try {
+                nextScaledPrice = FixedPoint.subtract(scaledPrice, FixedPoint.toScaled(dividend, FixedPoint.SCALE));
+            } catch (IllegalArgumentException e) {
+                // no scaled value, reading it with FIXED_POINT reports the range
+            }
+        }
+        return with(new int[]{shareId}, new long[]{Double.doubleToRawLongBits(nextPrice), nextScaledPrice});
+    }
+
+    // Book with the price of the share taken over from another book
+    public PriceBook withPriceOf(int shareId, PriceBook source) {
+        return with(new int[]{shareId}, new long[]{source.stored(shareId, NumericMode.DOUBLE), source.rawScaled(shareId)});
+    }
+
+    // Book with the prices of the shares taken over from another book, copying each changed node once
+    public PriceBook withPricesOf(int[] shareIds, PriceBook source) {
+        long[] entries = new long[2 * shareIds.length];
+        for (int i = 0; i < shareIds.length; i++) {
+            entries[2 * i] = source.stored(shareIds[i], NumericMode.DOUBLE);
+            entries[2 * i + 1] = source.rawScaled(shareIds[i]);
+        }
+        return with(shareIds, entries);
+    }
+
+    /*
+     Book with stored prices of one numeric mode, as returned by IndexEntity.getStoredSharePrice. Prices the book
+     already holds in that representation are left as they are, so indices restored one after the other share
+     one book and only copy the nodes of the prices that differ. Returns this book if none does.
+     */
+    PriceBook withStoredPrices(int[] shareIds, long[] storedPrices, NumericMode numericMode) {
+        int changed = 0;
+        int[] changedIds = new int[shareIds.length];
+        long[] entries = new long[2 * shareIds.length];
+        for (int i = 0; i < shareIds.length; i++) {
+            long[] leaf = leafOf(shareIds[i]);
+            int entry = ((shareIds[i] & MASK) << 1) + (numericMode == NumericMode.FIXED_POINT ? 1 : 0);
+            if (leaf != null && leaf[entry] == storedPrices[i]) {
+                continue;
+            }
+            changedIds[changed] = shareIds[i];
+            if (numericMode == NumericMode.FIXED_POINT) {
+                entries[2 * changed] = Double.doubleToRawLongBits(FixedPoint.toDouble(storedPrices[i], FixedPoint.SCALE));
+                entries[2 * changed + 1] = storedPrices[i];
+            } else {
+                entries[2 * changed] = storedPrices[i];
+                entries[2 * changed + 1] = scaledOf(Double.longBitsToDouble(storedPrices[i]));
+            }
+            changed++;
+        }
+        return changed == 0 ? this : with(Arrays.copyOf(changedIds, changed), Arrays.copyOf(entries, 2 * changed));
+    }
+
+    // Price in the representation of the numeric mode, 0 if the book has none
+    long stored(int shareId, NumericMode numericMode) {
+        long[] leaf = leafOf(shareId);
+        if (leaf == null) {
+            return 0;
+        }
+        int i = (shareId & MASK) << 1;
+        if (numericMode == NumericMode.DOUBLE) {
+            return leaf[i];
+        }
+        return leaf[i + 1] != OUT_OF_RANGE ? leaf[i + 1] : numericMode.encode(Double.longBitsToDouble(leaf[i]));
+    }
+
+    private long rawScaled(int shareId) {
+        long[] leaf = leafOf(shareId);
+        return leaf != null ? leaf[((shareId & MASK) << 1) + 1] : 0;
+    }
+
+    private long[] leafOf(int shareId) {
+        if (shareId >>> shift >= WIDTH) {
+            return null;
+        }
+        Object node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS) {
+            node = ((Object[]) node)[(shareId >>> level) & MASK];
+        }
+        return (long[]) node;
+    }
+
+    private static long scaledOf(double sharePrice) {
+        try {
+            return FixedPoint.toScaled(sharePrice, FixedPoint.SCALE);
+        } catch (IllegalArgumentException e) {
+            return OUT_OF_RANGE;
+        }
+    }
+
+    // Book with the (bits, scaled) entries of the shares, a later entry of the same share wins
+    private PriceBook with(int[] shareIds, long[] entries) {
+        if (shareIds.length == 0) {
+            return this;
+        }
+        // Sorted by ID so the entries below one node are adjacent, the index breaks ties in request order
+        long[] order = new long[shareIds.length];
+        int maxId = 0;
+        for (int i = 0; i < shareIds.length; i++) {
+            order[i] = (long) shareIds[i] << 32 | i;
+            maxId = Math.max(maxId, shareIds[i]);
+        }
+        Arrays.sort(order);
+        int[] sortedIds = new int[order.length];
+        long[] sortedEntries = new long[entries.length];
+        for (int i = 0; i < order.length; i++) {
+            int from = (int) order[i];
+            sortedIds[i] = shareIds[from];
+            sortedEntries[2 * i] = entries[2 * from];
+            sortedEntries[2 * i + 1] = entries[2 * from + 1];
+        }
+
+        Object nextRoot = root;
+        int nextShift = shift;
+        while (maxId >>> nextShift >= WIDTH) {
+            Object[] children = new Object[WIDTH];
+            children[0] = nextRoot;
+            nextRoot = children;
+            nextShift += BITS;
+        }
+        return new PriceBook(with(nextRoot, nextShift, sortedIds, sortedEntries, 0, sortedIds.length), nextShift);
+    }
+
+    // Copy of the node with the entries [from, to), which all lie below it
+    private static Object with(Object node, int shift, int[] sortedIds, long[] sortedEntries, int from, int to) {
+        if (shift == 0) {
+            long[] leaf = node != null ? ((long[]) node).clone() : new long[2 * WIDTH];
+            for (int i = from; i < to; i++) {
+                int entry = (sortedIds[i] & MASK) << 1;
+                leaf[entry] = sortedEntries[2 * i];
+                leaf[entry + 1] = sortedEntries[2 * i + 1];
+            }
+            return leaf;
+        }
+        Object[] children = node != null ? ((Object[]) node).clone() : new Object[WIDTH];
+        int i = from;
+        while (i < to) {
+            int child = (sortedIds[i] >>> shift) & MASK;
+            int end = i + 1;
+            while (end < to && ((sortedIds[end] >>> shift) & MASK) == child) {
+                end++;
+            }
+            children[child] = with(children[child], shift - BITS, sortedIds, sortedEntries, i, end);
+            i = end;
+        }
+        return children;
+    }
+}
@@ -1,15 +1,17 @@
 package de.solactive.challenge.indexapi.entities;
 
 import lombok.Getter;
-import lombok.Setter;
 
+/*
+ One member as requested or journaled, and the member of an index as returned to callers asking for an object.
+ Indices do not keep ShareEntity objects: IndexEntity stores its members column-wise and creates one on access.
+ */
 @Getter
-@Setter
 public class ShareEntity {
 
-    private String shareName;
-    private double sharePrice;
-    private double numberOfShares;
+    private final String shareName;
+    private final double sharePrice;
+    private final double numberOfShares;
 
     public ShareEntity(String shareName, double sharePrice, double numberOfShares) {
         this.shareName = shareName;
@@ -0,0 +1,438 @@
+package de.solactive.challenge.indexapi.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal written to segment files through a FileChannel.
+ * Appends go to an in-memory buffer; how and when the buffer reaches the disk depends on the durability mode:
+ * <ul>
+ *     <li>PER_OP: every append is written and fsynced before it returns.</li>
+ *     <li>BATCHED: group commit. A flusher thread writes everything appended while the previous fsync ran
+ *     and fsyncs it once; awaitDurable blocks until the caller's record is covered.</li>
+ *     <li>ASYNC: the flusher writes and fsyncs every flush interval, nobody waits for it.</li>
+ * </ul>
+ * A new segment is started once the current one exceeds the segment size, segment files are named
+ * after the sequence number of their first record. On startup, a torn record at the end of the last segment is
+ * cut off and the appends continue in that segment.
+ * Once the flusher cannot write a batch, the journal accepts no more records: appends fail instead of
+ * buffering records that would never reach the disk. The failure is reported by getFailure.
+ */
+public class FileIndexJournal implements IndexJournal, Closeable {
+
+    public enum Durability { PER_OP, BATCHED, ASYNC }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final Durability durability;
+    private final long segmentBytes;
+    private final long flushIntervalMillis;
+
+    // Guards the pending buffer and lastLsn; in PER_OP mode also the segment
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition pendingAvailable = appendLock.newCondition();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private long pendingFirstLsn;
+    private long lastLsn;
+    private boolean closed;
+
+    // Written only by the flusher thread, or by appenders under appendLock in PER_OP mode
+    private FileChannel segment;
+    private long segmentSize;
+
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableAdvanced = durableLock.newCondition();
+    private volatile long durableLsn;
+    private volatile IOException failure;
+    private final AtomicLong writeFailures = new AtomicLong();
+
+    private final Thread flusher;
+
+    public FileIndexJournal(Path directory, Durability durability, long segmentBytes, long flushIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        this.segmentBytes = segmentBytes;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        Files.createDirectories(directory);
+        this.lastLsn = reopenLastSegment();
+        this.durableLsn = lastLsn;
+
+        if (durability == Durability.PER_OP) {
+            this.flusher = null;
+        } else {
+            this.flusher = new Thread(this::flushLoop, "index-journal-flusher");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        }
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        // Encoding outside appendLock keeps the critical section to a buffer copy
+        byte[] payload = encode(record);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int checksum = (int) crc.getValue();
+
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal failed, no more records are accepted", failure);
+            }
+            long lsn = lastLsn + 1;
+            writeInt(pending, payload.length);
+            writeInt(pending, checksum);
+            writeInt(pending, (int) (lsn >>> 32));
+            writeInt(pending, (int) lsn);
+            pending.writeBytes(payload);
+            lastLsn = lsn;
+            if (pendingFirstLsn == 0) {
+                pendingFirstLsn = lsn;
+            }
+
+            if (durability == Durability.PER_OP) {
+                try {
+                    flush(pending, pendingFirstLsn, lsn);
+                } catch (IOException e) {
+                    // The record is not in the journal, its sequence number goes to the next one
+                    lastLsn = lsn - 1;
+                    writeFailures.incrementAndGet();
+                    throw new UncheckedIOException("Could not write journal", e);
+                } finally {
+                    pending.reset();
+                    pendingFirstLsn = 0;
+                }
+            } else if (durability == Durability.BATCHED) {
+                pendingAvailable.signal();
+            }
+            return lsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        if (durability != Durability.BATCHED || durableLsn >= lsn) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (durableLsn < lsn && failure == null) {
+                durableAdvanced.awaitUninterruptibly();
+            }
+        } finally {
+            durableLock.unlock();
+        }
+        if (durableLsn < lsn) {
+            throw new UncheckedIOException("Could not write journal", failure);
+        }
+    }
+
+    @Override
+    public void replay(long afterLsn, RecordConsumer consumer) {
+        try {
+            List<Path> segments = listSegments();
+            for (int i = 0; i < segments.size(); i++) {
+                // Segments that end at or before afterLsn are not even opened
+                if (i + 1 < segments.size() && firstLsnOf(segments.get(i + 1)) - 1 <= afterLsn) {
+                    continue;
+                }
+                readSegment(segments.get(i), (lsn, payload) -> {
+                    if (lsn > afterLsn) {
+                        consumer.accept(lsn, JournalCodec.readPayload(payload));
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read journal", e);
+        }
+    }
+
+    // Deletes the segments whose records are all covered; the last segment is always kept
+    @Override
+    public void compact(long upToLsn) {
+        try {
+            List<Path> segments = listSegments();
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (firstLsnOf(segments.get(i + 1)) - 1 > upToLsn) {
+                    break;
+                }
+                Files.deleteIfExists(segments.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compact journal", e);
+        }
+    }
+
+    @Override
+    public long getLastLsn() {
+        appendLock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    // Why the flusher stopped, null while the journal accepts records
+    public IOException getFailure() {
+        return failure;
+    }
+
+    // Writes that failed since startup, in any durability mode
+    public long getWriteFailures() {
+        return writeFailures.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            closed = true;
+            pendingAvailable.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    // Group commit: everything appended while the previous batch was being fsynced goes out with one fsync
+    private void flushLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long firstLsn;
+            long batchLastLsn;
+            appendLock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    if (durability == Durability.ASYNC) {
+                        pendingAvailable.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                    } else {
+                        pendingAvailable.await();
+                    }
+                }
+                if (pending.size() == 0) {
+                    return; // closed and fully flushed
+                }
+                batch = pending;
+                firstLsn = pendingFirstLsn;
+                batchLastLsn = lastLsn;
+                pending = new ByteArrayOutputStream(Math.max(batch.size(), 64 * 1024));
+                pendingFirstLsn = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                appendLock.unlock();
+            }
+
+            try {
+                flush(batch, firstLsn, batchLastLsn);
+            } catch (IOException e) {
+                writeFailures.incrementAndGet();
+                failure = e;
+                signalDurable();
+                return;
+            }
+
+            if (durability == Durability.ASYNC && flushIntervalMillis > 0) {
+                try {
+                    Thread.sleep(flushIntervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void flush(ByteArrayOutputStream batch, long firstLsn, long batchLastLsn) throws IOException {
+        if (segment == null || segmentSize >= segmentBytes) {
+            rollSegment(firstLsn);
+        }
+        try {
+            batch.writeTo(Channels.newOutputStream(segment));
+            segment.force(false);
+        } catch (IOException e) {
+            discardFailedWrite();
+            throw e;
+        }
+        segmentSize += batch.size();
+        durableLsn = batchLastLsn;
+        signalDurable();
+    }
+
+    /*
+     Cuts the segment back to its last complete record after a failed write: the reader stops at the first bad
+     record, so records appended behind the torn bytes would be lost. If the segment cannot be cut either, the
+     next write starts a new segment and the torn bytes only end the old one.
+     */
+    private void discardFailedWrite() {
+        try {
+            segment.truncate(segmentSize);
+            segment.position(segmentSize);
+        } catch (IOException e) {
+            try {
+                segment.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            segment = null;
+        }
+    }
+
+    private void rollSegment(long firstLsn) throws IOException {
+        if (segment != null) {
+            FileChannel previous = segment;
+            segment = null;
+            previous.force(false);
+            previous.close();
+        }
+        segment = FileChannel.open(directory.resolve(segmentName(firstLsn)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+    }
+
+    private void signalDurable() {
+        durableLock.lock();
+        try {
+            durableAdvanced.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    /*
+     Returns the highest sequence number in the journal and opens the last segment for the next appends, cut back
+     to its last complete record: a crash may have left a torn record or no record at all (right after a roll),
+     and records appended behind a torn one could not be read. A segment left without records is kept so its
+     name still tells the sequence number the journal continues with.
+     */
+    private long reopenLastSegment() throws IOException {
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        Path last = segments.get(segments.size() - 1);
+        long[] lsn = {firstLsnOf(last) - 1};
+        long validBytes = readSegment(last, (recordLsn, payload) -> lsn[0] = recordLsn);
+        segment = FileChannel.open(last, StandardOpenOption.WRITE);
+        segment.truncate(validBytes);
+        segment.position(validBytes);
+        segment.force(false);
+        segmentSize = validBytes;
+        return lsn[0];
+    }
+
+    List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /*
+     Reads the valid records of a segment through a memory mapping, stopping at the first torn or corrupt record.
+     Returns the length of the valid records.
+     */
+    static long readSegment(Path segmentFile, PayloadConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            long validBytes = 0;
+            while (buffer.remaining() >= JournalCodec.HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                long lsn = buffer.getLong();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                consumer.accept(lsn, payload);
+                buffer.position(buffer.position() + length);
+                validBytes = buffer.position();
+            }
+            return validBytes;
+        }
+    }
+
+    @FunctionalInterface
+    interface PayloadConsumer {
+        void accept(long lsn, ByteBuffer payload);
+    }
+
+    static String segmentName(long firstLsn) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX);
+    }
+
+    static long firstLsnOf(Path segmentFile) {
+        String name = segmentFile.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(JournalRecord record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try {
+            JournalCodec.writePayload(new DataOutputStream(bytes), record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by a ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
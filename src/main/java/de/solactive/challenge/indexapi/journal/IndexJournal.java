@@ -0,0 +1,73 @@
+package de.solactive.challenge.indexapi.journal;
+
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of index mutations. IndexService appends while it holds the lock of the index,
+ * so the records of one index are in the order the mutations were published, and waits for
+ * durability only after releasing the lock, which lets concurrent writers share one fsync.
+ */
+public interface IndexJournal {
+
+    // Used when journaling is disabled
+    IndexJournal NONE = new IndexJournal() {
+        @Override
+        public long append(JournalRecord record) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long lsn) {
+        }
+
+        @Override
+        public void replay(long afterLsn, RecordConsumer consumer) {
+        }
+
+        @Override
+        public long getLastLsn() {
+            return 0;
+        }
+
+        @Override
+        public void compact(long upToLsn) {
+        }
+    };
+
+    /**
+     * @return the log sequence number of the record
+     */
+    long append(JournalRecord record);
+
+    /**
+     * Blocks until the record with the given sequence number is durable, as far as the configured
+     * durability mode promises it.
+     */
+    void awaitDurable(long lsn);
+
+    /**
+     * Passes every record with a sequence number above afterLsn to the consumer, in sequence order.
+     */
+    void replay(long afterLsn, RecordConsumer consumer);
+
+    /**
+     * Passes every record of the journal to the consumer, in sequence order.
+     */
+    default void replay(Consumer<JournalRecord> consumer) {
+        replay(0, (lsn, record) -> consumer.accept(record));
+    }
+
+    // Sequence number of the last appended record, 0 if there is none
+    long getLastLsn();
+
+    /**
+     * Discards records up to the given sequence number once a snapshot covers them.
+     * Records may be kept longer, they are skipped on replay.
+     */
+    void compact(long upToLsn);
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        void accept(long lsn, JournalRecord record);
+    }
+}
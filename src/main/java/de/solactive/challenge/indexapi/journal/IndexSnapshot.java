@@ -0,0 +1,16 @@
+package de.solactive.challenge.indexapi.journal;
+
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+
+import java.util.List;
+
+/**
+ * Point-in-time state of all indices. Each index carries the journal sequence number it was captured at:
+ * every record of that index up to this number is contained in the snapshot, every later one is not.
+ * baseLsn is at most the smallest of these, so replay can start right after it.
+ */
+public record IndexSnapshot(long baseLsn, List<Entry> indices) {
+
+    public record Entry(long lsn, IndexEntity index) {
+    }
+}
@@ -0,0 +1,286 @@
+package de.solactive.challenge.indexapi.journal;
+
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.InstrumentMaster;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.entities.PriceBook;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot files of all indices, named after their base sequence number.
+ * Layout: int magic | int format | long baseLsn | int indexCount, then one block per index:
+ *   int length | int crc32(block) | long lsn | indexName | numericMode | divisor | marketValue
+ *   | updatesSinceResummation | version | int memberCount | members (shareName, sharePrice, numberOfShares)
+ *   sorted by share name.
+ * Divisors, market values, prices and numbers of shares are longs in the representation of the numeric mode
+ * of the index (IndexEntity.getStored...), so FIXED_POINT indices are restored without a round trip through
+ * doubles.
+ * The indices are restored into one PriceBook: an index only gets book nodes of its own for a price that differs
+ * from the indices read before it, e.g. one that changed while the snapshot was captured.
+ * A snapshot is written to a temporary file and renamed once complete, the newest readable one is loaded
+ * at startup and the older ones beyond the retained count are deleted.
+ */
+public class IndexSnapshotStore {
+
+    private static final int MAGIC = 0x49445853; // "IDXS"
+    private static final int FORMAT = 2;
+    private static final int HEADER_BYTES = 20;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    // Snapshots larger than this are mapped in windows, a MappedByteBuffer is limited to 2 GiB
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+    private final Path directory;
+    private final int retained;
+
+    public IndexSnapshotStore(Path directory, int retained) throws IOException {
+        this.directory = directory;
+        this.retained = Math.max(retained, 1);
+        Files.createDirectories(directory);
+    }
+
+    public void write(IndexSnapshot snapshot) throws IOException {
+        Path target = directory.resolve(snapshotName(snapshot.baseLsn()));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(snapshot.baseLsn());
+            out.writeInt(snapshot.indices().size());
+
+            ByteArrayOutputStream block = new ByteArrayOutputStream(1 << 16);
+            DataOutputStream blockOut = new DataOutputStream(block);
+            CRC32 crc = new CRC32();
+            for (IndexSnapshot.Entry entry : snapshot.indices()) {
+                block.reset();
+                writeIndex(blockOut, entry);
+                crc.reset();
+                crc.update(block.toByteArray());
+                out.writeInt(block.size());
+                out.writeInt((int) crc.getValue());
+                block.writeTo(out);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - retained; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    public IndexSnapshot loadLatest() {
+        return loadLatest(MemberStorage.HEAP, new InstrumentMaster());
+    }
+
+    /**
+     * Loads the newest snapshot that can be read completely, falling back to older ones.
+     *
+     * @param storage     where the member columns of the restored indices are kept
+     * @param instruments table the share names of the restored indices are interned in
+     * @return the snapshot, or null if there is none
+     */
+    public IndexSnapshot loadLatest(MemberStorage storage, InstrumentMaster instruments) {
+        try {
+            List<Path> snapshots = listSnapshots();
+            for (int i = snapshots.size() - 1; i >= 0; i--) {
+                IndexSnapshot snapshot = read(snapshots.get(i), storage, instruments);
+                if (snapshot != null) {
+                    return snapshot;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshots", e);
+        }
+    }
+
+    /**
+     * Sequence number up to which the journal is covered by every retained snapshot, so it is
+     * safe to compact even if the newest snapshot turns out to be unreadable.
+     */
+    public long getCompactableLsn() {
+        try {
+            List<Path> snapshots = listSnapshots();
+            return snapshots.isEmpty() ? 0 : baseLsnOf(snapshots.get(0));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list snapshots", e);
+        }
+    }
+
+    // Base sequence number of the newest snapshot, 0 if there is none
+    public long getLatestLsn() {
+        try {
+            List<Path> snapshots = listSnapshots();
+            return snapshots.isEmpty() ? 0 : baseLsnOf(snapshots.get(snapshots.size() - 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list snapshots", e);
+        }
+    }
+
+    List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void writeIndex(DataOutputStream out, IndexSnapshot.Entry entry) throws IOException {
+        IndexEntity indexEntity = entry.index();
+        out.writeLong(entry.lsn());
+        JournalCodec.writeString(out, indexEntity.getIndexName());
+        JournalCodec.writeString(out, indexEntity.getNumericMode().name());
+        out.writeLong(indexEntity.getStoredDivisor());
+        out.writeLong(indexEntity.getStoredMarketValue());
+        out.writeInt(indexEntity.getUpdatesSinceResummation());
+        out.writeLong(indexEntity.getVersion());
+        out.writeInt(indexEntity.getShareCount());
+        for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+            JournalCodec.writeString(out, indexEntity.getShareName(slot));
+            out.writeLong(indexEntity.getStoredSharePrice(slot));
+            out.writeLong(indexEntity.getStoredNumberOfShares(slot));
+        }
+    }
+
+    // Decodes straight from the mapped file; returns null if the snapshot is truncated or corrupt
+    private static IndexSnapshot read(Path snapshotFile, MemberStorage storage, InstrumentMaster instruments)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            MappedWindow window = new MappedWindow(channel);
+            if (!window.ensure(HEADER_BYTES)) {
+                return null;
+            }
+            ByteBuffer buffer = window.buffer();
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            if (buffer.getInt() != FORMAT) {
+                return null;
+            }
+            long baseLsn = buffer.getLong();
+            int indexCount = buffer.getInt();
+
+            List<IndexSnapshot.Entry> indices = new ArrayList<>(indexCount);
+            PriceBook prices = PriceBook.EMPTY;
+            CRC32 crc = new CRC32();
+            for (int i = 0; i < indexCount; i++) {
+                if (!window.ensure(8)) {
+                    return null;
+                }
+                int length = window.buffer().getInt();
+                int checksum = window.buffer().getInt();
+                if (length <= 0 || !window.ensure(length)) {
+                    return null;
+                }
+                buffer = window.buffer();
+                ByteBuffer block = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(block.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return null;
+                }
+                IndexSnapshot.Entry entry = readIndex(block, storage, instruments, prices);
+                indices.add(entry);
+                prices = entry.index().getPrices();
+                buffer.position(buffer.position() + length);
+            }
+            return new IndexSnapshot(baseLsn, indices);
+        }
+    }
+
+    // Share names repeat across indices, IndexEntity.restore keeps the one instance interned by the InstrumentMaster
+    private static IndexSnapshot.Entry readIndex(ByteBuffer block, MemberStorage storage, InstrumentMaster instruments,
+                                                 PriceBook prices) {
+        long lsn = block.getLong();
+        String indexName = JournalCodec.readString(block);
+        NumericMode numericMode = NumericMode.valueOf(JournalCodec.readString(block));
+        long divisor = block.getLong();
+        long marketValue = block.getLong();
+        int updatesSinceResummation = block.getInt();
+        long version = block.getLong();
+        int shareCount = block.getInt();
+        String[] sortedShareNames = new String[shareCount];
+        long[] sharePrices = new long[shareCount];
+        long[] numberOfShares = new long[shareCount];
+        for (int slot = 0; slot < shareCount; slot++) {
+            sortedShareNames[slot] = JournalCodec.readString(block);
+            sharePrices[slot] = block.getLong();
+            numberOfShares[slot] = block.getLong();
+        }
+        return new IndexSnapshot.Entry(lsn, IndexEntity.restore(indexName, sortedShareNames, sharePrices, numberOfShares,
+                divisor, marketValue, updatesSinceResummation, version, storage, numericMode, instruments, prices));
+    }
+
+    static String snapshotName(long baseLsn) {
+        return String.format("%s%020d%s", SNAPSHOT_PREFIX, baseLsn, SNAPSHOT_SUFFIX);
+    }
+
+    static long baseLsnOf(Path snapshotFile) {
+        String name = snapshotFile.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    // Read-only mapping of a window of the file, moved forward when a block does not fit in the rest of it
+    private static final class MappedWindow {
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer buffer;
+
+        MappedWindow(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0, 0);
+        }
+
+        ByteBuffer buffer() {
+            return buffer;
+        }
+
+        // Makes sure the next bytes are mapped, false if the file ends before them
+        boolean ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return true;
+            }
+            long position = windowStart + buffer.position();
+            if (size - position < bytes) {
+                return false;
+            }
+            map(position, bytes);
+            return true;
+        }
+
+        private void map(long position, int minBytes) throws IOException {
+            long length = Math.min(size - position, Math.max(MAX_WINDOW_BYTES, minBytes));
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        }
+    }
+}
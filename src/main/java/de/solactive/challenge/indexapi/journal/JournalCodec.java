@@ -0,0 +1,124 @@
+package de.solactive.challenge.indexapi.journal;
+
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.entities.ShareEntity;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Binary encoding of journal records:
+   int payloadLength | int crc32(payload) | long lsn | payload
+ with payload = byte type | fields, strings as int length + UTF-8 bytes.
+ */
+final class JournalCodec {
+
+    static final int HEADER_BYTES = 16;
+
+    private static final byte CREATE_INDEX = 1;
+    private static final byte ADD_SHARE = 2;
+    private static final byte DELETE_SHARE = 3;
+    private static final byte DIVIDEND = 4;
+    private static final byte PRICE_UPDATE = 5;
+    private static final byte DELETE_INDEX = 6;
+
+    private JournalCodec() {
+    }
+
+    static void writePayload(DataOutputStream out, JournalRecord record) throws IOException {
+        if (record instanceof JournalRecord.CreateIndex createIndex) {
+            out.writeByte(CREATE_INDEX);
+            writeString(out, createIndex.indexName());
+            writeString(out, createIndex.numericMode().name());
+            out.writeInt(createIndex.members().size());
+            for (ShareEntity member : createIndex.members()) {
+                writeString(out, member.getShareName());
+                out.writeDouble(member.getSharePrice());
+                out.writeDouble(member.getNumberOfShares());
+            }
+        } else if (record instanceof JournalRecord.AddShare addShare) {
+            out.writeByte(ADD_SHARE);
+            writeString(out, addShare.indexName());
+            writeString(out, addShare.shareName());
+            out.writeDouble(addShare.sharePrice());
+            out.writeDouble(addShare.numberOfShares());
+        } else if (record instanceof JournalRecord.DeleteShare deleteShare) {
+            out.writeByte(DELETE_SHARE);
+            writeString(out, deleteShare.indexName());
+            writeString(out, deleteShare.shareName());
+        } else if (record instanceof JournalRecord.Dividend dividend) {
+            out.writeByte(DIVIDEND);
+            writeString(out, dividend.indexName());
+            writeString(out, dividend.shareName());
+            out.writeDouble(dividend.dividend());
+        } else if (record instanceof JournalRecord.PriceUpdate priceUpdate) {
+            out.writeByte(PRICE_UPDATE);
+            writeString(out, priceUpdate.indexName());
+            out.writeInt(priceUpdate.sharePrices().size());
+            for (Map.Entry<String, Double> sharePrice : priceUpdate.sharePrices().entrySet()) {
+                writeString(out, sharePrice.getKey());
+                out.writeDouble(sharePrice.getValue());
+            }
+        } else if (record instanceof JournalRecord.DeleteIndex deleteIndex) {
+            out.writeByte(DELETE_INDEX);
+            writeString(out, deleteIndex.indexName());
+        } else {
+            throw new IllegalArgumentException("Unknown journal record " + record);
+        }
+    }
+
+    static JournalRecord readPayload(ByteBuffer payload) {
+        byte type = payload.get();
+        String indexName = readString(payload);
+        switch (type) {
+            case CREATE_INDEX -> {
+                NumericMode numericMode = NumericMode.valueOf(readString(payload));
+                int size = payload.getInt();
+                List<ShareEntity> members = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    members.add(new ShareEntity(readString(payload), payload.getDouble(), payload.getDouble()));
+                }
+                return new JournalRecord.CreateIndex(indexName, numericMode, members);
+            }
+            case ADD_SHARE -> {
+                return new JournalRecord.AddShare(indexName, readString(payload), payload.getDouble(), payload.getDouble());
+            }
+            case DELETE_SHARE -> {
+                return new JournalRecord.DeleteShare(indexName, readString(payload));
+            }
+            case DIVIDEND -> {
+                return new JournalRecord.Dividend(indexName, readString(payload), payload.getDouble());
+            }
+            case PRICE_UPDATE -> {
+                int size = payload.getInt();
+                Map<String, Double> sharePrices = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    sharePrices.put(readString(payload), payload.getDouble());
+                }
+                return new JournalRecord.PriceUpdate(indexName, sharePrices);
+            }
+            case DELETE_INDEX -> {
+                return new JournalRecord.DeleteIndex(indexName);
+            }
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getInt()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+package de.solactive.challenge.indexapi.journal;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Enables the file journal and the snapshots with index.journal.enabled=true; without it IndexService keeps
+ * its state in memory only.
+ */
+@Configuration
+@ConditionalOnProperty(name = "index.journal.enabled", havingValue = "true")
+public class JournalConfiguration {
+
+    @Bean
+    public FileIndexJournal indexJournal(@Value("${index.journal.dir:data/journal}") Path directory,
+                                         @Value("${index.journal.durability:BATCHED}") FileIndexJournal.Durability durability,
+                                         @Value("${index.journal.segment-bytes:67108864}") long segmentBytes,
+                                         @Value("${index.journal.flush-interval-millis:10}") long flushIntervalMillis) throws IOException {
+        return new FileIndexJournal(directory, durability, segmentBytes, flushIntervalMillis);
+    }
+
+    // Down once the journal stopped accepting records, see FileIndexJournal.getFailure
+    @Bean
+    public HealthIndicator indexJournalHealthIndicator(FileIndexJournal indexJournal) {
+        return () -> {
+            IOException failure = indexJournal.getFailure();
+            Health.Builder health = failure == null ? Health.up() : Health.down(failure);
+            return health.withDetail("durableLsn", indexJournal.getDurableLsn()).build();
+        };
+    }
+
+    @Bean
+    public MeterBinder indexJournalMetrics(FileIndexJournal indexJournal) {
+        return registry -> {
+            Gauge.builder("index.journal.failed", indexJournal, journal -> journal.getFailure() != null ? 1 : 0)
+                    .description("1 once the journal stopped accepting records after a failed write")
+                    .register(registry);
+            FunctionCounter.builder("index.journal.write.failures", indexJournal, FileIndexJournal::getWriteFailures)
+                    .description("Journal writes that failed")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public IndexSnapshotStore indexSnapshotStore(@Value("${index.journal.dir:data/journal}") Path directory,
+                                                 @Value("${index.snapshot.retained:2}") int retained) throws IOException {
+        return new IndexSnapshotStore(directory, retained);
+    }
+}
@@ -0,0 +1,37 @@
+package de.solactive.challenge.indexapi.journal;
+
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.entities.ShareEntity;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One successful mutation of one index, as written to the journal.
+ * Records are scoped to a single index: a dividend on a share held by several indices is journaled
+ * as one Dividend record per holder. Replaying the records of an index in order through the same
+ * IndexService code path rebuilds exactly the same snapshot.
+ */
+public sealed interface JournalRecord {
+
+    String indexName();
+
+    record CreateIndex(String indexName, NumericMode numericMode, List<ShareEntity> members) implements JournalRecord {
+    }
+
+    record AddShare(String indexName, String shareName, double sharePrice, double numberOfShares) implements JournalRecord {
+    }
+
+    record DeleteShare(String indexName, String shareName) implements JournalRecord {
+    }
+
+    record Dividend(String indexName, String shareName, double dividend) implements JournalRecord {
+    }
+
+    // Prices in the order they were applied, so replay sums the market value deltas identically
+    record PriceUpdate(String indexName, Map<String, Double> sharePrices) implements JournalRecord {
+    }
+
+    record DeleteIndex(String indexName) implements JournalRecord {
+    }
+}
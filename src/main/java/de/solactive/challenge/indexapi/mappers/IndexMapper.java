@@ -6,7 +6,7 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
 
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -14,8 +14,12 @@ import java.util.stream.Collectors;
 @Mapper(componentModel = "spring")
 public interface IndexMapper {
 
-    @Mapping(target ="shares", expression = "java(convertIndexMembers2shares(indexDTO.getIndexMembers()))")
-    IndexEntity toEntity(IndexDTO indexDTO);
+    // Built by hand, the storage, numeric mode and instrument table of the snapshot are not part of the request
+    default IndexEntity toEntity(IndexDTO indexDTO, MemberStorage storage, NumericMode numericMode,
+                                 InstrumentMaster instruments) {
+        return new IndexEntity(indexDTO.getIndexName(), convertIndexMembers2shares(indexDTO.getIndexMembers()), storage,
+                numericMode, instruments);
+    }
 
     // Helper method to convert indexMembers from IndexDTO to shares in IndexEntity
     default Map<String, ShareEntity> convertIndexMembers2shares(List<ShareDTO> indexMembers) {
@@ -37,29 +41,34 @@ public interface IndexMapper {
     IndexStateResponseDTO toDto(IndexEntity indexEntity);
 
     // Helper method to convert shares to DTOs with calculated index values and weights
+    // Members of an IndexEntity are already sorted by share name, so no sorting is needed here
     default List<IndexMemberResponseDTO> mapSharesToResponse(IndexEntity indexEntity) {
         double totalIndexValue = calculateTotalIndexValue(indexEntity);
-        return indexEntity.getShares().values().stream()
-                .sorted(Comparator.comparing(ShareEntity::getShareName))
-                .map(share -> {
-                    double shareValue = share.getSharePrice() * share.getNumberOfShares();
-                    double weightPct = (shareValue / totalIndexValue) * 100;
-                    return new IndexMemberResponseDTO(
-                            share.getShareName(),
-                            share.getSharePrice(),
-                            share.getNumberOfShares(),
-                            weightPct,
-                            shareValue
-                    );
-                })
-                .collect(Collectors.toList());
+        List<IndexMemberResponseDTO> response = new ArrayList<>(indexEntity.getShareCount());
+        for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+            response.add(toMemberDto(indexEntity.getNumericMode(), indexEntity.getShareName(slot), indexEntity.getSharePrice(slot),
+                    indexEntity.getEffectiveNumberOfShares(slot), totalIndexValue));
+        }
+        return response;
+    }
+
+    // Member with its value and weight in an index of the given total value, rounded as the numeric mode of the index prescribes
+    default IndexMemberResponseDTO toMemberDto(NumericMode numbers, String shareName, double sharePrice, double numberOfShares,
+                                               double totalIndexValue) {
+        double shareValue = numbers.multiply(sharePrice, numberOfShares);
+        double weightPct = numbers.percentage(shareValue, totalIndexValue);
+        return new IndexMemberResponseDTO(
+                shareName,
+                sharePrice,
+                numberOfShares,
+                weightPct,
+                shareValue
+        );
     }
 
-    // Helper method to calculate the total index value
+    // Helper method to get the total index value, maintained incrementally by the entity
     default double calculateTotalIndexValue(IndexEntity indexEntity) {
-        return indexEntity.getShares().values().stream()
-                .mapToDouble(share -> share.getSharePrice() * share.getNumberOfShares())
-                .sum();
+        return indexEntity.getIndexValue();
     }
 
 
@@ -0,0 +1,32 @@
+package de.solactive.challenge.indexapi.services;
+
+/**
+ * Outcome of one operation of a batch adjustment, see IndexService.applyAdjustments.
+ *
+ * @param outcome what happened to the operation
+ * @param error   the validation error of a FAILED operation, null otherwise
+ */
+public record AdjustmentResult(Outcome outcome, RuntimeException error) {
+
+    public enum Outcome {
+        ADDED,
+        ALREADY_EXISTS,
+        DELETED,
+        DIVIDEND_APPLIED,
+        FAILED,
+        ROLLED_BACK,   // valid, but undone because another operation on the same index failed
+        INVALID        // none of addition, deletion or dividend given
+    }
+
+    public static AdjustmentResult of(Outcome outcome) {
+        return new AdjustmentResult(outcome, null);
+    }
+
+    public static AdjustmentResult failed(RuntimeException error) {
+        return new AdjustmentResult(Outcome.FAILED, error);
+    }
+
+    public boolean isSuccessful() {
+        return outcome != Outcome.FAILED && outcome != Outcome.ROLLED_BACK && outcome != Outcome.INVALID;
+    }
+}
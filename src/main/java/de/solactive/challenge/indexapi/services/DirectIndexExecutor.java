@@ -0,0 +1,71 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.IndexAdjustmentRequestsDTO;
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Lock-based execution: every mutation runs on the calling thread, the returned future is already completed.
+ */
+@Service
+@ConditionalOnProperty(name = "index.execution.mode", havingValue = "LOCKS", matchIfMissing = true)
+public class DirectIndexExecutor implements IndexExecutor {
+
+    private final IndexService indexService;
+
+    public DirectIndexExecutor(IndexService indexService) {
+        this.indexService = indexService;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndex(IndexDTO indexDTO) {
+        return run(() -> indexService.createIndex(indexDTO));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addShareToIndex(ShareAdditionDTO shareAdditionDTO) {
+        return run(() -> indexService.addShareToIndex(shareAdditionDTO));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteShareFromIndex(ShareDeletionDTO shareDeletionDTO) {
+        return run(() -> {
+            indexService.deleteShareFromIndex(shareDeletionDTO);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteIndex(String indexName) {
+        return run(() -> indexService.deleteIndex(indexName));
+    }
+
+    @Override
+    public CompletableFuture<Void> applyDividend(ShareDividendDTO shareDividendDTO) {
+        return run(() -> {
+            indexService.applyDividend(shareDividendDTO);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<AdjustmentResult>> applyAdjustments(List<IndexAdjustmentRequestsDTO> operations, boolean allOrNothing) {
+        return run(() -> indexService.applyAdjustments(operations, allOrNothing));
+    }
+
+    private static <T> CompletableFuture<T> run(Supplier<T> mutation) {
+        try {
+            return CompletableFuture.completedFuture(mutation.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
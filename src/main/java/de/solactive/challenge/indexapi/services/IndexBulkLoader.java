@@ -0,0 +1,114 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.BulkCreateResponseDTO;
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import jakarta.validation.Validator;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates indices from a bulk payload, either a JSON array of index definitions or NDJSON
+ * (one definition per line). The payload is read with Jackson's streaming parser and every
+ * index is created as soon as it has been read, so only one definition is held in memory at a time.
+ */
+@Service
+public class IndexBulkLoader {
+
+    private final IndexService indexService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public IndexBulkLoader(IndexService indexService, ObjectMapper objectMapper, Validator validator) {
+        this.indexService = indexService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Reading stops at the first syntax error; indices read before that point stay created
+     * and the rest of the payload is counted as one invalid definition.
+     *
+     * @return counts of created, conflicting and invalid indices
+     */
+    public BulkCreateResponseDTO createIndices(InputStream payload) throws IOException {
+        long created = 0;
+        long conflicts = 0;
+        long invalid = 0;
+        boolean malformed = false;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && token != JsonToken.END_ARRAY) {
+                // Read one definition as a tree first, so a mapping error does not leave the parser mid-object
+                IndexDTO indexDTO = toValidIndex(parser.readValueAsTree());
+                Boolean indexCreated = indexDTO == null ? null : createIndex(indexDTO);
+                if (indexCreated == null) {
+                    invalid++;
+                } else if (indexCreated) {
+                    created++;
+                } else {
+                    conflicts++;
+                }
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException e) {
+            invalid++;
+            malformed = true;
+        }
+        return new BulkCreateResponseDTO(created, conflicts, invalid, malformed);
+    }
+
+    // null if a price conflicts with the current price of the share or is out of the fixed-point range
+    private Boolean createIndex(IndexDTO indexDTO) {
+        try {
+            return indexService.createIndex(indexDTO);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private IndexDTO toValidIndex(JsonNode definition) {
+        if (definition == null || !definition.isObject()) {
+            return null;
+        }
+        IndexDTO indexDTO;
+        try {
+            indexDTO = objectMapper.treeToValue(definition, IndexDTO.class);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+        if (!validator.validate(indexDTO).isEmpty() || !hasDistinctMembers(indexDTO)) {
+            return null;
+        }
+        return indexDTO;
+    }
+
+    private boolean hasDistinctMembers(IndexDTO indexDTO) {
+        List<ShareDTO> members = indexDTO.getIndexMembers();
+        if (members == null) {
+            return false;
+        }
+        Set<String> shareNames = new HashSet<>();
+        for (ShareDTO member : members) {
+            if (!shareNames.add(member.getShareName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,17 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+
+/**
+ * Notified of every snapshot IndexService publishes. Called while the index lock is held, so the
+ * notifications of one index arrive in version order; implementations must return quickly and never block.
+ */
+@FunctionalInterface
+public interface IndexChangeListener {
+
+    /**
+     * @param previous the replaced snapshot, or null if the index was created
+     * @param next     the published snapshot, or null if the index was deleted
+     */
+    void indexChanged(IndexEntity previous, IndexEntity next);
+}
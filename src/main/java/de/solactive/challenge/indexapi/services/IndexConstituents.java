@@ -0,0 +1,155 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.IndexMemberResponseDTO;
+import de.solactive.challenge.indexapi.dto.IndexStateResponseDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.mappers.IndexMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Heaviest members of an index for GET /api/indexConstituents.
+ * One pass over the member columns computes each weight and keeps the selected members in a bounded min-heap
+ * of slots, so a top-N query costs O(members * log N) without sorting or mapping the whole index.
+ * Only the selected members are mapped and serialized, in the same shape as GET /api/indexState/{indexName}.
+ */
+@Service
+public class IndexConstituents {
+
+    private final IndexService indexService;
+    private final IndexMapper indexMapper;
+    private final ObjectMapper objectMapper;
+
+    public IndexConstituents(IndexService indexService, IndexMapper indexMapper, ObjectMapper objectMapper) {
+        this.indexService = indexService;
+        this.indexMapper = indexMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Serialized state of the index with the members whose weight is between minWeight and maxWeight (inclusive,
+     * in percent), at most limit of them, by descending weight. Equal weights keep share name order.
+     *
+     * @return null if the index does not exist
+     * @throws IllegalArgumentException if limit is below 1 or minWeight is above maxWeight
+     */
+    public byte[] getConstituents(String indexName, int limit, double minWeight, double maxWeight) {
+        if (limit < 1 || !(minWeight <= maxWeight)) {
+            throw new IllegalArgumentException("Invalid limit or weight range");
+        }
+        IndexEntity indexEntity = indexService.getIndex(indexName);
+        if (indexEntity == null) {
+            return null;
+        }
+        NumericMode numbers = indexEntity.getNumericMode();
+        double totalIndexValue = indexMapper.calculateTotalIndexValue(indexEntity);
+
+        // Only the selected slots are mapped below, which computes their value and weight once more
+        Selection selection = new Selection(Math.min(limit, indexEntity.getShareCount()));
+        for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+            double shareValue = numbers.multiply(indexEntity.getSharePrice(slot), indexEntity.getEffectiveNumberOfShares(slot));
+            double weight = numbers.percentage(shareValue, totalIndexValue);
+            if (weight >= minWeight && weight <= maxWeight) {
+                selection.offer(slot, weight);
+            }
+        }
+
+        int[] slots = selection.drain();
+        List<IndexMemberResponseDTO> members = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            members.add(indexMapper.toMemberDto(numbers, indexEntity.getShareName(slot), indexEntity.getSharePrice(slot),
+                    indexEntity.getEffectiveNumberOfShares(slot), totalIndexValue));
+        }
+        try {
+            return objectMapper.writeValueAsBytes(new IndexStateResponseDTO(indexName, totalIndexValue, members));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize index constituents", e);
+        }
+    }
+
+    /*
+     The capacity heaviest slots offered so far, as a binary min-heap on (weight, -slot) in parallel arrays:
+     the root is the lightest selected member and is replaced when a heavier one is offered.
+     Slots are offered in ascending order, so on equal weights the earlier share name stays selected.
+     */
+    private static final class Selection {
+
+        private final int[] slots;
+        private final double[] weights;
+        private int size;
+
+        Selection(int capacity) {
+            this.slots = new int[capacity];
+            this.weights = new double[capacity];
+        }
+
+        void offer(int slot, double weight) {
+            if (size < slots.length) {
+                slots[size] = slot;
+                weights[size] = weight;
+                siftUp(size++);
+            } else if (slots.length > 0 && weight > weights[0]) {
+                slots[0] = slot;
+                weights[0] = weight;
+                siftDown(0, size);
+            }
+        }
+
+        // Selected slots by descending weight, heapsort of the heap in place
+        int[] drain() {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            return Arrays.copyOf(slots, size);
+        }
+
+        // True if i ranks below j: lighter, or as heavy with a later share name
+        private boolean lighter(int i, int j) {
+            return weights[i] < weights[j] || (weights[i] == weights[j] && slots[i] > slots[j]);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!lighter(i, parent)) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int end) {
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= end) {
+                    return;
+                }
+                if (child + 1 < end && lighter(child + 1, child)) {
+                    child++;
+                }
+                if (!lighter(child, i)) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int slot = slots[i];
+            slots[i] = slots[j];
+            slots[j] = slot;
+            double weight = weights[i];
+            weights[i] = weights[j];
+            weights[j] = weight;
+        }
+    }
+}
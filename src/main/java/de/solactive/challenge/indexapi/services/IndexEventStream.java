@@ -0,0 +1,381 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.IndexEventDTO;
+import de.solactive.challenge.indexapi.dto.IndexMemberResponseDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.mappers.IndexMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes an event to the subscribers whenever IndexService publishes a new snapshot of an index.
+ * A writer only appends the (previous, next) snapshot pair to the bounded buffer of each interested
+ * subscriber; events are built and sent by a dispatcher pool, so a slow subscriber never slows down writers.
+ * A send blocked for longer than the send timeout evicts its subscriber: the subscription is removed, and the pool
+ * gets a thread in place of the blocked one until the send returns, so stalled clients cannot starve the others.
+ * When a buffer is full, DROP discards the new change, CONFLATE merges it with the pending change of the same
+ * index (the subscriber then skips versions but receives every member that changed in between).
+ * Deleting an index sends an event flagged as deleted, with the version following the last snapshot.
+ */
+@Service
+public class IndexEventStream {
+
+    public enum Overflow { DROP, CONFLATE }
+
+    /**
+     * Destination of the events of one subscriber, called from a single dispatcher thread at a time.
+     */
+    public interface Sink {
+
+        void send(IndexEventDTO event) throws IOException;
+
+        void close();
+
+        /**
+         * Number of events the sink accepts without blocking. Pending changes stay buffered (and are dropped or
+         * conflated) while it is 0, the sink calls Subscription.resume once it accepts events again.
+         */
+        default long demand() {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private final IndexService indexService;
+    private final IndexMapper indexMapper;
+    private final int bufferSize;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor dispatcher;
+    private final long sendTimeoutNanos;
+    private final ScheduledExecutorService watchdog;
+    private final LongAdder evictions = new LongAdder();
+    private final IndexChangeListener listener = this::indexChanged;
+
+    public IndexEventStream(IndexService indexService, IndexMapper indexMapper,
+                            @Value("${index.events.buffer-size:256}") int bufferSize,
+                            @Value("${index.events.dispatch-threads:4}") int dispatchThreads,
+                            @Value("${index.events.send-timeout-millis:5000}") long sendTimeoutMillis) {
+        this.indexService = indexService;
+        this.indexMapper = indexMapper;
+        this.bufferSize = bufferSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "index-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-events-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = Math.max(sendTimeoutMillis / 2, 1);
+        watchdog.scheduleWithFixedDelay(this::evictBlockedSubscribers, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        indexService.addListener(listener);
+    }
+
+    /**
+     * @param indexNames indices to receive events for, or null/empty for all indices
+     */
+    public Subscription subscribe(Set<String> indexNames, Overflow overflow, Sink sink) {
+        Subscription subscription = new Subscription(indexNames == null || indexNames.isEmpty() ? null : Set.copyOf(indexNames),
+                overflow, sink);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Subscribers removed because a send was blocked for longer than the send timeout
+    public long getEvictedCount() {
+        return evictions.sum();
+    }
+
+    private void evictBlockedSubscribers() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.evict(now)) {
+                unsubscribe(subscription);
+                evictions.increment();
+                // The blocked thread is lost to the pool until its send returns, see Subscription.drain
+                resizeDispatcher(1);
+            }
+        }
+    }
+
+    // Core and maximum size move together; the maximum first when growing, last when shrinking
+    private synchronized void resizeDispatcher(int delta) {
+        int size = dispatcher.getMaximumPoolSize() + delta;
+        if (delta > 0) {
+            dispatcher.setMaximumPoolSize(size);
+            dispatcher.setCorePoolSize(size);
+        } else {
+            dispatcher.setCorePoolSize(size);
+            dispatcher.setMaximumPoolSize(size);
+        }
+    }
+
+    // next is null when the index was deleted
+    private void indexChanged(IndexEntity previous, IndexEntity next) {
+        String indexName = next != null ? next.getIndexName() : previous.getIndexName();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(indexName) && subscription.offer(indexName, previous, next)) {
+                dispatcher.execute(subscription::drain);
+            }
+        }
+    }
+
+    /*
+     Members whose price or stored number of shares differs from the previous snapshot changed.
+     A divisor change rescales the effective number of shares of every member.
+     */
+    IndexEventDTO toEvent(IndexEntity previous, IndexEntity next) {
+        if (next == null) {
+            List<String> removedShares = new ArrayList<>(previous.getShareCount());
+            for (int slot = 0; slot < previous.getShareCount(); slot++) {
+                removedShares.add(previous.getShareName(slot));
+            }
+            return new IndexEventDTO(previous.getIndexName(), previous.getVersion() + 1, 0, List.of(), removedShares, true);
+        }
+        boolean divisorChanged = previous == null || previous.getDivisor() != next.getDivisor();
+        double indexValue = next.getIndexValue();
+        List<IndexMemberResponseDTO> changedMembers = new ArrayList<>();
+        for (int slot = 0; slot < next.getShareCount(); slot++) {
+            int previousSlot = divisorChanged ? -1 : previous.getSlot(next.getShareId(slot));
+            if (previousSlot < 0 || previous.getSharePrice(previousSlot) != next.getSharePrice(slot)
+                    || previous.getNumberOfShares(previousSlot) != next.getNumberOfShares(slot)) {
+                changedMembers.add(indexMapper.toMemberDto(next.getNumericMode(), next.getShareName(slot),
+                        next.getSharePrice(slot), next.getEffectiveNumberOfShares(slot), indexValue));
+            }
+        }
+        List<String> removedShares = new ArrayList<>();
+        if (previous != null) {
+            for (int slot = 0; slot < previous.getShareCount(); slot++) {
+                if (next.getSlot(previous.getShareId(slot)) < 0) {
+                    removedShares.add(previous.getShareName(slot));
+                }
+            }
+        }
+        return new IndexEventDTO(next.getIndexName(), next.getVersion(), indexValue, changedMembers, removedShares, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexService.removeListener(listener);
+        watchdog.shutdownNow();
+        dispatcher.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.sink.close();
+        }
+        subscriptions.clear();
+    }
+
+    public final class Subscription {
+
+        private final Set<String> indexNames;
+        private final Overflow overflow;
+        private final Sink sink;
+
+        // Pending changes, guarded by lock: in arrival order for DROP, one per index for CONFLATE
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Change> queue;
+        private final Map<String, Change> conflated;
+        private boolean scheduled;
+        // A send is in progress since sendStartedNanos; evicted is set by the watchdog while it is, guarded by lock
+        private volatile boolean sending;
+        private volatile long sendStartedNanos;
+        private boolean evicted;
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder conflations = new LongAdder();
+
+        private Subscription(Set<String> indexNames, Overflow overflow, Sink sink) {
+            this.indexNames = indexNames;
+            this.overflow = overflow;
+            this.sink = sink;
+            this.queue = overflow == Overflow.DROP ? new ArrayDeque<>() : null;
+            this.conflated = overflow == Overflow.CONFLATE ? new LinkedHashMap<>() : null;
+        }
+
+        private boolean accepts(String indexName) {
+            return indexNames == null || indexNames.contains(indexName);
+        }
+
+        // Buffers the change, returns true if a drain has to be scheduled
+        private boolean offer(String indexName, IndexEntity previous, IndexEntity next) {
+            lock.lock();
+            try {
+                if (overflow == Overflow.DROP) {
+                    if (queue.size() >= bufferSize) {
+                        dropped.increment();
+                        return false;
+                    }
+                    queue.add(new Change(previous, next));
+                } else {
+                    Change pending = conflated.get(indexName);
+                    if (pending != null && pending.previous() == null && next == null) {
+                        // Created and deleted again before the subscriber heard of it
+                        conflated.remove(indexName);
+                        conflations.increment();
+                    } else if (pending != null) {
+                        // Keeps the oldest previous snapshot so the event covers every change in between
+                        conflated.put(indexName, new Change(pending.previous(), next));
+                        conflations.increment();
+                    } else if (conflated.size() >= bufferSize) {
+                        dropped.increment();
+                        return false;
+                    } else {
+                        conflated.put(indexName, new Change(previous, next));
+                    }
+                }
+                if (scheduled) {
+                    return false;
+                }
+                scheduled = true;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Schedules a drain if changes are pending, for sinks whose demand went up from 0
+        public void resume() {
+            lock.lock();
+            try {
+                Collection<Change> pending = overflow == Overflow.DROP ? queue : conflated.values();
+                if (scheduled || pending.isEmpty()) {
+                    return;
+                }
+                scheduled = true;
+            } finally {
+                lock.unlock();
+            }
+            dispatcher.execute(this::drain);
+        }
+
+        private void drain() {
+            List<Change> changes = poll();
+            while (!changes.isEmpty()) {
+                for (Change change : changes) {
+                    IndexEventDTO event = toEvent(change.previous(), change.next());
+                    boolean failed = false;
+                    sendStartedNanos = System.nanoTime();
+                    sending = true;
+                    try {
+                        sink.send(event);
+                    } catch (IOException | RuntimeException e) {
+                        failed = true;
+                    }
+                    if (endSend()) {
+                        // Evicted while blocked: the pool has run on a replacement thread, give it back
+                        sink.close();
+                        resizeDispatcher(-1);
+                        return;
+                    }
+                    if (failed) {
+                        // The subscriber went away
+                        unsubscribe(this);
+                        sink.close();
+                        return;
+                    }
+                }
+                changes = poll();
+            }
+        }
+
+        // Returns true if the send that just ended was evicted
+        private boolean endSend() {
+            lock.lock();
+            try {
+                sending = false;
+                return evicted;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Evicts the subscriber if its current send started more than the send timeout before now
+        private boolean evict(long now) {
+            if (!sending) {
+                return false;
+            }
+            lock.lock();
+            try {
+                if (!sending || evicted || now - sendStartedNanos <= sendTimeoutNanos) {
+                    return false;
+                }
+                evicted = true;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /*
+         Takes as many pending changes as the sink accepts, or clears the scheduled flag if there is none or the
+         sink accepts none. The demand is read under the lock, so a resume cannot slip in before the flag is cleared.
+         */
+        private List<Change> poll() {
+            lock.lock();
+            try {
+                Collection<Change> pending = overflow == Overflow.DROP ? queue : conflated.values();
+                long demand = sink.demand();
+                if (pending.isEmpty() || demand <= 0 || evicted) {
+                    scheduled = false;
+                    return List.of();
+                }
+                if (demand >= pending.size()) {
+                    List<Change> changes = new ArrayList<>(pending);
+                    pending.clear();
+                    return changes;
+                }
+                List<Change> changes = new ArrayList<>((int) demand);
+                Iterator<Change> iterator = pending.iterator();
+                while (changes.size() < demand) {
+                    changes.add(iterator.next());
+                    iterator.remove();
+                }
+                return changes;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long getDroppedCount() {
+            return dropped.sum();
+        }
+
+        public long getConflatedCount() {
+            return conflations.sum();
+        }
+    }
+
+    private record Change(IndexEntity previous, IndexEntity next) {
+    }
+}
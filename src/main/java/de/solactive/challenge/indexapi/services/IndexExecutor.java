@@ -0,0 +1,31 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.IndexAdjustmentRequestsDTO;
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the index mutations of the controllers, selected by index.execution.mode:
+ * LOCKS (default) runs them on the request thread under the IndexService locks,
+ * SHARDED hands them to the single-threaded shard owning the index.
+ * The futures complete with the result of the IndexService method, or exceptionally with its exception.
+ */
+public interface IndexExecutor {
+
+    CompletableFuture<Boolean> createIndex(IndexDTO indexDTO);
+
+    CompletableFuture<Boolean> addShareToIndex(ShareAdditionDTO shareAdditionDTO);
+
+    CompletableFuture<Void> deleteShareFromIndex(ShareDeletionDTO shareDeletionDTO);
+
+    CompletableFuture<Boolean> deleteIndex(String indexName);
+
+    CompletableFuture<Void> applyDividend(ShareDividendDTO shareDividendDTO);
+
+    CompletableFuture<List<AdjustmentResult>> applyAdjustments(List<IndexAdjustmentRequestsDTO> operations, boolean allOrNothing);
+}
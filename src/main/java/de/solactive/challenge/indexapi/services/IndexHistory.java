@@ -0,0 +1,249 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Intraday history of the index values for GET /api/indexHistory.
+ * Every published snapshot appends (timestamp, value, version) to the ring of its index: parallel primitive
+ * arrays that grow up to the configured number of points per index and then overwrite the oldest point,
+ * so one index never holds more than 24 bytes per point. Deleting an index drops its history.
+ * Queries copy the points of the time range out of the ring and write them, or their OHLC per bucket,
+ * straight to JSON without boxing. The history is not journaled and starts empty after a restart.
+ */
+@Service
+public class IndexHistory {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final IndexService indexService;
+    private final ObjectMapper objectMapper;
+    private final int pointsPerIndex;
+    private final LongSupplier clock;
+
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IndexHistory(IndexService indexService, ObjectMapper objectMapper,
+                        @Value("${index.history.enabled:true}") boolean enabled,
+                        @Value("${index.history.points-per-index:1024}") int pointsPerIndex) {
+        this(indexService, objectMapper, enabled ? pointsPerIndex : 0, System::currentTimeMillis);
+    }
+
+    IndexHistory(IndexService indexService, ObjectMapper objectMapper, int pointsPerIndex, LongSupplier clock) {
+        this.indexService = indexService;
+        this.objectMapper = objectMapper;
+        this.pointsPerIndex = pointsPerIndex;
+        this.clock = clock;
+        if (pointsPerIndex > 0) {
+            indexService.addListener(this::record);
+        }
+    }
+
+    // Called under the index lock, so the points of one index are appended in version order
+    private void record(IndexEntity previous, IndexEntity next) {
+        if (next == null) {
+            rings.remove(previous.getIndexName());
+            return;
+        }
+        // A created index starts a new ring, an index that existed before the history was attached gets one too
+        Ring ring = previous != null ? rings.get(next.getIndexName()) : null;
+        if (ring == null) {
+            ring = new Ring(pointsPerIndex);
+            rings.put(next.getIndexName(), ring);
+        }
+        ring.add(clock.getAsLong(), next.getIndexValue(), next.getVersion());
+    }
+
+    /**
+     * Serialized points of the index between from and to (inclusive, epoch milliseconds):
+     * {"indexName":"...","points":[{"timestamp":...,"value":...,"version":...},...]}.
+     * With an interval the points are downsampled to one OHLC bucket per interval that holds points, buckets
+     * start at multiples of the interval since the epoch:
+     * {"indexName":"...","interval":...,"buckets":[{"start":...,"open":...,"high":...,"low":...,"close":...,"count":...},...]}.
+     *
+     * @param interval bucket width in milliseconds, or 0 for the raw points
+     * @return null if the index does not exist
+     * @throws IllegalArgumentException if from is after to or the interval is negative
+     */
+    public byte[] getHistory(String indexName, long from, long to, long interval) {
+        if (from > to || interval < 0) {
+            throw new IllegalArgumentException("Invalid history range or interval");
+        }
+        if (indexService.getIndex(indexName) == null) {
+            return null;
+        }
+        Ring ring = rings.get(indexName);
+        Points points = ring != null ? ring.range(from, to) : Points.EMPTY;
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream(64 + points.count * (interval > 0 ? 96 : 64));
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeStringField("indexName", indexName);
+            if (interval > 0) {
+                json.writeNumberField("interval", interval);
+                json.writeArrayFieldStart("buckets");
+                writeBuckets(json, points, interval);
+            } else {
+                json.writeArrayFieldStart("points");
+                writePoints(json, points);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize index history", e);
+        }
+        return response.toByteArray();
+    }
+
+    // Points recorded for the index, 0 if it has no history
+    public int getPointCount(String indexName) {
+        Ring ring = rings.get(indexName);
+        if (ring == null) {
+            return 0;
+        }
+        synchronized (ring) {
+            return ring.size;
+        }
+    }
+
+    private static void writePoints(JsonGenerator json, Points points) throws IOException {
+        for (int i = 0; i < points.count; i++) {
+            json.writeStartObject();
+            json.writeNumberField("timestamp", points.timestamps[i]);
+            json.writeNumberField("value", points.values[i]);
+            json.writeNumberField("version", points.versions[i]);
+            json.writeEndObject();
+        }
+    }
+
+    private static void writeBuckets(JsonGenerator json, Points points, long interval) throws IOException {
+        int i = 0;
+        while (i < points.count) {
+            long start = Math.floorDiv(points.timestamps[i], interval) * interval;
+            long end = start + interval;
+            double open = points.values[i];
+            double high = open;
+            double low = open;
+            int first = i;
+            while (i < points.count && points.timestamps[i] < end) {
+                high = Math.max(high, points.values[i]);
+                low = Math.min(low, points.values[i]);
+                i++;
+            }
+            json.writeStartObject();
+            json.writeNumberField("start", start);
+            json.writeNumberField("open", open);
+            json.writeNumberField("high", high);
+            json.writeNumberField("low", low);
+            json.writeNumberField("close", points.values[i - 1]);
+            json.writeNumberField("count", i - first);
+            json.writeEndObject();
+        }
+    }
+
+    // Points of one range, copied out of a ring in timestamp order
+    private record Points(long[] timestamps, double[] values, long[] versions, int count) {
+        static final Points EMPTY = new Points(new long[0], new double[0], new long[0], 0);
+    }
+
+    /*
+     Points of one index, oldest at head. The arrays start small and double up to the capacity, after that
+     each point replaces the oldest. Timestamps never decrease, a clock going backwards repeats the last one,
+     so ranges can be found by binary search. Guarded by its own monitor: the writer holds the index lock
+     already, readers only block the writer of this index while they copy their range.
+     */
+    private static final class Ring {
+
+        private final int capacity;
+        private long[] timestamps;
+        private double[] values;
+        private long[] versions;
+        private int head;
+        private int size;
+
+        Ring(int capacity) {
+            this.capacity = capacity;
+            int initial = Math.min(capacity, INITIAL_CAPACITY);
+            this.timestamps = new long[initial];
+            this.values = new double[initial];
+            this.versions = new long[initial];
+        }
+
+        synchronized void add(long timestamp, double value, long version) {
+            if (size > 0) {
+                timestamp = Math.max(timestamp, timestamps[physical(size - 1)]);
+            }
+            if (size == timestamps.length && size < capacity) {
+                grow();
+            }
+            int slot;
+            if (size < timestamps.length) {
+                slot = physical(size++);
+            } else {
+                slot = head;
+                head = physical(1);
+            }
+            timestamps[slot] = timestamp;
+            values[slot] = value;
+            versions[slot] = version;
+        }
+
+        synchronized Points range(long from, long to) {
+            int first = firstAtOrAfter(from);
+            int end = to == Long.MAX_VALUE ? size : firstAtOrAfter(to + 1);
+            int count = Math.max(end - first, 0);
+            Points points = new Points(new long[count], new double[count], new long[count], count);
+            int start = physical(first);
+            int upToWrap = Math.min(count, timestamps.length - start);
+            System.arraycopy(timestamps, start, points.timestamps, 0, upToWrap);
+            System.arraycopy(values, start, points.values, 0, upToWrap);
+            System.arraycopy(versions, start, points.versions, 0, upToWrap);
+            System.arraycopy(timestamps, 0, points.timestamps, upToWrap, count - upToWrap);
+            System.arraycopy(values, 0, points.values, upToWrap, count - upToWrap);
+            System.arraycopy(versions, 0, points.versions, upToWrap, count - upToWrap);
+            return points;
+        }
+
+        // Logical position of the first point at or after the timestamp, size if there is none
+        private int firstAtOrAfter(long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[physical(mid)] < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int physical(int position) {
+            int slot = head + position;
+            return slot < timestamps.length ? slot : slot - timestamps.length;
+        }
+
+        // Only called while the ring has not wrapped, head is still 0
+        private void grow() {
+            int length = (int) Math.min((long) timestamps.length * 2, capacity);
+            timestamps = Arrays.copyOf(timestamps, length);
+            values = Arrays.copyOf(values, length);
+            versions = Arrays.copyOf(versions, length);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Micrometer meters of IndexService:
+ * <ul>
+ *   <li>index.operation: duration per operation and outcome, the outcome being the HTTP status the API answers with</li>
+ *   <li>index.lock.wait / index.lock.hold: time spent waiting for the index locks of an operation, and holding them</li>
+ *   <li>index.dividend.fanout: indices touched per dividend</li>
+ *   <li>index.count, index.members, index.lock.stripes, index.lock.stripes.held, index.members.offheap: gauges read
+ *   at scrape time</li>
+ * </ul>
+ * Meters are looked up once and kept, so recording costs no registry lookup on the hot path.
+ * With RequestTimings, operation and lock wait times are also attributed to the RequestTiming of the current
+ * request, if any.
+ */
+class IndexMetrics {
+
+    enum Operation {
+        CREATE_INDEX, ADD_SHARE, DELETE_SHARE, DELETE_INDEX, DIVIDEND, BATCH, PRICE_UPDATE, SNAPSHOT;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    static final String OK = "200";
+    static final String CREATED = "201";
+    static final String ACCEPTED = "202";
+    static final String BAD_REQUEST = "400";
+    static final String NOT_FOUND = "404";
+    static final String CONFLICT = "409";
+    private static final String[] OUTCOMES = {OK, CREATED, ACCEPTED, BAD_REQUEST, "401", NOT_FOUND, "405", CONFLICT, "500"};
+
+    // Without a registry (tests, benchmarks) every meter is a no-op
+    static IndexMetrics none() {
+        return new IndexMetrics(new CompositeMeterRegistry());
+    }
+
+    private final MeterRegistry registry;
+    // null if requests are not timed
+    private final RequestTimings requestTimings;
+    // [operation * OUTCOMES.length + outcome], created on first use so only outcomes that occur are exported
+    private final AtomicReferenceArray<Timer> operationTimers;
+    private final Timer[] lockWaitTimers;
+    private final Timer[] lockHoldTimers;
+    private final DistributionSummary dividendFanout;
+
+    IndexMetrics(MeterRegistry registry) {
+        this(registry, null);
+    }
+
+    IndexMetrics(MeterRegistry registry, RequestTimings requestTimings) {
+        this.registry = registry;
+        this.requestTimings = requestTimings;
+        Operation[] operations = Operation.values();
+        this.operationTimers = new AtomicReferenceArray<>(operations.length * OUTCOMES.length);
+        this.lockWaitTimers = new Timer[operations.length];
+        this.lockHoldTimers = new Timer[operations.length];
+        for (Operation operation : operations) {
+            lockWaitTimers[operation.ordinal()] = Timer.builder("index.lock.wait")
+                    .description("Time spent waiting for the index locks of an operation")
+                    .tag("operation", operation.tag)
+                    .register(registry);
+            lockHoldTimers[operation.ordinal()] = Timer.builder("index.lock.hold")
+                    .description("Time the index locks of an operation are held")
+                    .tag("operation", operation.tag)
+                    .register(registry);
+        }
+        this.dividendFanout = DistributionSummary.builder("index.dividend.fanout")
+                .description("Indices touched by a dividend")
+                .baseUnit("indices")
+                .register(registry);
+    }
+
+    void registerGauges(IndexService indexService) {
+        Gauge.builder("index.count", indexService, IndexService::getIndexCount)
+                .description("Indices in memory")
+                .register(registry);
+        Gauge.builder("index.members", indexService, IndexService::getTotalMemberCount)
+                .description("Members over all indices")
+                .register(registry);
+        Gauge.builder("index.lock.stripes", indexService, IndexService::getLockStripeCount)
+                .description("Lock stripes the index names are spread over")
+                .register(registry);
+        Gauge.builder("index.lock.stripes.held", indexService, IndexService::getHeldLockStripeCount)
+                .description("Lock stripes held at the time of the scrape")
+                .register(registry);
+        Gauge.builder("index.members.offheap", MemberStorage::getOffHeapBytes)
+                .description("Direct memory held by the member columns of the OFF_HEAP storage")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    void recordOperation(Operation operation, String outcome, long startNanos) {
+        long endNanos = System.nanoTime();
+        operationTimer(operation, outcome).record(endNanos - startNanos, TimeUnit.NANOSECONDS);
+        RequestTiming timing = requestTimings != null ? requestTimings.current() : null;
+        if (timing != null) {
+            timing.serviceCompleted(startNanos, endNanos);
+        }
+    }
+
+    void recordFailure(Operation operation, RuntimeException failure, long startNanos) {
+        recordOperation(operation, outcomeOf(operation, failure), startNanos);
+    }
+
+    void recordLockWait(Operation operation, long nanos) {
+        lockWaitTimers[operation.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        RequestTiming timing = requestTimings != null ? requestTimings.current() : null;
+        if (timing != null) {
+            timing.lockWaited(nanos);
+        }
+    }
+
+    void recordLockHold(Operation operation, long nanos) {
+        lockHoldTimers[operation.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordDividendFanout(int indices) {
+        dividendFanout.record(indices);
+    }
+
+    // Same mapping as IndexRequestHandler: invalid values are a 400 on creation, a 401 on adjustments
+    static String outcomeOf(Operation operation, RuntimeException failure) {
+        if (failure instanceof IllegalArgumentException) {
+            return operation == Operation.CREATE_INDEX ? BAD_REQUEST : "401";
+        } else if (failure instanceof NoSuchElementException) {
+            return NOT_FOUND;
+        } else if (failure instanceof IllegalStateException) {
+            return "405";
+        }
+        return "500";
+    }
+
+    private Timer operationTimer(Operation operation, String outcome) {
+        int slot = operation.ordinal() * OUTCOMES.length + outcomeIndex(outcome);
+        Timer timer = operationTimers.get(slot);
+        if (timer == null) {
+            // The registry returns the same timer to racing threads
+            timer = Timer.builder("index.operation")
+                    .description("Duration of index operations by outcome")
+                    .tag("operation", operation.tag)
+                    .tag("outcome", outcome)
+                    .register(registry);
+            operationTimers.set(slot, timer);
+        }
+        return timer;
+    }
+
+    private static int outcomeIndex(String outcome) {
+        for (int i = 0; i < OUTCOMES.length; i++) {
+            if (OUTCOMES[i].equals(outcome)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown outcome " + outcome);
+    }
+}
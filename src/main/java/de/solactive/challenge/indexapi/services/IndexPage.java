@@ -0,0 +1,14 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+
+import java.util.List;
+
+/**
+ * One page of indices in index name order.
+ *
+ * @param indices       the snapshots on this page
+ * @param lastIndexName name to continue after, or null if this is the last page
+ */
+public record IndexPage(List<IndexEntity> indices, String lastIndexName) {
+}
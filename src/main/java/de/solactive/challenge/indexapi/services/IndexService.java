@@ -3,27 +3,215 @@ package de.solactive.challenge.indexapi.services;
 
 import de.solactive.challenge.indexapi.dto.*;
 import de.solactive.challenge.indexapi.entities.*;
+import de.solactive.challenge.indexapi.journal.IndexJournal;
+import de.solactive.challenge.indexapi.journal.IndexSnapshot;
+import de.solactive.challenge.indexapi.journal.IndexSnapshotStore;
+import de.solactive.challenge.indexapi.journal.JournalRecord;
 import de.solactive.challenge.indexapi.mappers.IndexMapper;
+import de.solactive.challenge.indexapi.services.IndexMetrics.Operation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class IndexService {
 
+    private static final Logger log = LoggerFactory.getLogger(IndexService.class);
+
+    static final int DEFAULT_LOCK_STRIPES = 1024;
+
     private final Map<String, IndexEntity> indexMap = new ConcurrentHashMap<>();
-    private final Map<String,ReentrantLock> lockMap = new ConcurrentHashMap<>();
+    /*
+     Fixed array of index locks, an index name is mapped to a stripe by its hash. Lock memory does not grow
+     with the number of index names ever seen; indices sharing a stripe only serialize their writers.
+     Multi-index operations lock their distinct stripes in ascending order, which keeps them deadlock-free.
+     */
+    private final ReentrantLock[] lockStripes;
+    // Reverse membership index: share name -> names of the indices holding that share
+    private final Map<String, Set<String>> shareIndexMap = new ConcurrentHashMap<>();
+    /*
+     The one price of every share, which the snapshots of all indices holding it read. A share is locked on the
+     stripe of its name: the price of a share only changes while its lock and the locks of all its holders are held,
+     and the holders are republished with the new book version before they are unlocked. A holder is only added
+     while the share is locked, so no index reads a price that differs from the book for a share it holds.
+     */
+    private final AtomicReference<PriceBook> prices = new AtomicReference<>(PriceBook.EMPTY);
+    // Share names of this service interned to instrument IDs, passed to every snapshot it builds or restores
+    private final InstrumentMaster instruments = new InstrumentMaster();
+    // Names of all indices in order, for paging through indexMap without sorting it. A name is added before
+    // the creation of its index is journaled, captureSnapshot relies on that
+    private final NavigableSet<String> indexNames = new ConcurrentSkipListSet<>();
     private final IndexMapper indexMapper;
+    // Successful mutations are appended while the index lock is held, before the new snapshot is published
+    private final IndexJournal journal;
+    private final List<IndexChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Set on shard threads of ShardedIndexExecutor: holds the sequence number to wait for instead of blocking
+    private final ThreadLocal<long[]> deferredDurableLsn = new ThreadLocal<>();
+    private final IndexMetrics metrics;
+    // Storage of the member columns and arithmetic of the indices created or restored by this service
+    private final MemberStorage storage;
+    private final NumericMode numericMode;
 
     public IndexService(IndexMapper indexMapper) {
+        this(indexMapper, IndexJournal.NONE);
+    }
+
+    public IndexService(IndexMapper indexMapper, MemberStorage storage, NumericMode numericMode) {
+        this(indexMapper, IndexJournal.NONE, null, DEFAULT_LOCK_STRIPES, IndexMetrics.none(), storage, numericMode);
+    }
+
+    @Autowired
+    public IndexService(IndexMapper indexMapper, ObjectProvider<IndexJournal> journal,
+                        ObjectProvider<IndexSnapshotStore> snapshotStore, ObjectProvider<MeterRegistry> meterRegistry,
+                        ObjectProvider<RequestTimings> requestTimings,
+                        @Value("${index.lock-stripes:" + DEFAULT_LOCK_STRIPES + "}") int lockStripes,
+                        @Value("${index.storage:HEAP}") MemberStorage storage,
+                        @Value("${index.storage.off-heap-max-bytes:" + Long.MAX_VALUE + "}") long offHeapMaxBytes,
+                        @Value("${index.numeric-mode:DOUBLE}") NumericMode numericMode) {
+        this(indexMapper, journal.getIfAvailable(() -> IndexJournal.NONE), snapshotStore.getIfAvailable(), lockStripes,
+                new IndexMetrics(meterRegistry.getIfAvailable(CompositeMeterRegistry::new), requestTimings.getIfAvailable()),
+                storage.withOffHeapLimit(offHeapMaxBytes), numericMode);
+    }
+
+    public IndexService(IndexMapper indexMapper, IndexJournal journal) {
+        this(indexMapper, journal, null);
+    }
+
+    public IndexService(IndexMapper indexMapper, IndexJournal journal, IndexSnapshotStore snapshotStore) {
+        this(indexMapper, journal, snapshotStore, DEFAULT_LOCK_STRIPES);
+    }
+
+    IndexService(IndexMapper indexMapper, IndexJournal journal, IndexSnapshotStore snapshotStore, int lockStripes) {
+        this(indexMapper, journal, snapshotStore, lockStripes, IndexMetrics.none());
+    }
+
+    IndexService(IndexMapper indexMapper, IndexJournal journal, IndexSnapshotStore snapshotStore, int lockStripes,
+                 IndexMetrics metrics) {
+        this(indexMapper, journal, snapshotStore, lockStripes, metrics, MemberStorage.HEAP);
+    }
+
+    IndexService(IndexMapper indexMapper, IndexJournal journal, IndexSnapshotStore snapshotStore, int lockStripes,
+                 IndexMetrics metrics, MemberStorage storage) {
+        this(indexMapper, journal, snapshotStore, lockStripes, metrics, storage, NumericMode.DOUBLE);
+    }
+
+    // Rebuilds the indices from the latest snapshot and the journal tail, in the given storage and numeric mode,
+    // before the service is used
+    IndexService(IndexMapper indexMapper, IndexJournal journal, IndexSnapshotStore snapshotStore, int lockStripes,
+                 IndexMetrics metrics, MemberStorage storage, NumericMode numericMode) {
         this.indexMapper = indexMapper;
+        this.storage = storage;
+        this.numericMode = numericMode;
+        this.journal = journal;
+        this.metrics = metrics;
+        // Power of two so a stripe is selected with a mask
+        this.lockStripes = new ReentrantLock[lockStripes <= 1 ? 1 : Integer.highestOneBit(lockStripes - 1) << 1];
+        for (int i = 0; i < this.lockStripes.length; i++) {
+            this.lockStripes[i] = new ReentrantLock();
+        }
+        recover(snapshotStore);
+        metrics.registerGauges(this);
+    }
+
+    private void recover(IndexSnapshotStore snapshotStore) {
+        long start = System.nanoTime();
+        IndexSnapshot snapshot = snapshotStore != null ? snapshotStore.loadLatest(storage, instruments) : null;
+        long baseLsn = 0;
+        Map<String, Long> indexLsns = new HashMap<>();
+        if (snapshot != null) {
+            baseLsn = snapshot.baseLsn();
+            if (!snapshot.indices().isEmpty()) {
+                prices.set(snapshot.indices().get(snapshot.indices().size() - 1).index().getPrices());
+            }
+            // The holders are collected in plain lists first so every holder set is created at its final size;
+            // nothing else can access the service yet
+            Map<String, List<String>> holders = new HashMap<>();
+            for (IndexSnapshot.Entry entry : snapshot.indices()) {
+                IndexEntity indexEntity = entry.index();
+                indexMap.put(indexEntity.getIndexName(), indexEntity);
+                indexNames.add(indexEntity.getIndexName());
+                indexLsns.put(indexEntity.getIndexName(), entry.lsn());
+                for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+                    holders.computeIfAbsent(indexEntity.getShareName(slot), k -> new ArrayList<>()).add(indexEntity.getIndexName());
+                }
+            }
+            for (Map.Entry<String, List<String>> shareHolders : holders.entrySet()) {
+                Set<String> holderNames = ConcurrentHashMap.newKeySet(shareHolders.getValue().size());
+                holderNames.addAll(shareHolders.getValue());
+                shareIndexMap.put(shareHolders.getKey(), holderNames);
+            }
+        }
+        long snapshotNanos = System.nanoTime() - start;
+
+        // Records of an index captured after baseLsn are already contained in its snapshot
+        long[] replayed = new long[1];
+        journal.replay(baseLsn, (lsn, record) -> {
+            if (lsn > indexLsns.getOrDefault(record.indexName(), 0L)) {
+                applyJournalRecord(record);
+                replayed[0]++;
+            }
+        });
+
+        sharePrices();
+
+        if (snapshot != null || replayed[0] > 0) {
+            log.info("Recovered {} indices in {} ms: snapshot at lsn {} loaded in {} ms, {} journal records replayed",
+                    indexMap.size(), (System.nanoTime() - start) / 1_000_000, baseLsn, snapshotNanos / 1_000_000, replayed[0]);
+        }
+    }
+
+    /**
+     * Captures every index with the journal sequence number its snapshot corresponds to. Each index lock
+     * is held only while its current snapshot and the journal position are read, so writers are not blocked
+     * for the duration of the capture.
+     */
+    public IndexSnapshot captureSnapshot() {
+        // Read before iterating: an index missing from the iteration was created after this point
+        long baseLsn = journal.getLastLsn();
+        List<IndexSnapshot.Entry> indices = new ArrayList<>(indexMap.size());
+        for (String indexName : indexNames) {
+            ReentrantLock lock = lockFor(indexName);
+            long locked = lock(lock, Operation.SNAPSHOT);
+            try {
+                IndexEntity indexEntity = indexMap.get(indexName);
+                if (indexEntity != null) {
+                    // No record of this index can be pending while its lock is held
+                    indices.add(new IndexSnapshot.Entry(journal.getLastLsn(), indexEntity));
+                }
+            } finally {
+                unlock(lock, Operation.SNAPSHOT, locked);
+            }
+        }
+        return new IndexSnapshot(baseLsn, indices);
     }
 
     // for IndexServiceTest only
@@ -33,69 +221,109 @@ public class IndexService {
 
     // Create Index
     public boolean createIndex(IndexDTO indexDTO) {
+        return timed(Operation.CREATE_INDEX, () -> createIndexInternal(indexDTO),
+                isCreated -> isCreated ? IndexMetrics.CREATED : IndexMetrics.CONFLICT);
+    }
+
+    private boolean createIndexInternal(IndexDTO indexDTO) {
 
         String indexName = indexDTO.getIndexName();
+        // The members as requested, so replay rounds them exactly like this creation
+        Map<String, ShareEntity> members = indexMapper.convertIndexMembers2shares(indexDTO.getIndexMembers());
 
-        // Locking for Index Creation
-        ReentrantLock lock = lockMap.computeIfAbsent(indexName, k -> new ReentrantLock());
-        lock.lock();
-        try{
+        // Locking for Index Creation, with its shares so their prices and holders do not change meanwhile
+        long lsn;
+        HeldLocks heldLocks = lockInOrder(lockedNames(List.of(indexName), members.keySet(), List.of()), Operation.CREATE_INDEX);
+        try {
             if (indexMap.containsKey(indexName)) {
-            return false; // Index already exists
-        }
+                return false; // Index already exists
+            }
 
-        IndexEntity indexEntity = indexMapper.toEntity(indexDTO);
-        indexMap.put(indexName, indexEntity);
-        return true;
-    } finally {
-            lock.unlock(); // Making sure no persistant lock in case something goes wrong
+            PriceBook currentPrices = prices.get();
+            List<ShareEntity> pricedMembers = new ArrayList<>();
+            for (ShareEntity member : members.values()) {
+                if (!hasSharePrice(currentPrices, member.getShareName(), member.getSharePrice())) {
+                    pricedMembers.add(member);
+                }
+            }
+            PriceBook nextPrices = currentPrices.withPrices(pricedMembers, instruments);
+            IndexEntity indexEntity = new IndexEntity(indexName, members, storage, numericMode, instruments, nextPrices);
+
+            indexNames.add(indexName);
+            try {
+                lsn = journal.append(new JournalRecord.CreateIndex(indexName, indexEntity.getNumericMode(),
+                        List.copyOf(members.values())));
+            } catch (RuntimeException e) {
+                indexNames.remove(indexName);
+                throw e;
+            }
+            storeIndex(indexEntity);
+            publishPrices(currentPrices, nextPrices, shareIdsOf(pricedMembers.stream().map(ShareEntity::getShareName).toList()));
+        } finally {
+            unlockAll(heldLocks, Operation.CREATE_INDEX); // Making sure no persistant lock in case something goes wrong
         }
+        awaitDurable(lsn);
+        return true;
     }
 
     public boolean addShareToIndex(ShareAdditionDTO shareAdditionDTO) {
+        return timed(Operation.ADD_SHARE, () -> addShareToIndexInternal(shareAdditionDTO),
+                isAdded -> isAdded ? IndexMetrics.CREATED : IndexMetrics.ACCEPTED);
+    }
 
-        // Locking for Share Addition
-        ReentrantLock lock = lockMap.computeIfAbsent(shareAdditionDTO.getIndexName(), k -> new ReentrantLock());
-        lock.lock();
+    private boolean addShareToIndexInternal(ShareAdditionDTO shareAdditionDTO) {
+
+        String indexName = shareAdditionDTO.getIndexName();
+        String shareName = shareAdditionDTO.getShareName();
+        // Locking for Share Addition, with the share so its price and holders do not change meanwhile
+        long lsn;
+        HeldLocks heldLocks = lockInOrder(lockedNames(List.of(indexName), List.of(shareName), List.of()), Operation.ADD_SHARE);
         try {
-            IndexEntity indexEntity = indexMap.get(shareAdditionDTO.getIndexName());
+            IndexEntity indexEntity = indexMap.get(indexName);
             // validation
             if (indexEntity == null) {
                 throw new NoSuchElementException("Index does not exist"); //404
             }
-            if (indexEntity.getShares().containsKey(shareAdditionDTO.getShareName())) {
+            if (indexEntity.getSlot(shareName) >= 0) {
                 //throw new IllegalArgumentException("Share already exist");
                 return false;
             }
 
-          /* Logic to add Share
-            1. Total Index Value = Get Current Index value + New Share Price * new number of shares
-            2. The number of share of each share is then readjusted as
-                NumOfShare * Current Index Value / Total Index Value
-         */
-
-            double currentIndexValue = calculateTotalIndexValue(indexEntity);
-            double extraShareValue = shareAdditionDTO.getSharePrice() * shareAdditionDTO.getNumberOfShares();
-
-            indexEntity.getShares().put(shareAdditionDTO.getShareName(),
-                    new ShareEntity(shareAdditionDTO.getShareName(), shareAdditionDTO.getSharePrice(), shareAdditionDTO.getNumberOfShares()));
+            PriceBook currentPrices = prices.get();
+            boolean priced = !hasSharePrice(currentPrices, shareName, shareAdditionDTO.getSharePrice());
+            int shareId = instruments.intern(shareName);
+            PriceBook nextPrices = priced ? currentPrices.withPrice(shareId, shareAdditionDTO.getSharePrice()) : currentPrices;
+            IndexEntity nextIndexEntity = indexEntity.withAddition(nextPrices, shareName, shareAdditionDTO.getNumberOfShares());
 
-            for (ShareEntity shareEntity : indexEntity.getShares().values()) {
-                shareEntity.setNumberOfShares(
-                        shareEntity.getNumberOfShares() * currentIndexValue / (currentIndexValue + extraShareValue));
+            // Journal, then publish the next snapshot
+            lsn = journal.append(new JournalRecord.AddShare(indexName, shareName,
+                    shareAdditionDTO.getSharePrice(), shareAdditionDTO.getNumberOfShares()));
+            publish(indexEntity, nextIndexEntity);
+            addMembership(shareName, indexName);
+            if (priced) {
+                publishPrices(currentPrices, nextPrices, shareId);
             }
-            // Share added successfully
-            return true;
         } finally {
-            lock.unlock();
+            unlockAll(heldLocks, Operation.ADD_SHARE);
         }
+        // Share added successfully
+        awaitDurable(lsn);
+        return true;
     }
 
     public void deleteShareFromIndex(ShareDeletionDTO shareDeletionDTO) {
+        timed(Operation.DELETE_SHARE, () -> {
+            deleteShareFromIndexInternal(shareDeletionDTO);
+            return null;
+        }, result -> IndexMetrics.OK);
+    }
+
+    private void deleteShareFromIndexInternal(ShareDeletionDTO shareDeletionDTO) {
 
         // Locking for Share Deletion
-        ReentrantLock lock = lockMap.computeIfAbsent(shareDeletionDTO.getIndexName(), k -> new ReentrantLock());
-        lock.lock();
+        ReentrantLock lock = lockFor(shareDeletionDTO.getIndexName());
+        long lsn;
+        long locked = lock(lock, Operation.DELETE_SHARE);
         try {
 
             IndexEntity indexEntity = indexMap.get(shareDeletionDTO.getIndexName());
@@ -103,33 +331,54 @@ public class IndexService {
                 throw new NoSuchElementException("Index not found: " + shareDeletionDTO.getIndexName());
             }
 
-            if (indexEntity.getShares().size() < 3) {
-                throw new IllegalStateException("Index must have at least 3 members before deletion");
-            }
-
-            ShareEntity shareToDelete = indexEntity.getShares().get(shareDeletionDTO.getShareName());
-
-            if (shareToDelete == null) {
-                throw new IllegalArgumentException("Share not found in the index: " + shareDeletionDTO.getShareName());
-            }
-
-            double currentIndexValue = calculateTotalIndexValue(indexEntity);
-            double removedShareValue = shareToDelete.getSharePrice() * shareToDelete.getNumberOfShares();
+            IndexEntity nextIndexEntity = deleteShare(indexEntity, shareDeletionDTO.getShareName());
+            lsn = journal.append(new JournalRecord.DeleteShare(indexEntity.getIndexName(), shareDeletionDTO.getShareName()));
+            publish(indexEntity, nextIndexEntity);
+            removeMembership(shareDeletionDTO.getShareName(), indexEntity.getIndexName());
+        } finally {
+            unlock(lock, Operation.DELETE_SHARE, locked);
+        }
+        awaitDurable(lsn);
 
-            indexEntity.getShares().remove(shareToDelete.getShareName());
+    }
 
-            // Adjust remaining shares proportionally to maintain the index value
-            for (ShareEntity share : indexEntity.getShares().values()) {
+    /**
+     * Removes an index with its memberships. Its name can be used for a new index right away,
+     * the new index starts again at version 1.
+     *
+     * @return false if the index does not exist
+     */
+    public boolean deleteIndex(String indexName) {
+        return timed(Operation.DELETE_INDEX, () -> deleteIndexInternal(indexName),
+                isDeleted -> isDeleted ? IndexMetrics.OK : IndexMetrics.NOT_FOUND);
+    }
 
-                share.setNumberOfShares(
-                        share.getNumberOfShares() * currentIndexValue / (currentIndexValue - removedShareValue));
+    private boolean deleteIndexInternal(String indexName) {
+        ReentrantLock lock = lockFor(indexName);
+        long lsn;
+        long locked = lock(lock, Operation.DELETE_INDEX);
+        try {
+            IndexEntity indexEntity = indexMap.get(indexName);
+            if (indexEntity == null) {
+                return false;
             }
+            lsn = journal.append(new JournalRecord.DeleteIndex(indexName));
+            unregisterIndex(indexEntity);
         } finally {
-            lock.unlock();
+            unlock(lock, Operation.DELETE_INDEX, locked);
         }
-
+        awaitDurable(lsn);
+        return true;
     }
+
     public void applyDividend(ShareDividendDTO shareDividendDTO) {
+        timed(Operation.DIVIDEND, () -> {
+            applyDividendInternal(shareDividendDTO);
+            return null;
+        }, result -> IndexMetrics.OK);
+    }
+
+    private void applyDividendInternal(ShareDividendDTO shareDividendDTO) {
 
         double curDividend = shareDividendDTO.getDividend();
        // Dividend Validation (1)
@@ -138,62 +387,846 @@ public class IndexService {
         }
 
         // Locking for Dividend Adjustment after obvious validation above that doesn't need locking
+        // Only the indices holding the share are locked, looked up through the reverse membership index,
+        // with the share itself so its price and holders do not change
+
+        String shareName = shareDividendDTO.getShareName();
+        while (true) {
+            List<String> sortedIndexNames = getIndicesHoldingShare(shareName);
+            if (sortedIndexNames.isEmpty()) {
+                throw new IllegalArgumentException("Share not found in any index: " + shareName);
+            }
+
+            long lsn = 0;
+            HeldLocks heldLocks = lockInOrder(lockedNames(sortedIndexNames, List.of(shareName), Set.of()), Operation.DIVIDEND);
+            try {
+                // The share may have been added to another index before the locks were taken, start over in that case
+                if (!sortedIndexNames.equals(getIndicesHoldingShare(shareName))) {
+                    continue;
+                }
+
+                List<IndexEntity> holders = new ArrayList<>(sortedIndexNames.size());
+                for (String indexName : sortedIndexNames) {
+                    holders.add(indexMap.get(indexName));
+                }
+                validateDividend(holders, shareName, curDividend);
+
+                // Dividend Operation, journaled per index before the snapshots are published
+                PriceBook currentPrices = prices.get();
+                int shareId = instruments.intern(shareName);
+                PriceBook nextPrices = currentPrices.withDividend(shareId, curDividend);
+                List<IndexEntity> nextHolders = new ArrayList<>(holders.size());
+                for (IndexEntity indexEntity : holders) {   // For each Index holding the share
+                    nextHolders.add(payDividend(indexEntity, nextPrices, shareName, curDividend));
+                }
+                for (IndexEntity indexEntity : holders) {
+                    lsn = journal.append(new JournalRecord.Dividend(indexEntity.getIndexName(), shareName, curDividend));
+                }
+                for (int i = 0; i < holders.size(); i++) {
+                    publish(holders.get(i), nextHolders.get(i));
+                }
+                publishPrices(currentPrices, nextPrices, shareId);
+                metrics.recordDividendFanout(holders.size());
+            } finally {
+                unlockAll(heldLocks, Operation.DIVIDEND);
+            }
+            awaitDurable(lsn);
+            return;
+        }
+    }
+
+    /**
+     * Sets the market price of shares, once for all indices holding them. Unlike a dividend the divisor
+     * is left unchanged, so the index value follows the price. The shares are locked with all their holders,
+     * so every holder moves to the new prices at once; each repriced index gets one new snapshot carrying all of
+     * its new prices. Shares held by no index and prices that are already set are ignored.
+     * A price an index holding the share cannot represent (out of the FIXED_POINT range) is applied to none of
+     * them and reported for each, the other prices are still applied. If the update cannot be journaled, no price
+     * is applied and every index it would have changed is reported.
+     *
+     * @param sharePrices latest price per share name
+     * @return the prices that were not applied, empty if all were
+     */
+    public List<PriceUpdateFailure> applyPriceUpdates(Map<String, Double> sharePrices) {
+        return timed(Operation.PRICE_UPDATE, () -> applyPriceUpdatesInternal(sharePrices), result -> IndexMetrics.OK);
+    }
+
+    private List<PriceUpdateFailure> applyPriceUpdatesInternal(Map<String, Double> sharePrices) {
 
-        List<String> sortedIndexNames = indexMap.keySet().stream().sorted().toList();
-        List<ReentrantLock> acquiredLocks = new ArrayList<>();
+        while (true) {
+            // Only the prices that change a share held by some index
+            PriceBook observedPrices = prices.get();
+            Map<String, Double> changedPrices = new HashMap<>();
+            for (Map.Entry<String, Double> sharePrice : sharePrices.entrySet()) {
+                int shareId = instruments.idOf(sharePrice.getKey());
+                if (shareId >= 0 && shareIndexMap.containsKey(sharePrice.getKey())
+                        && !observedPrices.hasPrice(shareId, sharePrice.getValue())) {
+                    changedPrices.put(sharePrice.getKey(), sharePrice.getValue());
+                }
+            }
+            if (changedPrices.isEmpty()) {
+                return List.of();
+            }
 
+            Set<String> lockedNames = lockedNames(List.of(), changedPrices.keySet(), changedPrices.keySet());
+            List<PriceUpdateFailure> failures = new ArrayList<>();
+            long lsn;
+            HeldLocks heldLocks = lockInOrder(lockedNames, Operation.PRICE_UPDATE);
+            try {
+                // A share may have been added to another index before the locks were taken, start over in that case
+                if (!holdersLocked(changedPrices.keySet(), lockedNames)) {
+                    continue;
+                }
+                lsn = applyPricesLocked(changedPrices, failures);
+            } finally {
+                unlockAll(heldLocks, Operation.PRICE_UPDATE);
+            }
+            awaitDurable(lsn);
+            return failures;
+        }
+    }
+
+    // Journals and publishes the repriced holders and the prices, returns the sequence number of the last record or 0
+    private long applyPricesLocked(Map<String, Double> changedPrices, List<PriceUpdateFailure> failures) {
+        PriceBook currentPrices = prices.get();
+        PriceBook nextPrices = currentPrices;
+        List<String> appliedShareNames = new ArrayList<>(changedPrices.size());
+        for (Map.Entry<String, Double> sharePrice : changedPrices.entrySet()) {
+            int shareId = instruments.idOf(sharePrice.getKey());
+            PriceBook candidatePrices = nextPrices.withPrice(shareId, sharePrice.getValue());
+            Set<String> holders = shareIndexMap.getOrDefault(sharePrice.getKey(), Set.of());
+            try {
+                for (String indexName : holders) {
+                    candidatePrices.getSharePrice(shareId, indexMap.get(indexName).getNumericMode());
+                }
+            } catch (IllegalArgumentException e) {
+                for (String indexName : holders) {
+                    failures.add(new PriceUpdateFailure(indexName, sharePrice.getKey(), e));
+                }
+                continue;
+            }
+            nextPrices = candidatePrices;
+            appliedShareNames.add(sharePrice.getKey());
+        }
+
+        List<Repricing> repricings;
+        long lsn;
         try {
-            // Locking in a sorted order to prevent deadlock from another thread with the same dividend operation
-            for (String indexName : sortedIndexNames) {
-                ReentrantLock lock = lockMap.computeIfAbsent(indexName, k -> new ReentrantLock());
-                lock.lock();
-                acquiredLocks.add(lock); // Track acquired locks for later release
+            repricings = repriceHolders(appliedShareNames, nextPrices);
+            lsn = journalRepricings(repricings);
+        } catch (RuntimeException e) {
+            Set<String> holderNames = new TreeSet<>();
+            for (String shareName : appliedShareNames) {
+                holderNames.addAll(shareIndexMap.getOrDefault(shareName, Set.of()));
+            }
+            for (String indexName : holderNames) {
+                failures.add(new PriceUpdateFailure(indexName, null, e));
             }
+            return 0;
+        }
+        publishRepricings(repricings);
+        publishPrices(currentPrices, nextPrices, shareIdsOf(appliedShareNames));
+        return lsn;
+    }
 
-            // Dividend Operation
-            boolean shareFound = false;
+    /**
+     * Applies an ordered list of adjustments, taking the lock of every index involved once for the whole batch.
+     * Operations are applied in order to working snapshots that are published together at the end.
+     * With allOrNothing, an index on which any operation failed keeps its state from before the batch,
+     * and the successful operations that touched it are reported as rolled back. A share whose price the batch
+     * changed keeps one price, so its holders are rolled back together.
+     *
+     * @return one result per operation, in request order
+     */
+    public List<AdjustmentResult> applyAdjustments(List<IndexAdjustmentRequestsDTO> operations, boolean allOrNothing) {
+        return timed(Operation.BATCH, () -> applyAdjustmentsInternal(operations, allOrNothing), results -> IndexMetrics.OK);
+    }
+
+    private List<AdjustmentResult> applyAdjustmentsInternal(List<IndexAdjustmentRequestsDTO> operations, boolean allOrNothing) {
 
-            for (IndexEntity indexEntity : indexMap.values()) {   // For each Index
-                ShareEntity shareEntity = indexEntity.getShares().get(shareDividendDTO.getShareName()); // Share that needs readjustment due to price
-                if (shareEntity != null) {
-                    shareFound = true;
-                    double currentIndexValue = calculateTotalIndexValue(indexEntity);
-                    // This Index contains a member with this share
-                    double curSharePrice = shareEntity.getSharePrice();
-                    if (curDividend > curSharePrice) {
-                        throw new IllegalArgumentException("Dividend cannot greater than current share price of " + shareDividendDTO.getShareName());
+        // Shares whose price an addition or a dividend may change, locked with all their holders
+        Set<String> pricedShares = new HashSet<>();
+        Set<String> adjustedIndexNames = new HashSet<>();
+        for (IndexAdjustmentRequestsDTO operation : operations) {
+            if (operation.getAdditionOperation() != null) {
+                adjustedIndexNames.add(operation.getAdditionOperation().getIndexName());
+                pricedShares.add(operation.getAdditionOperation().getShareName());
+            } else if (operation.getDeletionOperation() != null) {
+                adjustedIndexNames.add(operation.getDeletionOperation().getIndexName());
+            } else if (operation.getDividendOperation() != null) {
+                pricedShares.add(operation.getDividendOperation().getShareName());
+            }
+        }
+
+        while (true) {
+            Set<String> lockedNames = lockedNames(adjustedIndexNames, pricedShares, pricedShares);
+
+            BatchOutcome outcome;
+            HeldLocks heldLocks = lockInOrder(lockedNames, Operation.BATCH);
+            try {
+                // A share may have been added to an index that is not locked, start over in that case
+                if (!holdersLocked(pricedShares, lockedNames)) {
+                    continue;
+                }
+                outcome = applyAdjustmentsLocked(operations, allOrNothing, lockedNames);
+            } finally {
+                unlockAll(heldLocks, Operation.BATCH);
+            }
+            awaitDurable(outcome.lsn());
+            return outcome.results();
+        }
+    }
+
+    private BatchOutcome applyAdjustmentsLocked(List<IndexAdjustmentRequestsDTO> operations, boolean allOrNothing,
+                                                Set<String> lockedNames) {
+        Map<String, IndexEntity> working = new HashMap<>();
+        Map<String, List<MembershipChange>> membershipChanges = new HashMap<>();
+        Map<String, List<JournalRecord>> journalRecords = new HashMap<>();
+        Set<String> failedIndexNames = new HashSet<>();
+        List<AdjustmentResult> results = new ArrayList<>(operations.size());
+        List<Set<String>> touchedIndexNames = new ArrayList<>(operations.size());
+        // The prices as changed by the batch so far, read by every working snapshot built from here on
+        PriceBook currentPrices = prices.get();
+        PriceBook workingPrices = currentPrices;
+        Set<String> repricedShareNames = new HashSet<>();
+
+        for (IndexAdjustmentRequestsDTO operation : operations) {
+            Set<String> touched = new HashSet<>();
+            touchedIndexNames.add(touched);
+            try {
+                if (operation.getAdditionOperation() != null) {
+                    ShareAdditionDTO addition = operation.getAdditionOperation();
+                    touched.add(addition.getIndexName());
+                    IndexEntity indexEntity = working.getOrDefault(addition.getIndexName(), indexMap.get(addition.getIndexName()));
+                    if (indexEntity == null) {
+                        throw new NoSuchElementException("Index does not exist");
+                    }
+                    if (indexEntity.getSlot(addition.getShareName()) >= 0) {
+                        results.add(AdjustmentResult.of(AdjustmentResult.Outcome.ALREADY_EXISTS));
+                        continue;
+                    }
+                    // The share keeps the price its holders read, including those added earlier in the batch
+                    int shareId = instruments.intern(addition.getShareName());
+                    boolean priced = !workingPrices.hasPrice(shareId, addition.getSharePrice());
+                    if (priced) {
+                        for (String indexName : lockedNames) {
+                            IndexEntity holder = working.getOrDefault(indexName, indexMap.get(indexName));
+                            if (holder != null && holder.getSlot(shareId) >= 0) {
+                                throw priceConflict(addition.getShareName(), workingPrices, shareId);
+                            }
+                        }
                     }
-                    shareEntity.setSharePrice(curSharePrice - curDividend);
+                    PriceBook nextPrices = priced ? workingPrices.withPrice(shareId, addition.getSharePrice()) : workingPrices;
+                    working.put(addition.getIndexName(), indexEntity.withAddition(nextPrices, addition.getShareName(),
+                            addition.getNumberOfShares()));
+                    workingPrices = nextPrices;
+                    membershipChanges.computeIfAbsent(addition.getIndexName(), k -> new ArrayList<>())
+                            .add(new MembershipChange(addition.getShareName(), true));
+                    journalRecords.computeIfAbsent(addition.getIndexName(), k -> new ArrayList<>())
+                            .add(new JournalRecord.AddShare(addition.getIndexName(), addition.getShareName(),
+                                    addition.getSharePrice(), addition.getNumberOfShares()));
+                    if (priced) {
+                        repricedShareNames.add(addition.getShareName());
+                    }
+                    results.add(AdjustmentResult.of(AdjustmentResult.Outcome.ADDED));
+
+                } else if (operation.getDeletionOperation() != null) {
+                    ShareDeletionDTO deletion = operation.getDeletionOperation();
+                    touched.add(deletion.getIndexName());
+                    IndexEntity indexEntity = working.getOrDefault(deletion.getIndexName(), indexMap.get(deletion.getIndexName()));
+                    if (indexEntity == null) {
+                        throw new NoSuchElementException("Index not found: " + deletion.getIndexName());
+                    }
+                    working.put(deletion.getIndexName(), deleteShare(indexEntity, deletion.getShareName()));
+                    membershipChanges.computeIfAbsent(deletion.getIndexName(), k -> new ArrayList<>())
+                            .add(new MembershipChange(deletion.getShareName(), false));
+                    journalRecords.computeIfAbsent(deletion.getIndexName(), k -> new ArrayList<>())
+                            .add(new JournalRecord.DeleteShare(deletion.getIndexName(), deletion.getShareName()));
+                    results.add(AdjustmentResult.of(AdjustmentResult.Outcome.DELETED));
 
-                    // Readjust the shares of this Index to maintain the same Index Value
-                    double reductionInIndexValue = curDividend * shareEntity.getNumberOfShares();
-                    for (ShareEntity share : indexEntity.getShares().values()) { // for each share in this Index
-                        share.setNumberOfShares(
-                                share.getNumberOfShares() * currentIndexValue / (currentIndexValue - reductionInIndexValue));
+                } else if (operation.getDividendOperation() != null) {
+                    ShareDividendDTO dividend = operation.getDividendOperation();
+                    if (dividend.getDividend() < 0) {
+                        throw new IllegalArgumentException("Dividend cannot be negative");
+                    }
+                    // One pass over the locked indices collects the holders, including shares added earlier in the batch
+                    List<IndexEntity> holders = new ArrayList<>();
+                    for (String indexName : lockedNames) {
+                        IndexEntity indexEntity = working.getOrDefault(indexName, indexMap.get(indexName));
+                        if (indexEntity != null && indexEntity.getSlot(dividend.getShareName()) >= 0) {
+                            holders.add(indexEntity);
+                            touched.add(indexName);
+                        }
+                    }
+                    if (holders.isEmpty()) {
+                        throw new IllegalArgumentException("Share not found in any index: " + dividend.getShareName());
                     }
+                    validateDividend(holders, dividend.getShareName(), dividend.getDividend());
+                    metrics.recordDividendFanout(holders.size());
+                    PriceBook nextPrices = workingPrices.withDividend(instruments.idOf(dividend.getShareName()), dividend.getDividend());
+                    List<IndexEntity> nextHolders = new ArrayList<>(holders.size());
+                    for (IndexEntity indexEntity : holders) {
+                        nextHolders.add(payDividend(indexEntity, nextPrices, dividend.getShareName(), dividend.getDividend()));
+                    }
+                    for (IndexEntity indexEntity : nextHolders) {
+                        working.put(indexEntity.getIndexName(), indexEntity);
+                        journalRecords.computeIfAbsent(indexEntity.getIndexName(), k -> new ArrayList<>())
+                                .add(new JournalRecord.Dividend(indexEntity.getIndexName(), dividend.getShareName(), dividend.getDividend()));
+                    }
+                    workingPrices = nextPrices;
+                    repricedShareNames.add(dividend.getShareName());
+                    results.add(AdjustmentResult.of(AdjustmentResult.Outcome.DIVIDEND_APPLIED));
+
+                } else {
+                    results.add(AdjustmentResult.of(AdjustmentResult.Outcome.INVALID));
+                }
+            } catch (IllegalArgumentException | NoSuchElementException | IllegalStateException e) {
+                failedIndexNames.addAll(touched);
+                results.add(AdjustmentResult.failed(e));
+            }
+        }
 
+        // With allOrNothing, an index holding a repriced share before or after the batch is rolled back with its
+        // other holders, so the price published for the share is the one all of them read
+        Set<String> publishedShareNames = new HashSet<>(repricedShareNames);
+        if (allOrNothing && !failedIndexNames.isEmpty()) {
+            Map<String, Set<String>> holdersByShare = new HashMap<>();
+            for (String shareName : repricedShareNames) {
+                Set<String> holders = new HashSet<>();
+                for (String indexName : lockedNames) {
+                    IndexEntity indexEntity = indexMap.get(indexName);
+                    IndexEntity workingEntity = working.get(indexName);
+                    if ((indexEntity != null && indexEntity.getSlot(shareName) >= 0)
+                            || (workingEntity != null && workingEntity.getSlot(shareName) >= 0)) {
+                        holders.add(indexName);
+                    }
+                }
+                holdersByShare.put(shareName, holders);
+            }
+            boolean rolledBack = true;
+            while (rolledBack) {
+                rolledBack = false;
+                for (Map.Entry<String, Set<String>> holders : holdersByShare.entrySet()) {
+                    if (!Collections.disjoint(holders.getValue(), failedIndexNames)) {
+                        rolledBack |= failedIndexNames.addAll(holders.getValue());
+                        publishedShareNames.remove(holders.getKey());
+                    }
                 }
+            }
+        }
 
+        // Journal and publish the working snapshots, leaving out the indices rolled back by allOrNothing
+        long lsn = 0;
+        for (Map.Entry<String, IndexEntity> entry : working.entrySet()) {
+            if (allOrNothing && failedIndexNames.contains(entry.getKey())) {
+                continue;
             }
-            if (!shareFound) {
-                throw new IllegalArgumentException("Share not found in any index: " + shareDividendDTO.getShareName());
+            for (JournalRecord record : journalRecords.getOrDefault(entry.getKey(), List.of())) {
+                lsn = journal.append(record);
             }
-        } finally {
-            // Release all acquired locks
+            publish(indexMap.get(entry.getKey()), entry.getValue());
+            for (MembershipChange change : membershipChanges.getOrDefault(entry.getKey(), List.of())) {
+                if (change.added()) {
+                    addMembership(change.shareName(), entry.getKey());
+                } else {
+                    removeMembership(change.shareName(), entry.getKey());
+                }
+            }
+        }
+        if (publishedShareNames.size() == repricedShareNames.size()) {
+            publishPrices(currentPrices, workingPrices, shareIdsOf(publishedShareNames));
+        } else {
+            PriceBook nextPrices = workingPrices;
+            int[] publishedShareIds = shareIdsOf(publishedShareNames);
+            prices.updateAndGet(sharedPrices -> sharedPrices.withPricesOf(publishedShareIds, nextPrices));
+        }
+
+        if (allOrNothing) {
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isSuccessful() && !Collections.disjoint(touchedIndexNames.get(i), failedIndexNames)) {
+                    results.set(i, AdjustmentResult.of(AdjustmentResult.Outcome.ROLLED_BACK));
+                }
+            }
+        }
+        return new BatchOutcome(results, lsn);
+    }
+
+    /**
+     * Applies one journaled mutation without locking or journaling it again, through the same code path as the
+     * original operation so the rebuilt snapshot is identical. Only called while the journal is replayed: every
+     * index moves on its own version of the price book, sharePrices joins them once the journal is replayed.
+     */
+    void applyJournalRecord(JournalRecord record) {
+        String indexName = record.indexName();
+        IndexEntity indexEntity = indexMap.get(indexName);
+        if (indexEntity == null && !(record instanceof JournalRecord.CreateIndex)) {
+            return; // index deleted before the snapshot was captured, its earlier records are obsolete
+        }
+        if (record instanceof JournalRecord.CreateIndex createIndex) {
+            Map<String, ShareEntity> members = new LinkedHashMap<>();
+            List<ShareEntity> repricedMembers = new ArrayList<>();
+            PriceBook currentPrices = prices.get();
+            for (ShareEntity member : createIndex.members()) {
+                members.put(member.getShareName(), member);
+                if (!currentPrices.hasPrice(instruments.intern(member.getShareName()), member.getSharePrice())) {
+                    repricedMembers.add(member);
+                }
+            }
+            PriceBook nextPrices = currentPrices.withPrices(repricedMembers, instruments);
+            storeIndex(new IndexEntity(indexName, members, storage, createIndex.numericMode(), instruments, nextPrices));
+            prices.set(nextPrices);
+        } else if (record instanceof JournalRecord.AddShare addition) {
+            PriceBook nextPrices = indexEntity.getPrices().withPrice(instruments.intern(addition.shareName()), addition.sharePrice());
+            indexMap.put(indexName, indexEntity.withAddition(nextPrices, addition.shareName(), addition.numberOfShares()));
+            addMembership(addition.shareName(), indexName);
+        } else if (record instanceof JournalRecord.DeleteShare deletion) {
+            indexMap.put(indexName, deleteShare(indexEntity, deletion.shareName()));
+            removeMembership(deletion.shareName(), indexName);
+        } else if (record instanceof JournalRecord.Dividend dividend) {
+            PriceBook nextPrices = indexEntity.getPrices().withDividend(instruments.idOf(dividend.shareName()), dividend.dividend());
+            indexMap.put(indexName, payDividend(indexEntity, nextPrices, dividend.shareName(), dividend.dividend()));
+        } else if (record instanceof JournalRecord.PriceUpdate priceUpdate) {
+            indexMap.put(indexName, replayPrices(indexEntity, priceUpdate.sharePrices()));
+        } else if (record instanceof JournalRecord.DeleteIndex) {
+            unregisterIndex(indexEntity);
+        }
+    }
+
+    // Sets the journaled prices of the shares the index holds in its own book, in the order they were applied
+    private IndexEntity replayPrices(IndexEntity indexEntity, Map<String, Double> sharePrices) {
+        PriceBook nextPrices = indexEntity.getPrices();
+        int[] changedShareIds = new int[sharePrices.size()];
+        int changed = 0;
+        for (Map.Entry<String, Double> sharePrice : sharePrices.entrySet()) {
+            int shareId = instruments.idOf(sharePrice.getKey());
+            if (shareId >= 0 && indexEntity.getSlot(shareId) >= 0) {
+                nextPrices = nextPrices.withPrice(shareId, sharePrice.getValue());
+                changedShareIds[changed++] = shareId;
+            }
+        }
+        return indexEntity.withPrices(nextPrices, Arrays.copyOf(changedShareIds, changed));
+    }
+
+    /*
+     Moves the recovered indices onto one price book. The price of a share is taken from the first index holding
+     it in name order; the journal keeps the holders of a share at one price, so an index only reads another price
+     if its data predates the shared prices. Such an index is repriced, its divisor is kept.
+     */
+    private void sharePrices() {
+        if (indexMap.isEmpty()) {
+            return;
+        }
+        PriceBook sharedPrices = prices.get();
+        Set<Integer> pricedShareIds = new HashSet<>();
+        for (String indexName : indexNames) {
+            IndexEntity indexEntity = indexMap.get(indexName);
+            int[] adoptedShareIds = new int[indexEntity.getShareCount()];
+            int adopted = 0;
+            for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+                int shareId = indexEntity.getShareId(slot);
+                if (pricedShareIds.add(shareId) && !sharedPrices.hasSamePrice(shareId, indexEntity.getPrices())) {
+                    adoptedShareIds[adopted++] = shareId;
+                }
+            }
+            sharedPrices = sharedPrices.withPricesOf(Arrays.copyOf(adoptedShareIds, adopted), indexEntity.getPrices());
+        }
+
+        List<String> repricedIndexNames = new ArrayList<>();
+        for (String indexName : indexNames) {
+            IndexEntity indexEntity = indexMap.get(indexName);
+            if (indexEntity.getPrices() == sharedPrices) {
+                continue;
+            }
+            int[] shareIds = new int[indexEntity.getShareCount()];
+            for (int slot = 0; slot < shareIds.length; slot++) {
+                shareIds[slot] = indexEntity.getShareId(slot);
+            }
+            IndexEntity repriced = indexEntity.withPrices(sharedPrices, shareIds);
+            if (repriced != indexEntity) {
+                repricedIndexNames.add(indexName);
+            }
+            indexMap.put(indexName, repriced.withSharedPrices(sharedPrices));
+        }
+        prices.set(sharedPrices);
+        if (!repricedIndexNames.isEmpty()) {
+            log.warn("Repriced {} recovered indices to the shared price of their shares: {}", repricedIndexNames.size(), repricedIndexNames);
+        }
+    }
+
+    private IndexEntity deleteShare(IndexEntity indexEntity, String shareName) {
+        if (indexEntity.getShareCount() < 3) {
+            throw new IllegalStateException("Index must have at least 3 members before deletion");
+        }
+
+        if (indexEntity.getSlot(shareName) < 0) {
+            throw new IllegalArgumentException("Share not found in the index: " + shareName);
+        }
+
+        // Adjust remaining shares proportionally to maintain the index value
+        return indexEntity.withDeletion(shareName);
+    }
+
+    // Dividend Validation (2) against every holder before any index is changed
+    private void validateDividend(List<IndexEntity> holders, String shareName, double dividend) {
+        for (IndexEntity indexEntity : holders) {
+            if (dividend > indexEntity.getSharePrice(indexEntity.getSlot(shareName))) {
+                throw new IllegalArgumentException("Dividend cannot greater than current share price of " + shareName);
+            }
+        }
+    }
+
+    // Readjust the shares of this Index to maintain the same Index Value, nextPrices holds the price after the dividend
+    private IndexEntity payDividend(IndexEntity indexEntity, PriceBook nextPrices, String shareName, double dividend) {
+        return indexEntity.withDividend(nextPrices, shareName, dividend);
+    }
+
+    /*
+     True if the book holds this price for the share, false if it has to be set. A share held by some index has
+     one price for all of them: a creation or an addition at another price is rejected rather than repricing the
+     other holders. The share must be locked, so no holder is added meanwhile.
+     */
+    private boolean hasSharePrice(PriceBook currentPrices, String shareName, double sharePrice) {
+        int shareId = instruments.idOf(shareName);
+        if (shareId >= 0 && currentPrices.hasPrice(shareId, sharePrice)) {
+            return true;
+        }
+        if (shareIndexMap.containsKey(shareName)) {
+            throw priceConflict(shareName, currentPrices, shareId);
+        }
+        return false;
+    }
+
+    private static IllegalArgumentException priceConflict(String shareName, PriceBook currentPrices, int shareId) {
+        return new IllegalArgumentException("Share price of " + shareName + " differs from its current price "
+                + currentPrices.getSharePrice(shareId, NumericMode.DOUBLE));
+    }
+
+    // Names to lock for a change to the shares: the indices, the shares and every holder of a share to reprice
+    private Set<String> lockedNames(Collection<String> indexNames, Collection<String> shareNames,
+                                    Collection<String> repricedShareNames) {
+        Set<String> lockedNames = new TreeSet<>(indexNames);
+        lockedNames.addAll(shareNames);
+        for (String shareName : repricedShareNames) {
+            lockedNames.addAll(shareIndexMap.getOrDefault(shareName, Set.of()));
+        }
+        return lockedNames;
+    }
+
+    // True if every holder of the shares is locked, the holders may have changed before the locks were taken
+    private boolean holdersLocked(Collection<String> shareNames, Set<String> lockedNames) {
+        for (String shareName : shareNames) {
+            if (!lockedNames.containsAll(shareIndexMap.getOrDefault(shareName, Set.of()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     Next snapshots of the holders of the shares reading their prices from nextPrices, with the prices to journal
+     for each. The holders must be locked; a holder that cannot represent a price fails the whole change.
+     */
+    private List<Repricing> repriceHolders(Collection<String> shareNames, PriceBook nextPrices) {
+        Map<String, Map<String, Double>> holderPrices = new TreeMap<>();
+        for (String shareName : shareNames) {
+            double sharePrice = nextPrices.getSharePrice(instruments.idOf(shareName), NumericMode.DOUBLE);
+            for (String indexName : shareIndexMap.getOrDefault(shareName, Set.of())) {
+                holderPrices.computeIfAbsent(indexName, k -> new HashMap<>()).put(shareName, sharePrice);
+            }
+        }
+        List<Repricing> repricings = new ArrayList<>(holderPrices.size());
+        for (Map.Entry<String, Map<String, Double>> entry : holderPrices.entrySet()) {
+            IndexEntity indexEntity = indexMap.get(entry.getKey());
+            IndexEntity nextIndexEntity = indexEntity.withPrices(nextPrices, shareIdsOf(entry.getValue().keySet()));
+            if (nextIndexEntity != indexEntity) {
+                repricings.add(new Repricing(indexEntity, nextIndexEntity, entry.getValue()));
+            }
+        }
+        return repricings;
+    }
+
+    // Returns the sequence number of the last record, 0 if there is none
+    private long journalRepricings(List<Repricing> repricings) {
+        long lsn = 0;
+        for (Repricing repricing : repricings) {
+            lsn = journal.append(new JournalRecord.PriceUpdate(repricing.next().getIndexName(), repricing.sharePrices()));
+        }
+        return lsn;
+    }
+
+    private void publishRepricings(List<Repricing> repricings) {
+        for (Repricing repricing : repricings) {
+            publish(repricing.previous(), repricing.next());
+        }
+    }
+
+    /*
+     Publishes the prices of the shares from nextPrices, the book they were changed in starting from basePrices.
+     Writers of other shares may have published in between, their prices are kept; the shares must be locked.
+     */
+    private void publishPrices(PriceBook basePrices, PriceBook nextPrices, int... shareIds) {
+        if (shareIds.length > 0) {
+            prices.updateAndGet(sharedPrices -> sharedPrices == basePrices ? nextPrices : sharedPrices.withPricesOf(shareIds, nextPrices));
+        }
+    }
+
+    private int[] shareIdsOf(Collection<String> shareNames) {
+        return shareNames.stream().mapToInt(instruments::intern).toArray();
+    }
+
+    // Blocks until the journal record is durable, unless the calling thread defers the wait
+    private void awaitDurable(long lsn) {
+        long[] deferred = deferredDurableLsn.get();
+        if (deferred != null) {
+            deferred[0] = Math.max(deferred[0], lsn);
+        } else {
+            journal.awaitDurable(lsn);
+        }
+    }
+
+    /*
+     Called once by a thread that must never block on the journal: its mutations return as soon as they are
+     published, takeDeferredDurableLsn tells what to wait for on another thread before answering the client.
+     */
+    void deferDurability() {
+        deferredDurableLsn.set(new long[1]);
+    }
+
+    long takeDeferredDurableLsn() {
+        long[] deferred = deferredDurableLsn.get();
+        long lsn = deferred[0];
+        deferred[0] = 0;
+        return lsn;
+    }
+
+    void awaitJournal(long lsn) {
+        journal.awaitDurable(lsn);
+    }
+
+    private ReentrantLock lockFor(String indexName) {
+        return lockStripes[stripeOf(indexName)];
+    }
+
+    int getLockStripeCount() {
+        return lockStripes.length;
+    }
+
+    int stripeOf(String indexName) {
+        int hash = indexName.hashCode();
+        return (hash ^ (hash >>> 16)) & (lockStripes.length - 1);
+    }
+
+    // Takes the lock and records the wait, returns the time of acquisition for the hold time
+    private long lock(ReentrantLock lock, Operation operation) {
+        long start = System.nanoTime();
+        lock.lock();
+        long acquired = System.nanoTime();
+        metrics.recordLockWait(operation, acquired - start);
+        return acquired;
+    }
+
+    private void unlock(ReentrantLock lock, Operation operation, long acquiredNanos) {
+        lock.unlock();
+        metrics.recordLockHold(operation, System.nanoTime() - acquiredNanos);
+    }
+
+    // Locking the distinct stripes in ascending order to prevent deadlock between multi-index operations
+    private HeldLocks lockInOrder(Collection<String> indexNames, Operation operation) {
+        int[] stripes = indexNames.stream().mapToInt(this::stripeOf).distinct().sorted().toArray();
+        List<ReentrantLock> acquiredLocks = new ArrayList<>(stripes.length);
+        long start = System.nanoTime();
+        try {
+            for (int stripe : stripes) {
+                ReentrantLock lock = lockStripes[stripe];
+                lock.lock();
+                acquiredLocks.add(lock); // Track acquired locks for later release
+            }
+        } catch (RuntimeException e) {
             for (ReentrantLock lock : acquiredLocks) {
                 lock.unlock();
             }
+            throw e;
         }
+        long acquired = System.nanoTime();
+        metrics.recordLockWait(operation, acquired - start);
+        return new HeldLocks(acquiredLocks, acquired);
     }
 
+    private void unlockAll(HeldLocks heldLocks, Operation operation) {
+        for (ReentrantLock lock : heldLocks.locks()) {
+            lock.unlock();
+        }
+        metrics.recordLockHold(operation, System.nanoTime() - heldLocks.acquiredNanos());
+    }
 
+    // Times the operation by the outcome the API answers with, failures included
+    private <T> T timed(Operation operation, Supplier<T> body, Function<T, String> outcomeOf) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = body.get();
+        } catch (RuntimeException e) {
+            metrics.recordFailure(operation, e, start);
+            throw e;
+        }
+        metrics.recordOperation(operation, outcomeOf.apply(result), start);
+        return result;
+    }
+
+    int getHeldLockStripeCount() {
+        int held = 0;
+        for (ReentrantLock lock : lockStripes) {
+            held += lock.isLocked() ? 1 : 0;
+        }
+        return held;
+    }
+
+    long getTotalMemberCount() {
+        long members = 0;
+        for (IndexEntity indexEntity : indexMap.values()) {
+            members += indexEntity.getShareCount();
+        }
+        return members;
+    }
+
+    int getIndexCount() {
+        return indexMap.size();
+    }
+
+    /**
+     * Returns the names of all indices holding the given share, sorted for consistent lock ordering.
+     * The lookup is O(k) in the number of holders instead of a scan over every index.
+     */
+    public List<String> getIndicesHoldingShare(String shareName) {
+        Set<String> holders = shareIndexMap.get(shareName);
+        if (holders == null) {
+            return List.of();
+        }
+        return holders.stream().sorted().toList();
+    }
+
+    // Stores an index built from the shares without journaling it, for IndexServiceTest only
+    void registerIndex(String indexName, Map<String, ShareEntity> shares) {
+        PriceBook currentPrices = prices.get();
+        List<ShareEntity> pricedMembers = new ArrayList<>();
+        for (ShareEntity member : shares.values()) {
+            if (!hasSharePrice(currentPrices, member.getShareName(), member.getSharePrice())) {
+                pricedMembers.add(member);
+            }
+        }
+        PriceBook nextPrices = currentPrices.withPrices(pricedMembers, instruments);
+        storeIndex(new IndexEntity(indexName, shares, storage, numericMode, instruments, nextPrices));
+        prices.set(nextPrices);
+    }
+
+    // Stores the index and records its members in the reverse membership index, caller must hold the index lock
+    private void storeIndex(IndexEntity indexEntity) {
+        publish(null, indexEntity);
+        indexNames.add(indexEntity.getIndexName());
+        for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+            addMembership(indexEntity.getShareName(slot), indexEntity.getIndexName());
+        }
+    }
 
+    // Removes the index, its name and its memberships, caller must hold the index lock
+    private void unregisterIndex(IndexEntity indexEntity) {
+        String indexName = indexEntity.getIndexName();
+        indexMap.remove(indexName);
+        indexNames.remove(indexName);
+        for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+            removeMembership(indexEntity.getShareName(slot), indexName);
+        }
+        for (IndexChangeListener listener : listeners) {
+            listener.indexChanged(indexEntity, null);
+        }
+    }
+
+    // Replaces the snapshot of an index and notifies the listeners, caller must hold the index lock
+    private void publish(IndexEntity previous, IndexEntity next) {
+        indexMap.put(next.getIndexName(), next);
+        for (IndexChangeListener listener : listeners) {
+            listener.indexChanged(previous, next);
+        }
+    }
+
+    public void addListener(IndexChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(IndexChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // compute() keeps the add and the removal of an emptied holder set atomic per share
+    private void addMembership(String shareName, String indexName) {
+        shareIndexMap.compute(shareName, (k, holders) -> {
+            if (holders == null) {
+                holders = ConcurrentHashMap.newKeySet();
+            }
+            holders.add(indexName);
+            return holders;
+        });
+    }
+
+    private void removeMembership(String shareName, String indexName) {
+        shareIndexMap.computeIfPresent(shareName, (k, holders) -> {
+            holders.remove(indexName);
+            return holders.isEmpty() ? null : holders;
+        });
+    }
+
+
+
+    // Reads take no lock: every IndexEntity in indexMap is an immutable, consistent snapshot
     public List<IndexStateResponseDTO> getAllIndicesWithState() {
         return indexMap.values().stream()
                 .map(indexMapper::toDto)
                 .collect(Collectors.toList());
     }
 
+    // Current snapshot of an index, or null if it does not exist
+    public IndexEntity getIndex(String indexName) {
+        return indexMap.get(indexName);
+    }
+
+    public Collection<IndexEntity> getIndices() {
+        return Collections.unmodifiableCollection(indexMap.values());
+    }
+
+    /**
+     * Returns up to limit indices in name order, starting after the given name. Only the requested
+     * slice is visited: the ordered name set is entered at the cursor or the prefix, whichever is later.
+     *
+     * @param prefix        only indices whose name starts with it, or null for all
+     * @param afterIndexName name of the last index of the previous page, or null for the first page
+     */
+    public IndexPage getIndexPage(String prefix, String afterIndexName, int limit) {
+        String from = prefix;
+        boolean fromInclusive = true;
+        if (afterIndexName != null && (prefix == null || afterIndexName.compareTo(prefix) >= 0)) {
+            from = afterIndexName;
+            fromInclusive = false;
+        }
+        NavigableSet<String> names = from != null ? indexNames.tailSet(from, fromInclusive) : indexNames;
+
+        List<IndexEntity> page = new ArrayList<>(Math.min(limit, 64));
+        String lastIndexName = null;
+        for (String indexName : names) {
+            if (prefix != null && !indexName.startsWith(prefix)) {
+                break;
+            }
+            if (page.size() == limit) {
+                return new IndexPage(page, lastIndexName); // more indices follow
+            }
+            IndexEntity indexEntity = indexMap.get(indexName);
+            if (indexEntity != null) {
+                page.add(indexEntity);
+                lastIndexName = indexName;
+            }
+        }
+        return new IndexPage(page, null);
+    }
+
     public IndexStateResponseDTO getIndexByName(String indexName) {
         IndexEntity indexEntity = indexMap.get(indexName);
         if (indexEntity != null) {
@@ -202,15 +1235,24 @@ public class IndexService {
         return null;
     }
 
+    // Maintained incrementally by IndexEntity, no member scan
     public double calculateTotalIndexValue(IndexEntity indexEntity){
-        double totalIndexValue = 0;
-        for (ShareEntity shareEntity : indexEntity.getShares().values()) {
-            totalIndexValue += shareEntity.getSharePrice() * shareEntity.getNumberOfShares();
-        }
-        return totalIndexValue;
+        return indexEntity.getIndexValue();
     }
 
-}
+    private record MembershipChange(String shareName, boolean added) {
+    }
 
+    // Next snapshot of a holder reading new prices, and the prices journaled for it
+    private record Repricing(IndexEntity previous, IndexEntity next, Map<String, Double> sharePrices) {
+    }
 
+    // Results of a batch and the sequence number of its last journal record
+    private record BatchOutcome(List<AdjustmentResult> results, long lsn) {
+    }
+
+    // Stripes taken by lockInOrder and when the last of them was acquired
+    private record HeldLocks(List<ReentrantLock> locks, long acquiredNanos) {
+    }
 
+}
@@ -0,0 +1,78 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.journal.IndexJournal;
+import de.solactive.challenge.indexapi.journal.IndexSnapshot;
+import de.solactive.challenge.indexapi.journal.IndexSnapshotStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a snapshot of all indices periodically on a background thread and compacts the journal
+ * segments the retained snapshots cover, so startup only replays the journal tail.
+ */
+@Service
+@ConditionalOnProperty(name = "index.journal.enabled", havingValue = "true")
+public class IndexSnapshotScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexSnapshotScheduler.class);
+
+    private final IndexService indexService;
+    private final IndexSnapshotStore snapshotStore;
+    private final IndexJournal journal;
+    private final ScheduledExecutorService scheduler;
+
+    public IndexSnapshotScheduler(IndexService indexService, IndexSnapshotStore snapshotStore, IndexJournal journal,
+                                  @Value("${index.snapshot.interval-seconds:300}") long intervalSeconds) {
+        this.indexService = indexService;
+        this.snapshotStore = snapshotStore;
+        this.journal = journal;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes a snapshot if the journal moved since the last one, then compacts the journal.
+     *
+     * @return the written snapshot, or null if nothing changed
+     */
+    public IndexSnapshot takeSnapshot() throws IOException {
+        if (journal.getLastLsn() <= snapshotStore.getLatestLsn()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        IndexSnapshot snapshot = indexService.captureSnapshot();
+        snapshotStore.write(snapshot);
+        journal.compact(snapshotStore.getCompactableLsn());
+        log.info("Wrote snapshot of {} indices at lsn {} in {} ms",
+                snapshot.indices().size(), snapshot.baseLsn(), (System.nanoTime() - start) / 1_000_000);
+        return snapshot;
+    }
+
+    // A failed snapshot is retried at the next interval, the journal still holds every record
+    private void snapshotQuietly() {
+        try {
+            takeSnapshot();
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not write index snapshot", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
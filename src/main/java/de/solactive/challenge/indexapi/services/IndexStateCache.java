@@ -0,0 +1,285 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.IndexValueResponseDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.mappers.IndexMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of the serialized GET /api/indexState responses.
+ * Each index is serialized at most once per version: an entry is only served while its version
+ * matches the version of the current IndexEntity snapshot, so no explicit invalidation is needed.
+ * Only deleting an index evicts its entry, since a re-created index starts again at version 1.
+ * Entries are evicted least recently used once the cached bytes exceed the configured limit.
+ * Lookups go to a concurrent map without locking; the lock only guards the access order and the eviction, and a
+ * hit skips recording its access while another thread holds it, so the order is approximate under contention.
+ * Hits, misses, evictions and the cached bytes are exported as index.state.cache.* meters.
+ */
+@Service
+public class IndexStateCache implements MeterBinder {
+
+    // Projection of GET /api/indexState: the full state or the index values only
+    public enum View { FULL, VALUES }
+
+    private static final byte[] ALL_INDICES_PREFIX = "{\"indexDetails\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ALL_INDICES_SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_CURSOR_PREFIX = "],\"nextCursor\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final IndexService indexService;
+    private final IndexMapper indexMapper;
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+
+    // Written under cacheLock, read without it
+    private final Map<String, CachedIndexState> cache = new ConcurrentHashMap<>();
+    // The same entries access ordered for LRU eviction, guarded by cacheLock
+    private final Map<String, CachedIndexState> accessOrder = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private long cachedBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public IndexStateCache(IndexService indexService, IndexMapper indexMapper, ObjectMapper objectMapper,
+                           @Value("${index.state-cache.max-bytes:67108864}") long maxBytes) {
+        this.indexService = indexService;
+        this.indexMapper = indexMapper;
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+        indexService.addListener((previous, next) -> {
+            if (next == null) {
+                evict(previous.getIndexName());
+            }
+        });
+    }
+
+    /**
+     * Serialized state of one index, or null if the index does not exist.
+     */
+    public byte[] getIndexState(String indexName) {
+        IndexEntity indexEntity = indexService.getIndex(indexName);
+        if (indexEntity == null) {
+            return null;
+        }
+        return getFragment(indexEntity, true);
+    }
+
+    /**
+     * Serialized state of all indices, assembled from the cached per-index fragments.
+     */
+    public byte[] getAllIndicesState() {
+        Collection<IndexEntity> indices = indexService.getIndices();
+        List<byte[]> fragments = new ArrayList<>(indices.size());
+        int size = ALL_INDICES_PREFIX.length + ALL_INDICES_SUFFIX.length;
+        for (IndexEntity indexEntity : indices) {
+            // Reading every index tells nothing about which are in use, and would take the lock once per index
+            byte[] fragment = getFragment(indexEntity, false);
+            fragments.add(fragment);
+            size += fragment.length + 1;
+        }
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream(size);
+        response.writeBytes(ALL_INDICES_PREFIX);
+        for (int i = 0; i < fragments.size(); i++) {
+            if (i > 0) {
+                response.write(',');
+            }
+            response.writeBytes(fragments.get(i));
+        }
+        response.writeBytes(ALL_INDICES_SUFFIX);
+        return response.toByteArray();
+    }
+
+    /**
+     * Serialized page of index states with the cursor of the next page:
+     * {"indexDetails":[...],"nextCursor":"..."}, nextCursor is null on the last page.
+     * FULL states come from the cached per-index fragments.
+     */
+    public byte[] getIndicesStatePage(IndexPage page, View view) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream(view == View.FULL ? 4096 : 64 * page.indices().size() + 64);
+        response.writeBytes(ALL_INDICES_PREFIX);
+        for (int i = 0; i < page.indices().size(); i++) {
+            if (i > 0) {
+                response.write(',');
+            }
+            IndexEntity indexEntity = page.indices().get(i);
+            response.writeBytes(view == View.FULL ? getFragment(indexEntity, true)
+                    : serialize(new IndexValueResponseDTO(indexEntity.getIndexName(), indexEntity.getIndexValue())));
+        }
+        response.writeBytes(PAGE_CURSOR_PREFIX);
+        if (page.lastIndexName() != null) {
+            response.write('"');
+            response.writeBytes(encodeCursor(page.lastIndexName()).getBytes(StandardCharsets.US_ASCII));
+            response.write('"');
+        } else {
+            response.writeBytes(NULL);
+        }
+        response.write('}');
+        return response.toByteArray();
+    }
+
+    // Cursors are opaque to clients: the URL-safe Base64 of the last index name of a page
+    public static String encodeCursor(String indexName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(indexName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by encodeCursor
+     */
+    public static String decodeCursor(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    private byte[] getFragment(IndexEntity indexEntity, boolean recordAccess) {
+        String indexName = indexEntity.getIndexName();
+        CachedIndexState cached = cache.get(indexName);
+        if (cached != null && cached.version() == indexEntity.getVersion()) {
+            hits.increment();
+            if (recordAccess) {
+                touch(indexName);
+            }
+            return cached.json();
+        }
+
+        // Serialize outside the lock, the snapshot is immutable
+        misses.increment();
+        byte[] json = serialize(indexEntity);
+        put(indexEntity, new CachedIndexState(indexEntity.getVersion(), json));
+        return json;
+    }
+
+    // Moves the entry to the most recently used end, unless another thread is updating the order
+    private void touch(String indexName) {
+        if (cacheLock.tryLock()) {
+            try {
+                accessOrder.get(indexName);
+            } finally {
+                cacheLock.unlock();
+            }
+        }
+    }
+
+    private void put(IndexEntity indexEntity, CachedIndexState state) {
+        String indexName = indexEntity.getIndexName();
+        if (state.json().length > maxBytes) {
+            return;
+        }
+        cacheLock.lock();
+        try {
+            if (indexService.getIndex(indexName) != indexEntity) {
+                return; // replaced or deleted meanwhile, checked under cacheLock so a deletion cannot be missed
+            }
+            CachedIndexState previous = cache.get(indexName);
+            if (previous != null) {
+                if (previous.version() > state.version()) {
+                    return; // a newer version was cached meanwhile
+                }
+                cachedBytes -= previous.json().length;
+            }
+            cache.put(indexName, state);
+            accessOrder.put(indexName, state);
+            cachedBytes += state.json().length;
+
+            Iterator<Map.Entry<String, CachedIndexState>> eldest = accessOrder.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, CachedIndexState> evicted = eldest.next();
+                cachedBytes -= evicted.getValue().json().length;
+                eldest.remove();
+                cache.remove(evicted.getKey());
+                evictions.increment();
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private void evict(String indexName) {
+        cacheLock.lock();
+        try {
+            accessOrder.remove(indexName);
+            CachedIndexState removed = cache.remove(indexName);
+            if (removed != null) {
+                cachedBytes -= removed.json().length;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private byte[] serialize(IndexEntity indexEntity) {
+        return serialize(indexMapper.toDto(indexEntity));
+    }
+
+    private byte[] serialize(Object state) {
+        try {
+            return objectMapper.writeValueAsBytes(state);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize index state", e);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getCachedBytes() {
+        cacheLock.lock();
+        try {
+            return cachedBytes;
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("index.state.cache.requests", this, IndexStateCache::getHitCount)
+                .description("Index states served from the cache or serialized")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("index.state.cache.requests", this, IndexStateCache::getMissCount)
+                .description("Index states served from the cache or serialized")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("index.state.cache.evictions", this, IndexStateCache::getEvictionCount)
+                .description("Index states evicted to stay within the size limit")
+                .register(registry);
+        Gauge.builder("index.state.cache.size", this, IndexStateCache::getCachedBytes)
+                .description("Bytes of serialized index states held")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private record CachedIndexState(long version, byte[] json) {
+    }
+}
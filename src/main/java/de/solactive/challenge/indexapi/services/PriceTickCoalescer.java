@@ -0,0 +1,120 @@
+package de.solactive.challenge.indexapi.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ingests market price ticks and applies them to the indices once per cycle.
+ * Ticks for the same share are coalesced: only the latest price received during a cycle is applied,
+ * so a burst of ticks costs one map write each on the request thread and one index update per cycle.
+ * A price that cannot be applied is logged and dropped, it is not retried: the next tick of the share carries
+ * a newer price anyway, and a price rejected by one index does not hold back the other prices of the cycle.
+ */
+@Service
+public class PriceTickCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceTickCoalescer.class);
+
+    private final IndexService indexService;
+
+    // Latest price per share not yet applied
+    private final Map<String, Double> pendingPrices = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder ticksReceived = new LongAdder();
+    private final LongAdder pricesApplied = new LongAdder();
+    private final LongAdder pricesDropped = new LongAdder();
+
+    public PriceTickCoalescer(IndexService indexService, @Value("${index.prices.cycle-millis:10}") long cycleMillis) {
+        this.indexService = indexService;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "price-tick-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::applyPendingPrices, cycleMillis, cycleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void submit(String shareName, double sharePrice) {
+        pendingPrices.put(shareName, sharePrice);
+        ticksReceived.increment();
+    }
+
+    /**
+     * Applies the latest pending price of every share. Called by the scheduler once per cycle;
+     * a tick arriving while a cycle runs is applied in that cycle or the next one.
+     */
+    public void applyPendingPrices() {
+        Map<String, Double> cycle = new HashMap<>();
+        Iterator<String> shareNames = pendingPrices.keySet().iterator();
+        while (shareNames.hasNext()) {
+            String shareName = shareNames.next();
+            Double sharePrice = pendingPrices.remove(shareName);
+            if (sharePrice != null) {
+                cycle.put(shareName, sharePrice);
+            }
+        }
+        if (cycle.isEmpty()) {
+            return;
+        }
+        List<PriceUpdateFailure> failures;
+        try {
+            failures = indexService.applyPriceUpdates(cycle);
+        } catch (RuntimeException e) {
+            // Not caused by one index, e.g. the journal could not be synced; the scheduler has to stay alive
+            log.error("Could not apply the prices of {} shares, dropped them", cycle.size(), e);
+            pricesDropped.add(cycle.size());
+            return;
+        }
+
+        Set<String> droppedShares = new HashSet<>();
+        boolean cycleDropped = false;
+        for (PriceUpdateFailure failure : failures) {
+            if (failure.shareName() != null) {
+                log.warn("Dropped price {} of {} for index {}: {}", cycle.get(failure.shareName()), failure.shareName(),
+                        failure.indexName(), failure.error().getMessage());
+                droppedShares.add(failure.shareName());
+            } else {
+                // The update as a whole could not be journaled, none of its prices was applied
+                log.warn("Could not apply prices to index {}, dropped them", failure.indexName(), failure.error());
+                cycleDropped = true;
+            }
+        }
+        int dropped = cycleDropped ? cycle.size() : droppedShares.size();
+        pricesApplied.add(cycle.size() - dropped);
+        pricesDropped.add(dropped);
+    }
+
+    public long getTicksReceived() {
+        return ticksReceived.sum();
+    }
+
+    public long getPricesApplied() {
+        return pricesApplied.sum();
+    }
+
+    // Prices rejected by at least one index holding the share
+    public long getPricesDropped() {
+        return pricesDropped.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
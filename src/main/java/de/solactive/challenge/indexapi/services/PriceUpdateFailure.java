@@ -0,0 +1,10 @@
+package de.solactive.challenge.indexapi.services;
+
+/**
+ * A price that could not be applied to an index, see IndexService.applyPriceUpdates.
+ *
+ * @param shareName the share, or null if the whole update of the index failed (e.g. the journal could not be written)
+ * @param error     why the index was left unchanged
+ */
+public record PriceUpdateFailure(String indexName, String shareName, RuntimeException error) {
+}
@@ -0,0 +1,91 @@
+package de.solactive.challenge.indexapi.services;
+
+import java.util.Locale;
+
+/**
+ * Stage timings of one HTTP request, for the Server-Timing header:
+ * <ul>
+ *   <li>read: JSON binding of the request body</li>
+ *   <li>validate: from the bound body to the start of the IndexService operation, i.e. bean validation and dispatch</li>
+ *   <li>lock: time spent waiting for the index locks</li>
+ *   <li>service: the IndexService operation without the lock wait</li>
+ *   <li>total: from the start of the request until the response is committed</li>
+ * </ul>
+ * The timing is attached to the thread serving the request through RequestTimings, so the service stages are only
+ * seen when the operation runs on that thread (index.execution.mode=LOCKS).
+ */
+public final class RequestTiming {
+
+    private final long startNanos = System.nanoTime();
+    private long readStartNanos;
+    private long readEndNanos;
+    private long serviceStartNanos;
+    private long serviceNanos;
+    private long lockWaitNanos;
+    private long respondedNanos;
+
+    public void bodyReadStarted() {
+        readStartNanos = System.nanoTime();
+    }
+
+    public void bodyReadCompleted() {
+        readEndNanos = System.nanoTime();
+    }
+
+    void serviceCompleted(long startNanos, long endNanos) {
+        if (serviceStartNanos == 0) {
+            serviceStartNanos = startNanos;
+        }
+        serviceNanos += endNanos - startNanos;
+    }
+
+    void lockWaited(long nanos) {
+        lockWaitNanos += nanos;
+    }
+
+    /**
+     * Marks the response as committed, returns false if it was already.
+     */
+    public boolean responded() {
+        if (respondedNanos != 0) {
+            return false;
+        }
+        respondedNanos = System.nanoTime();
+        return true;
+    }
+
+    public long getTotalNanos() {
+        return respondedNanos - startNanos;
+    }
+
+    // Header value, in milliseconds: read;dur=0.120, validate;dur=0.035, lock;dur=0.002, service;dur=0.210, total;dur=0.480
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(96);
+        if (readEndNanos != 0) {
+            append(header, "read", readEndNanos - readStartNanos);
+            if (serviceStartNanos != 0) {
+                append(header, "validate", serviceStartNanos - readEndNanos);
+            }
+        }
+        if (serviceStartNanos != 0) {
+            append(header, "lock", lockWaitNanos);
+            append(header, "service", serviceNanos - lockWaitNanos);
+        }
+        append(header, "total", getTotalNanos());
+        return header.toString();
+    }
+
+    // The header value and the time spent writing the response since it was committed
+    public String toBreakdown() {
+        StringBuilder breakdown = new StringBuilder(toServerTiming());
+        append(breakdown, "write", System.nanoTime() - respondedNanos);
+        return breakdown.toString();
+    }
+
+    private static void append(StringBuilder header, String stage, long nanos) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        header.append(stage).append(";dur=").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+    }
+}
@@ -0,0 +1,31 @@
+package de.solactive.challenge.indexapi.services;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * The RequestTiming of the request each thread serves. Only registered with index.server-timing.enabled=true:
+ * the timing filter attaches the timings, and IndexMetrics attributes the operation and lock wait times to them.
+ * Without this component IndexMetrics does not look anything up.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "index.server-timing.enabled", havingValue = "true")
+public class RequestTimings {
+
+    private final ThreadLocal<RequestTiming> current = new ThreadLocal<>();
+
+    // Timing of the request served by this thread, null if none
+    public RequestTiming current() {
+        return current.get();
+    }
+
+    public void attach(RequestTiming timing) {
+        current.set(timing);
+    }
+
+    public void detach() {
+        current.remove();
+    }
+}
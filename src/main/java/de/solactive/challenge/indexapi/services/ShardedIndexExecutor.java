@@ -0,0 +1,234 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.IndexAdjustmentRequestsDTO;
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Single-writer execution: indices are hash-partitioned onto single-threaded shards, and a shard is the only
+ * thread mutating its indices. A shard owns whole lock stripes of IndexService (the shard count divides the
+ * stripe count), so other shards only contend for the locks it takes when a share changes price: a creation or
+ * an addition checks the share against its holders in every shard, and a dividend reprices them, so both lock
+ * those holders as price ticks do.
+ * <p>
+ * The shards still take the IndexService locks rather than relying on ownership alone. Price ticks, snapshot
+ * capture and bulk loading run outside the shards and lock the same stripes, and the share locks above span
+ * shards; without the locks a shard could publish an index that a price tick is repricing. A lock no other
+ * thread holds is one compare-and-set per stripe.
+ * <p>
+ * An operation spanning several shards (dividend, batch) is passed to all of them as a message. The messages of
+ * all such operations are enqueued in one global order, which makes the rendezvous deadlock-free: every involved
+ * shard but the lowest parks when it reaches the message, the lowest runs the operation once they are all parked.
+ * <p>
+ * Shard threads never block on the journal: the futures of journaled mutations are completed by a separate
+ * thread once their records are durable.
+ */
+@Service
+@ConditionalOnProperty(name = "index.execution.mode", havingValue = "SHARDED")
+public class ShardedIndexExecutor implements IndexExecutor {
+
+    private final IndexService indexService;
+    private final ExecutorService[] shards;
+    // Held while a cross-shard operation is enqueued, never while anything runs
+    private final ReentrantLock sequencer = new ReentrantLock();
+    private final ExecutorService durabilityWaiter;
+
+    /**
+     * @param shardCount number of shards, rounded up to a power of two and at most the number of lock stripes;
+     *                   0 for one shard per available processor
+     */
+    public ShardedIndexExecutor(IndexService indexService, @Value("${index.execution.shards:0}") int shardCount) {
+        this.indexService = indexService;
+        int requested = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        int powerOfTwo = requested <= 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+        this.shards = new ExecutorService[Math.min(powerOfTwo, indexService.getLockStripeCount())];
+        for (int i = 0; i < shards.length; i++) {
+            String threadName = "index-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    indexService.deferDurability();
+                    runnable.run();
+                }, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.durabilityWaiter = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-shard-durability");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createIndex(IndexDTO indexDTO) {
+        return submit(indexDTO.getIndexName(), () -> indexService.createIndex(indexDTO));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addShareToIndex(ShareAdditionDTO shareAdditionDTO) {
+        return submit(shareAdditionDTO.getIndexName(), () -> indexService.addShareToIndex(shareAdditionDTO));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteShareFromIndex(ShareDeletionDTO shareDeletionDTO) {
+        return submit(shareDeletionDTO.getIndexName(), () -> {
+            indexService.deleteShareFromIndex(shareDeletionDTO);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteIndex(String indexName) {
+        return submit(indexName, () -> indexService.deleteIndex(indexName));
+    }
+
+    // Holders that gain or lose the share before the dividend runs are still handled by the IndexService locks
+    @Override
+    public CompletableFuture<Void> applyDividend(ShareDividendDTO shareDividendDTO) {
+        return submit(indexService.getIndicesHoldingShare(shareDividendDTO.getShareName()), () -> {
+            indexService.applyDividend(shareDividendDTO);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<AdjustmentResult>> applyAdjustments(List<IndexAdjustmentRequestsDTO> operations, boolean allOrNothing) {
+        Set<String> indexNames = new HashSet<>();
+        for (IndexAdjustmentRequestsDTO operation : operations) {
+            if (operation.getAdditionOperation() != null) {
+                indexNames.add(operation.getAdditionOperation().getIndexName());
+            } else if (operation.getDeletionOperation() != null) {
+                indexNames.add(operation.getDeletionOperation().getIndexName());
+            } else if (operation.getDividendOperation() != null) {
+                indexNames.addAll(indexService.getIndicesHoldingShare(operation.getDividendOperation().getShareName()));
+            }
+        }
+        return submit(indexNames, () -> indexService.applyAdjustments(operations, allOrNothing));
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    int shardOf(String indexName) {
+        return indexService.stripeOf(indexName) & (shards.length - 1);
+    }
+
+    private <T> CompletableFuture<T> submit(String indexName, Supplier<T> mutation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        shards[indexName != null ? shardOf(indexName) : 0].execute(() -> runOwned(mutation, future));
+        return future;
+    }
+
+    private <T> CompletableFuture<T> submit(Collection<String> indexNames, Supplier<T> mutation) {
+        int[] involved = indexNames.stream().filter(Objects::nonNull).mapToInt(this::shardOf).distinct().sorted().toArray();
+        if (involved.length <= 1) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            shards[involved.length == 1 ? involved[0] : 0].execute(() -> runOwned(mutation, future));
+            return future;
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CountDownLatch parked = new CountDownLatch(involved.length - 1);
+        CountDownLatch released = new CountDownLatch(1);
+        sequencer.lock();
+        try {
+            shards[involved[0]].execute(() -> {
+                try {
+                    parked.await();
+                    runOwned(mutation, future);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(new CancellationException("Shard stopped"));
+                } finally {
+                    released.countDown();
+                }
+            });
+            for (int i = 1; i < involved.length; i++) {
+                shards[involved[i]].execute(() -> {
+                    parked.countDown();
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+        } finally {
+            sequencer.unlock();
+        }
+        return future;
+    }
+
+    // Runs on the shard thread; the future is completed once the journal records of the mutation are durable
+    private <T> void runOwned(Supplier<T> mutation, CompletableFuture<T> future) {
+        T result = null;
+        RuntimeException failure = null;
+        try {
+            result = mutation.get();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        long lsn = indexService.takeDeferredDurableLsn();
+        if (lsn == 0) {
+            complete(future, result, failure);
+            return;
+        }
+        T durableResult = result;
+        RuntimeException durableFailure = failure;
+        durabilityWaiter.execute(() -> {
+            try {
+                indexService.awaitJournal(lsn);
+                complete(future, durableResult, durableFailure);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, T result, RuntimeException failure) {
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    // Lets the queued operations finish; the durability waiter goes last, shards still hand futures to it
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        try {
+            for (ExecutorService shard : shards) {
+                shard.awaitTermination(5, TimeUnit.SECONDS);
+            }
+            durabilityWaiter.shutdown();
+            durabilityWaiter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
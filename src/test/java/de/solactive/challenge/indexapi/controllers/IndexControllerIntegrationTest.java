@@ -1,18 +1,24 @@
 package de.solactive.challenge.indexapi.controllers;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
 public class IndexControllerIntegrationTest {
 
     @Autowired
@@ -78,15 +84,176 @@ public class IndexControllerIntegrationTest {
                 .andExpect(status().isOk());
 
 
-        // Step 5: Get Index State
+        // Step 5: Get Index State, other tests share the application context and add their indices
+        String index1 = "$.indexDetails[?(@.indexName == 'INDEX_1')]";
         mockMvc.perform(get("/api/indexState"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.indexDetails[0].indexName").value("INDEX_1"))
-                .andExpect(jsonPath("$.indexDetails[0].indexValue").value(closeTo(4000.0, 0.00001)))
-                .andExpect(jsonPath("$.indexDetails[0].indexMembers[0].shareName").value("A.OQ"))
-                .andExpect(jsonPath("$.indexDetails[0].indexMembers[1].shareName").value("B.OQ"))
-                .andExpect(jsonPath("$.indexDetails[0].indexMembers[2].shareName").value("C.OQ"))
-                .andExpect(jsonPath("$.indexDetails[0].indexMembers[3].shareName").value("E.OQ"));
+                .andExpect(jsonPath(index1 + ".indexValue").value(hasItem(closeTo(4000.0, 0.00001))))
+                .andExpect(jsonPath(index1 + ".indexMembers[0].shareName").value("A.OQ"))
+                .andExpect(jsonPath(index1 + ".indexMembers[1].shareName").value("B.OQ"))
+                .andExpect(jsonPath(index1 + ".indexMembers[2].shareName").value("C.OQ"))
+                .andExpect(jsonPath(index1 + ".indexMembers[3].shareName").value("E.OQ"));
     }
-}
 
+    @Test
+    void integrationTest_BatchAdjustment() throws Exception {
+        mockMvc.perform(post("/api/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    {
+                      "indexName": "INDEX_BATCH",
+                      "indexMembers": [
+                        { "shareName": "BATCH_A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                        { "shareName": "BATCH_B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 }
+                      ]
+                    }
+                    """))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/indexAdjustment/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {
+                          "operations": [
+                            { "additionOperation": { "shareName": "BATCH_C.OQ", "sharePrice": 30.0, "numberOfShares": 40.0, "indexName": "INDEX_BATCH" } },
+                            { "additionOperation": { "shareName": "BATCH_C.OQ", "sharePrice": 30.0, "numberOfShares": 40.0, "indexName": "INDEX_BATCH" } },
+                            { "deletionOperation": { "shareName": "BATCH_A.OQ", "indexName": "MISSING_INDEX" } },
+                            { "dividendOperation": { "shareName": "BATCH_B.OQ", "dividend": 2.0 } }
+                          ]
+                        }
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value(201))
+                .andExpect(jsonPath("$.results[1].status").value(202))
+                .andExpect(jsonPath("$.results[2].status").value(404))
+                .andExpect(jsonPath("$.results[3].status").value(200));
+
+        mockMvc.perform(get("/api/indexState/INDEX_BATCH"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.indexValue").value(closeTo(800.0, 0.00001)))
+                .andExpect(jsonPath("$.indexMembers[2].shareName").value("BATCH_C.OQ"));
+    }
+
+    @Test
+    void integrationTest_IndexEventStream() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/api/indexEvents")
+                        .param("indexName", "INDEX_EVENTS")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/api/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    {
+                      "indexName": "INDEX_EVENTS",
+                      "indexMembers": [
+                        { "shareName": "EVENTS_A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                        { "shareName": "EVENTS_B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 }
+                      ]
+                    }
+                    """))
+                .andExpect(status().isCreated());
+
+        // Events are sent by the dispatcher thread
+        String body = "";
+        for (int i = 0; i < 50 && !body.contains("INDEX_EVENTS"); i++) {
+            Thread.sleep(20);
+            body = stream.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains("id:1"));
+        assertTrue(body.contains("event:index"));
+        assertTrue(body.contains("\"indexName\":\"INDEX_EVENTS\""));
+        assertTrue(body.contains("\"indexValue\":800.0"));
+    }
+
+    @Test
+    void integrationTest_IndexStatePages() throws Exception {
+        for (String indexName : new String[] {"PAGE_1", "PAGE_2", "PAGE_3"}) {
+            mockMvc.perform(post("/api/create")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                        {
+                          "indexName": "%s",
+                          "indexMembers": [
+                            { "shareName": "PAGE_A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                            { "shareName": "PAGE_B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 }
+                          ]
+                        }
+                        """.formatted(indexName)))
+                    .andExpect(status().isCreated());
+        }
+
+        MvcResult first = mockMvc.perform(get("/api/indexState").param("prefix", "PAGE_").param("limit", "2").param("view", "VALUES"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.indexDetails.length()").value(2))
+                .andExpect(jsonPath("$.indexDetails[0].indexName").value("PAGE_1"))
+                .andExpect(jsonPath("$.indexDetails[0].indexValue").value(closeTo(800.0, 0.00001)))
+                .andExpect(jsonPath("$.indexDetails[0].indexMembers").doesNotExist())
+                .andReturn();
+        String cursor = JsonPath.read(first.getResponse().getContentAsString(), "$.nextCursor");
+
+        mockMvc.perform(get("/api/indexState").param("prefix", "PAGE_").param("limit", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.indexDetails.length()").value(1))
+                .andExpect(jsonPath("$.indexDetails[0].indexName").value("PAGE_3"))
+                .andExpect(jsonPath("$.indexDetails[0].indexMembers.length()").value(2))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+
+        mockMvc.perform(get("/api/indexState").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/indexState").param("cursor", "not a cursor!"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void integrationTest_DeleteIndex() throws Exception {
+        String index = """
+                {
+                  "indexName": "DELETED_1",
+                  "indexMembers": [
+                    { "shareName": "DELETED_A.OQ", "sharePrice": %s, "numberOfShares": 20.0 },
+                    { "shareName": "DELETED_B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 }
+                  ]
+                }
+                """;
+        mockMvc.perform(post("/api/create").contentType(MediaType.APPLICATION_JSON).content(index.formatted("10.0")))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/indexState/DELETED_1")).andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/index/DELETED_1")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/indexState/DELETED_1")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/index/DELETED_1")).andExpect(status().isNotFound());
+
+        // Re-created under the same name
+        mockMvc.perform(post("/api/create").contentType(MediaType.APPLICATION_JSON).content(index.formatted("30.0")))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/indexState/DELETED_1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.indexValue").value(closeTo(1200.0, 0.00001)));
+    }
+
+    @Test
+    void integrationTest_PrometheusMetrics() throws Exception {
+        mockMvc.perform(post("/api/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    {
+                      "indexName": "METRICS_1",
+                      "indexMembers": [
+                        { "shareName": "METRICS_A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                        { "shareName": "METRICS_B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 }
+                      ]
+                    }
+                    """))
+                .andExpect(status().isCreated());
+
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(metrics.contains("index_operation_seconds_count{operation=\"create_index\",outcome=\"201\"}"), metrics);
+        assertTrue(metrics.contains("index_lock_wait_seconds_count{operation=\"create_index\"}"), metrics);
+        assertTrue(metrics.contains("index_count "), metrics);
+        assertTrue(metrics.contains("index_state_cache_requests_total{result=\"hit\"}"), metrics);
+    }
+}
@@ -0,0 +1,127 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Mutations running on the single-threaded shards, answered by an async dispatch
+@SpringBootTest(properties = {"index.execution.mode=SHARDED", "index.execution.shards=4"})
+@AutoConfigureMockMvc
+public class IndexControllerShardedIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    // A shard may have finished before the controller looks at the future, then the response is written at once
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
+
+    @Test
+    void shardedIntegrationTest_FullFlow() throws Exception {
+        performAsync(post("/api/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    {
+                      "indexName": "SHARDED_1",
+                      "indexMembers": [
+                        { "shareName": "SHARDED_A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                        { "shareName": "SHARDED_B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 },
+                        { "shareName": "SHARDED_C.OQ", "sharePrice": 30.0, "numberOfShares": 40.0 },
+                        { "shareName": "SHARDED_D.OQ", "sharePrice": 40.0, "numberOfShares": 50.0 }
+                      ]
+                    }
+                    """))
+                .andExpect(status().isCreated());
+
+        performAsync(post("/api/indexAdjustment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {
+                          "additionOperation": {
+                            "shareName": "SHARDED_E.OQ",
+                            "sharePrice": 10.0,
+                            "numberOfShares": 20.0,
+                            "indexName": "SHARDED_1"
+                          }
+                        }
+                        """))
+                .andExpect(status().isCreated());
+
+        performAsync(post("/api/indexAdjustment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {
+                          "deletionOperation": {
+                            "shareName": "SHARDED_D.OQ",
+                            "indexName": "SHARDED_1"
+                          }
+                        }
+                        """))
+                .andExpect(status().isOk());
+
+        performAsync(post("/api/indexAdjustment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {
+                          "dividendOperation": {
+                            "shareName": "SHARDED_A.OQ",
+                            "dividend": 2.0
+                          }
+                        }
+                        """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/indexState/SHARDED_1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.indexValue").value(closeTo(4000.0, 0.00001)))
+                .andExpect(jsonPath("$.indexMembers[3].shareName").value("SHARDED_E.OQ"));
+
+        performAsync(delete("/api/index/SHARDED_1")).andExpect(status().isOk());
+        performAsync(delete("/api/index/SHARDED_1")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shardedIntegrationTest_BatchAdjustment() throws Exception {
+        performAsync(post("/api/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    {
+                      "indexName": "SHARDED_BATCH",
+                      "indexMembers": [
+                        { "shareName": "SHARDED_BATCH_A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                        { "shareName": "SHARDED_BATCH_B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 }
+                      ]
+                    }
+                    """))
+                .andExpect(status().isCreated());
+
+        performAsync(post("/api/indexAdjustment/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {
+                          "operations": [
+                            { "additionOperation": { "shareName": "SHARDED_BATCH_C.OQ", "sharePrice": 30.0, "numberOfShares": 40.0, "indexName": "SHARDED_BATCH" } },
+                            { "deletionOperation": { "shareName": "SHARDED_BATCH_A.OQ", "indexName": "MISSING_INDEX" } },
+                            { "dividendOperation": { "shareName": "SHARDED_BATCH_B.OQ", "dividend": 2.0 } }
+                          ]
+                        }
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].status").value(201))
+                .andExpect(jsonPath("$.results[1].status").value(404))
+                .andExpect(jsonPath("$.results[2].status").value(200));
+    }
+}
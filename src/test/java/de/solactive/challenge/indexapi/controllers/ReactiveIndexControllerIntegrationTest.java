@@ -0,0 +1,147 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("reactive")
+public class ReactiveIndexControllerIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void integrationTest_FullFlow() {
+        post("/api/create", """
+                {
+                  "indexName": "INDEX_1",
+                  "indexMembers": [
+                    { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                    { "shareName": "B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 },
+                    { "shareName": "C.OQ", "sharePrice": 30.0, "numberOfShares": 40.0 },
+                    { "shareName": "D.OQ", "sharePrice": 40.0, "numberOfShares": 50.0 }
+                  ]
+                }
+                """).expectStatus().isCreated();
+        post("/api/create", """
+                { "indexName": "INDEX_1", "indexMembers": [
+                    { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                    { "shareName": "B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] }
+                """).expectStatus().isEqualTo(409);
+        post("/api/create", """
+                { "indexName": "", "indexMembers": [] }
+                """).expectStatus().isBadRequest();
+
+        post("/api/indexAdjustment", """
+                { "additionOperation": { "shareName": "E.OQ", "sharePrice": 10.0, "numberOfShares": 20.0, "indexName": "INDEX_1" } }
+                """).expectStatus().isCreated();
+        post("/api/indexAdjustment", """
+                { "deletionOperation": { "shareName": "D.OQ", "indexName": "INDEX_1" } }
+                """).expectStatus().isOk();
+        post("/api/indexAdjustment", """
+                { "deletionOperation": { "shareName": "D.OQ", "indexName": "MISSING_INDEX" } }
+                """).expectStatus().isNotFound();
+        post("/api/indexAdjustment", """
+                { "dividendOperation": { "shareName": "A.OQ", "dividend": 2.0 } }
+                """).expectStatus().isOk();
+
+        webTestClient.get().uri("/api/indexState/INDEX_1").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.indexMembers.length()").isEqualTo(4)
+                .jsonPath("$.indexMembers[3].shareName").isEqualTo("E.OQ");
+        webTestClient.get().uri("/api/indexState").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.indexDetails[0].indexName").isEqualTo("INDEX_1");
+
+        webTestClient.delete().uri("/api/index/INDEX_1").exchange().expectStatus().isOk();
+        webTestClient.delete().uri("/api/index/INDEX_1").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/indexState/INDEX_1").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void integrationTest_BulkBatchAndPages() {
+        webTestClient.post().uri("/api/create/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("""
+                        {"indexName":"PAGE_1","indexMembers":[{"shareName":"A.OQ","sharePrice":10.0,"numberOfShares":20.0},{"shareName":"B.OQ","sharePrice":20.0,"numberOfShares":30.0}]}
+                        {"indexName":"PAGE_2","indexMembers":[{"shareName":"A.OQ","sharePrice":10.0,"numberOfShares":20.0},{"shareName":"B.OQ","sharePrice":20.0,"numberOfShares":30.0}]}
+                        {"indexName":"PAGE_3","indexMembers":[{"shareName":"A.OQ","sharePrice":10.0,"numberOfShares":20.0},{"shareName":"B.OQ","sharePrice":20.0,"numberOfShares":30.0}]}
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.created").isEqualTo(3);
+
+        post("/api/indexAdjustment/batch", """
+                {
+                  "operations": [
+                    { "additionOperation": { "shareName": "C.OQ", "sharePrice": 30.0, "numberOfShares": 40.0, "indexName": "PAGE_1" } },
+                    { "additionOperation": { "shareName": "C.OQ", "sharePrice": 30.0, "numberOfShares": 40.0, "indexName": "PAGE_1" } },
+                    { "dividendOperation": { "shareName": "B.OQ", "dividend": 2.0 } }
+                  ]
+                }
+                """)
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.results[0].status").isEqualTo(201)
+                .jsonPath("$.results[1].status").isEqualTo(202)
+                .jsonPath("$.results[2].status").isEqualTo(200);
+
+        webTestClient.get().uri("/api/indexState?prefix=PAGE_&limit=2&view=VALUES").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.indexDetails.length()").isEqualTo(2)
+                .jsonPath("$.indexDetails[1].indexName").isEqualTo("PAGE_2")
+                .jsonPath("$.indexDetails[1].indexMembers").doesNotExist()
+                .jsonPath("$.nextCursor").isNotEmpty();
+        webTestClient.get().uri("/api/indexState?limit=0").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void integrationTest_IndexEventStream() throws Exception {
+        post("/api/create", """
+                { "indexName": "INDEX_EVENTS", "indexMembers": [
+                    { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                    { "shareName": "B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] }
+                """).expectStatus().isCreated();
+
+        CompletableFuture<String> firstEvent = CompletableFuture.supplyAsync(() -> webTestClient.get()
+                .uri("/api/indexEvents?indexName=INDEX_EVENTS")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseBody()
+                .blockFirst(Duration.ofSeconds(10)));
+
+        // The subscription is registered asynchronously, keep changing the index until an event arrives
+        for (int i = 1; i <= 100 && !firstEvent.isDone(); i++) {
+            post("/api/priceUpdate", """
+                    { "shareName": "A.OQ", "sharePrice": %d }
+                    """.formatted(10 + i)).expectStatus().isAccepted();
+            Thread.sleep(50);
+        }
+        String event = firstEvent.get(10, TimeUnit.SECONDS);
+        assertEquals("INDEX_EVENTS", JsonPath.read(event, "$.indexName"));
+        assertEquals("A.OQ", JsonPath.read(event, "$.changedMembers[0].shareName"));
+    }
+
+    private WebTestClient.ResponseSpec post(String uri, String json) {
+        return webTestClient.post().uri(uri).contentType(MediaType.APPLICATION_JSON).bodyValue(json).exchange();
+    }
+}
@@ -0,0 +1,58 @@
+package de.solactive.challenge.indexapi.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"index.server-timing.enabled=true", "index.server-timing.log-threshold-millis=0"})
+@AutoConfigureMockMvc
+public class ServerTimingIntegrationTest {
+
+    private static final String STAGE = "%s;dur=\\d+\\.\\d{3}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void serverTiming_StagesOfMutation() throws Exception {
+        mockMvc.perform(post("/api/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    {
+                      "indexName": "TIMED_1",
+                      "indexMembers": [
+                        { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                        { "shareName": "B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 }
+                      ]
+                    }
+                    """))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(ServerTimingFilter.SERVER_TIMING, matchesPattern(String.join(", ",
+                        STAGE.formatted("read"), STAGE.formatted("validate"), STAGE.formatted("lock"),
+                        STAGE.formatted("service"), STAGE.formatted("total")))));
+    }
+
+    @Test
+    void serverTiming_RequestWithoutServiceStage() throws Exception {
+        mockMvc.perform(get("/api/indexState"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ServerTimingFilter.SERVER_TIMING, matchesPattern(STAGE.formatted("total"))));
+
+        // Rejected by validation before reaching the service
+        mockMvc.perform(post("/api/indexAdjustment")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                    { "additionOperation": { "shareName": "", "sharePrice": 10.0, "numberOfShares": 20.0, "indexName": "TIMED_1" } }
+                    """))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string(ServerTimingFilter.SERVER_TIMING,
+                        matchesPattern(STAGE.formatted("read") + ", " + STAGE.formatted("total"))));
+    }
+}
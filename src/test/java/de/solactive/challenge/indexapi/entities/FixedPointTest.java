@@ -0,0 +1,79 @@
+package de.solactive.challenge.indexapi.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointTest {
+
+    @Test
+    void testFixedPoint_MultiplyDivideRoundsHalfEven() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long a = random.nextLong() >> random.nextInt(40);
+            long b = random.nextLong() >> random.nextInt(40);
+            long c = (random.nextLong() >> random.nextInt(62)) | 1;
+            assertMultiplyDivide(a, b, c);
+        }
+        assertEquals(2, FixedPoint.multiplyDivide(5, 1, 2));
+        assertEquals(-4, FixedPoint.multiplyDivide(-7, 1, 2));
+        assertEquals(1_000_000_000_000_000_000L, FixedPoint.toScaled(1e12, FixedPoint.SCALE));
+        assertThrows(IllegalArgumentException.class, () -> FixedPoint.toScaled(1e13, FixedPoint.SCALE));
+    }
+
+    @Test
+    void testFixedPoint_MultiplyDivideWithProductBeyond64Bits() {
+        Random random = new Random(13);
+        for (int i = 0; i < 10_000; i++) {
+            // Products of 2^80 to 2^126 divided down to about a long, so the 128-bit division is taken
+            long a = (random.nextLong() >>> 1) >>> random.nextInt(23);
+            long b = (random.nextLong() >>> 1) >>> random.nextInt(23);
+            long c = Math.max(1, Math.multiplyHigh(a, b) << 1 | random.nextLong() >>> (1 + random.nextInt(63)));
+            assertMultiplyDivide(random.nextBoolean() ? a : -a, b, c);
+        }
+        assertEquals(Long.MAX_VALUE - 1, FixedPoint.multiplyDivide(Long.MAX_VALUE, Long.MAX_VALUE - 1, Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> FixedPoint.multiplyDivide(Long.MAX_VALUE, 4, 2));
+    }
+
+    @Test
+    void testFixedPoint_DivideUnsignedHighWord() {
+        Random random = new Random(17);
+        for (int i = 0; i < 100_000; i++) {
+            long divisor = Math.max(2, random.nextLong() >>> (1 + random.nextInt(63)));
+            long high = 1 + Long.remainderUnsigned(random.nextLong(), divisor - 1);
+            assertDivideUnsigned(high, random.nextLong(), divisor);
+        }
+        // Largest dividends, divisors with a single bit or all bits set, and the smallest divisor above one digit
+        assertDivideUnsigned(Long.MAX_VALUE - 1, -1, Long.MAX_VALUE);
+        assertDivideUnsigned(1L << 61, 0, 1L << 62);
+        assertDivideUnsigned((1L << 62) - 1, -1, 1L << 62);
+        assertDivideUnsigned(1L << 32, -1, (1L << 32) + 1);
+        assertDivideUnsigned(0xFFFF_FFFFL, 0xFFFF_FFFF_0000_0000L, 0x1_0000_0000L);
+        assertDivideUnsigned(2, -1, 3);
+        assertDivideUnsigned(0x7FFF_FFFF_0000_0000L, 0x0000_0001_FFFF_FFFFL, 0x7FFF_FFFF_FFFF_FFFFL);
+        assertDivideUnsigned(0x4000_0000_0000_0000L, 0, 0x4000_0000_0000_0001L);
+    }
+
+    private static void assertMultiplyDivide(long a, long b, long c) {
+        BigDecimal expected = new BigDecimal(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)))
+                .divide(BigDecimal.valueOf(c), 0, RoundingMode.HALF_EVEN);
+        if (expected.toBigInteger().bitLength() < 64) {
+            assertEquals(expected.longValueExact(), FixedPoint.multiplyDivide(a, b, c), a + " * " + b + " / " + c);
+        } else {
+            assertThrows(IllegalArgumentException.class, () -> FixedPoint.multiplyDivide(a, b, c));
+        }
+    }
+
+    private static void assertDivideUnsigned(long high, long low, long divisor) {
+        BigInteger dividend = BigInteger.valueOf(high).shiftLeft(64).or(new BigInteger(Long.toUnsignedString(low)));
+        BigInteger expected = dividend.divide(BigInteger.valueOf(divisor));
+        assertTrue(expected.bitLength() <= 64);
+        assertEquals(expected.longValue(), FixedPoint.divideUnsigned(high, low, divisor),
+                high + ":" + Long.toUnsignedString(low) + " / " + divisor);
+    }
+}
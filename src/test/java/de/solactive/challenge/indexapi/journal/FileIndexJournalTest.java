@@ -0,0 +1,212 @@
+package de.solactive.challenge.indexapi.journal;
+
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.entities.ShareEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileIndexJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(FileIndexJournal.Durability.class)
+    void testReplay_ReturnsRecordsInOrder(FileIndexJournal.Durability durability) throws IOException {
+        Map<String, Double> prices = new LinkedHashMap<>();
+        prices.put("B.OQ", 210.0);
+        prices.put("A.OQ", 99.5);
+        List<JournalRecord> records = List.of(
+                new JournalRecord.CreateIndex("INDEX_1", NumericMode.FIXED_POINT, List.of(new ShareEntity("A.OQ", 100.0, 10.0), new ShareEntity("B.OQ", 200.0, 20.0))),
+                new JournalRecord.AddShare("INDEX_1", "C.OQ", 50.0, 5.0),
+                new JournalRecord.DeleteShare("INDEX_1", "C.OQ"),
+                new JournalRecord.Dividend("INDEX_1", "A.OQ", 1.5),
+                new JournalRecord.PriceUpdate("INDEX_1", prices));
+
+        try (FileIndexJournal journal = new FileIndexJournal(directory, durability, 1024 * 1024, 1)) {
+            long lsn = 0;
+            for (JournalRecord record : records) {
+                lsn = journal.append(record);
+            }
+            assertEquals(5, lsn);
+            journal.awaitDurable(lsn);
+        }
+
+        try (FileIndexJournal journal = new FileIndexJournal(directory, durability, 1024 * 1024, 1)) {
+            assertEquals(5, journal.getLastLsn());
+            List<JournalRecord> replayed = replay(journal);
+            assertEquals(records.subList(1, 5), replayed.subList(1, 5));
+            JournalRecord.CreateIndex createIndex = (JournalRecord.CreateIndex) replayed.get(0);
+            assertEquals("INDEX_1", createIndex.indexName());
+            assertEquals("B.OQ", createIndex.members().get(1).getShareName());
+            assertEquals(200.0, createIndex.members().get(1).getSharePrice(), 0.0);
+            assertEquals(20.0, createIndex.members().get(1).getNumberOfShares(), 0.0);
+            // Numbering continues after a restart
+            assertEquals(6, journal.append(new JournalRecord.DeleteShare("INDEX_1", "B.OQ")));
+        }
+    }
+
+    @Test
+    void testAppend_RollsSegments() throws IOException {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.PER_OP, 100, 0)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(new JournalRecord.AddShare("INDEX_1", "SHARE_" + i, 10.0, 1.0));
+            }
+            assertTrue(journal.listSegments().size() > 1);
+            assertEquals(10, replay(journal).size());
+        }
+    }
+
+    @Test
+    void testCompact_DropsCoveredSegments() throws IOException {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.PER_OP, 100, 0)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.append(new JournalRecord.AddShare("INDEX_1", "SHARE_" + i, 10.0, 1.0));
+            }
+            int segments = journal.listSegments().size();
+            journal.compact(6);
+
+            assertTrue(journal.listSegments().size() < segments);
+            // Every record after the compacted position is still there
+            List<Long> lsns = new ArrayList<>();
+            journal.replay(6, (lsn, record) -> lsns.add(lsn));
+            assertEquals(List.of(7L, 8L, 9L, 10L), lsns);
+            assertEquals(new JournalRecord.AddShare("INDEX_1", "SHARE_7", 10.0, 1.0), replay(journal).stream()
+                    .filter(record -> ((JournalRecord.AddShare) record).shareName().equals("SHARE_7")).findFirst().orElseThrow());
+
+            journal.compact(10);
+            assertEquals(1, journal.listSegments().size());
+        }
+    }
+
+    @Test
+    void testReplay_StopsAtTornRecord() throws IOException {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.PER_OP, 1024 * 1024, 0)) {
+            journal.append(new JournalRecord.AddShare("INDEX_1", "A.OQ", 10.0, 1.0));
+            journal.append(new JournalRecord.AddShare("INDEX_1", "B.OQ", 20.0, 2.0));
+        }
+
+        // Crash in the middle of the second record
+        Path segment = directory.resolve(FileIndexJournal.segmentName(1));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.PER_OP, 1024 * 1024, 0)) {
+            assertEquals(List.of(new JournalRecord.AddShare("INDEX_1", "A.OQ", 10.0, 1.0)), replay(journal));
+            assertEquals(1, journal.getLastLsn());
+            // The torn record is cut off, so the next record is readable after it
+            assertEquals(2, journal.append(new JournalRecord.AddShare("INDEX_1", "C.OQ", 30.0, 3.0)));
+        }
+
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.PER_OP, 1024 * 1024, 0)) {
+            assertEquals(List.of(new JournalRecord.AddShare("INDEX_1", "A.OQ", 10.0, 1.0),
+                    new JournalRecord.AddShare("INDEX_1", "C.OQ", 30.0, 3.0)), replay(journal));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = FileIndexJournal.Durability.class, names = {"PER_OP", "BATCHED"})
+    void testAppend_ContinuesAfterEmptyLastSegment(FileIndexJournal.Durability durability) throws IOException {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, durability, 1024 * 1024, 0)) {
+            journal.awaitDurable(journal.append(new JournalRecord.AddShare("INDEX_1", "A.OQ", 10.0, 1.0)));
+            journal.awaitDurable(journal.append(new JournalRecord.AddShare("INDEX_1", "B.OQ", 20.0, 2.0)));
+        }
+        // Crash right after a new segment was created
+        Files.createFile(directory.resolve(FileIndexJournal.segmentName(3)));
+
+        try (FileIndexJournal journal = new FileIndexJournal(directory, durability, 1024 * 1024, 0)) {
+            assertEquals(2, journal.getLastLsn());
+            long lsn = journal.append(new JournalRecord.AddShare("INDEX_1", "C.OQ", 30.0, 3.0));
+            assertEquals(3, lsn);
+            journal.awaitDurable(lsn);
+        }
+
+        try (FileIndexJournal journal = new FileIndexJournal(directory, durability, 1024 * 1024, 0)) {
+            assertEquals(3, replay(journal).size());
+            assertEquals(2, journal.listSegments().size());
+        }
+    }
+
+    @Test
+    void testAwaitDurable_BatchedCoversConcurrentAppends() throws Exception {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.BATCHED, 1024 * 1024, 0)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int writer = t;
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        journal.awaitDurable(journal.append(new JournalRecord.Dividend("INDEX_" + writer, "A.OQ", 0.01)));
+                    }
+                }));
+            }
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertEquals(800, journal.getDurableLsn());
+            assertEquals(800, replay(journal).size());
+        }
+    }
+
+    @Test
+    void testAppend_PerOpWriteFailureKeepsLaterRecordsReadable() throws IOException {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.PER_OP, 1, 0)) {
+            journal.append(new JournalRecord.AddShare("INDEX_1", "A.OQ", 10.0, 1.0));
+            // The segment of the next record cannot be created
+            Path blocked = Files.createDirectory(directory.resolve(FileIndexJournal.segmentName(2)));
+            assertThrows(UncheckedIOException.class,
+                    () -> journal.append(new JournalRecord.AddShare("INDEX_1", "B.OQ", 20.0, 2.0)));
+
+            Files.delete(blocked);
+            assertEquals(2, journal.append(new JournalRecord.AddShare("INDEX_1", "C.OQ", 30.0, 3.0)));
+            assertEquals(1, journal.getWriteFailures());
+        }
+
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.PER_OP, 1, 0)) {
+            List<Long> lsns = new ArrayList<>();
+            journal.replay(0, (lsn, record) -> lsns.add(lsn));
+            assertEquals(List.of(1L, 2L), lsns);
+            assertEquals(new JournalRecord.AddShare("INDEX_1", "C.OQ", 30.0, 3.0), replay(journal).get(1));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = FileIndexJournal.Durability.class, names = {"BATCHED", "ASYNC"})
+    void testAppend_RejectedOnceTheFlusherFailed(FileIndexJournal.Durability durability) throws Exception {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, durability, 1024 * 1024, 1)) {
+            // The first segment cannot be created
+            Files.delete(directory);
+            journal.append(new JournalRecord.AddShare("INDEX_1", "A.OQ", 10.0, 1.0));
+            while (journal.getFailure() == null) {
+                Thread.sleep(1);
+            }
+
+            assertThrows(UncheckedIOException.class,
+                    () -> journal.append(new JournalRecord.AddShare("INDEX_1", "B.OQ", 20.0, 2.0)));
+            assertEquals(1, journal.getWriteFailures());
+            assertEquals(0, journal.getDurableLsn());
+        }
+    }
+
+    private static List<JournalRecord> replay(IndexJournal journal) {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.replay(records::add);
+        return records;
+    }
+}
@@ -0,0 +1,114 @@
+package de.solactive.challenge.indexapi.journal;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.InstrumentMaster;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.entities.ShareEntity;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import de.solactive.challenge.indexapi.services.IndexService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexSnapshotStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLoadLatest_RestoresEveryField() throws IOException {
+        IndexService indexService = new IndexService(new IndexMapperImpl());
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("B.OQ", 200.0, 20.0), new ShareDTO("A.OQ", 100.0, 10.0))));
+        indexService.applyPriceUpdates(Map.of("A.OQ", 95.0));
+        indexService.addShareToIndex(new ShareAdditionDTO("C.OQ", 50.0, 2.5, "INDEX_1"));
+        IndexEntity index = indexService.getIndex("INDEX_1");
+
+        IndexSnapshotStore store = new IndexSnapshotStore(directory, 2);
+        store.write(new IndexSnapshot(7, List.of(new IndexSnapshot.Entry(9, index))));
+
+        IndexSnapshot snapshot = store.loadLatest();
+        assertEquals(7, snapshot.baseLsn());
+        assertEquals(1, snapshot.indices().size());
+        assertEquals(9, snapshot.indices().get(0).lsn());
+        IndexEntity restored = snapshot.indices().get(0).index();
+        assertEquals("INDEX_1", restored.getIndexName());
+        assertEquals(index.getDivisor(), restored.getDivisor(), 0.0);
+        assertEquals(index.getMarketValue(), restored.getMarketValue(), 0.0);
+        assertEquals(index.getUpdatesSinceResummation(), restored.getUpdatesSinceResummation());
+        assertEquals(3, restored.getVersion());
+        assertEquals(List.of("A.OQ", "B.OQ", "C.OQ"), restored.getMembers().stream().map(ShareEntity::getShareName).toList());
+        assertEquals(95.0, restored.getShare("A.OQ").getSharePrice(), 0.0);
+        assertEquals(2.5, restored.getShare("C.OQ").getNumberOfShares(), 0.0);
+    }
+
+    @Test
+    void testLoadLatest_RestoresFixedPointIndicesExactly() throws IOException {
+        IndexService indexService = new IndexService(new IndexMapperImpl(), MemberStorage.HEAP, NumericMode.FIXED_POINT);
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 123.456789, 3.3e10), new ShareDTO("B.OQ", 98.765432, 1.7e10))));
+        indexService.applyDividend(new ShareDividendDTO("A.OQ", 1.234567));
+        IndexEntity index = indexService.getIndex("INDEX_1");
+
+        IndexSnapshotStore store = new IndexSnapshotStore(directory, 2);
+        store.write(new IndexSnapshot(7, List.of(new IndexSnapshot.Entry(9, index))));
+
+        // The mode is read from the snapshot, not taken from the loading service
+        IndexEntity restored = store.loadLatest(MemberStorage.HEAP, new InstrumentMaster()).indices().get(0).index();
+        assertEquals(NumericMode.FIXED_POINT, restored.getNumericMode());
+        assertEquals(index.getStoredDivisor(), restored.getStoredDivisor());
+        assertEquals(index.getStoredMarketValue(), restored.getStoredMarketValue());
+        for (int slot = 0; slot < index.getShareCount(); slot++) {
+            assertEquals(index.getStoredSharePrice(slot), restored.getStoredSharePrice(slot));
+            assertEquals(index.getStoredNumberOfShares(slot), restored.getStoredNumberOfShares(slot));
+        }
+        assertEquals(index.getIndexValue(), restored.getIndexValue(), 0.0);
+    }
+
+    @Test
+    void testLoadLatest_FallsBackWhenNewestIsCorrupt() throws IOException {
+        IndexSnapshotStore store = new IndexSnapshotStore(directory, 2);
+        store.write(snapshot(10, 100.0));
+        store.write(snapshot(20, 110.0));
+
+        Path newest = directory.resolve(IndexSnapshotStore.snapshotName(20));
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        IndexSnapshot snapshot = store.loadLatest();
+        assertEquals(10, snapshot.baseLsn());
+        assertEquals(100.0, snapshot.indices().get(0).index().getShare("A.OQ").getSharePrice(), 0.0);
+    }
+
+    @Test
+    void testWrite_KeepsRetainedSnapshots() throws IOException {
+        IndexSnapshotStore store = new IndexSnapshotStore(directory, 2);
+        assertNull(store.loadLatest());
+        store.write(snapshot(10, 100.0));
+        store.write(snapshot(20, 110.0));
+        store.write(snapshot(30, 120.0));
+
+        assertEquals(2, store.listSnapshots().size());
+        assertEquals(20, store.getCompactableLsn());
+        assertEquals(30, store.getLatestLsn());
+    }
+
+    private static IndexSnapshot snapshot(long baseLsn, double price) {
+        IndexEntity index = new IndexEntity("INDEX_1", Map.of("A.OQ", new ShareEntity("A.OQ", price, 10.0)), new InstrumentMaster());
+        return new IndexSnapshot(baseLsn, List.of(new IndexSnapshot.Entry(baseLsn, index)));
+    }
+}
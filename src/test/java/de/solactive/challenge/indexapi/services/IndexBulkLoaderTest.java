@@ -0,0 +1,85 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import de.solactive.challenge.indexapi.dto.BulkCreateResponseDTO;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexBulkLoaderTest {
+
+    private IndexService indexService;
+    private IndexBulkLoader indexBulkLoader;
+
+    @BeforeEach
+    void setUp() {
+        indexService = new IndexService(new IndexMapperImpl());
+        // Spring Boot registers the parameter names module, which the DTO constructors rely on
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new ParameterNamesModule());
+        indexBulkLoader = new IndexBulkLoader(indexService, objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Test
+    void testCreateIndices_JsonArray() throws IOException {
+        BulkCreateResponseDTO response = load("""
+                [
+                  { "indexName": "INDEX_1", "indexMembers": [
+                      { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                      { "shareName": "B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] },
+                  { "indexName": "INDEX_2", "indexMembers": [
+                      { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                      { "shareName": "C.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] },
+                  { "indexName": "INDEX_1", "indexMembers": [
+                      { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 },
+                      { "shareName": "D.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] }
+                ]
+                """);
+
+        assertEquals(2, response.getCreated());
+        assertEquals(1, response.getConflicts());
+        assertEquals(0, response.getInvalid());
+        assertFalse(response.isMalformed());
+        assertEquals(2, indexService.getIndicesHoldingShare("A.OQ").size());
+    }
+
+    @Test
+    void testCreateIndices_NdjsonWithInvalidDefinitions() throws IOException {
+        BulkCreateResponseDTO response = load("""
+                { "indexName": "INDEX_1", "indexMembers": [ { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 }, { "shareName": "B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] }
+                { "indexName": "INDEX_2", "indexMembers": [ { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 } ] }
+                { "indexName": "INDEX_3", "indexMembers": [ { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 }, { "shareName": "A.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] }
+                { "indexName": "INDEX_4", "indexMembers": "not a list" }
+                { "indexName": "INDEX_5", "indexMembers": [ { "shareName": "C.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 }, { "shareName": "D.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] }
+                """);
+
+        assertEquals(2, response.getCreated());
+        assertEquals(0, response.getConflicts());
+        assertEquals(3, response.getInvalid());
+        assertNotNull(indexService.getIndex("INDEX_5"));
+    }
+
+    @Test
+    void testCreateIndices_StopsAtSyntaxError() throws IOException {
+        BulkCreateResponseDTO response = load("""
+                { "indexName": "INDEX_1", "indexMembers": [ { "shareName": "A.OQ", "sharePrice": 10.0, "numberOfShares": 20.0 }, { "shareName": "B.OQ", "sharePrice": 20.0, "numberOfShares": 30.0 } ] }
+                { "indexName": "INDEX_2", "indexMembers": [
+                """);
+
+        assertEquals(1, response.getCreated());
+        assertEquals(1, response.getInvalid());
+        assertTrue(response.isMalformed());
+    }
+
+    private BulkCreateResponseDTO load(String payload) throws IOException {
+        return indexBulkLoader.createIndices(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,78 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.*;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexConstituentsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IndexService indexService;
+    private IndexConstituents indexConstituents;
+
+    @BeforeEach
+    void setUp() {
+        indexService = new IndexService(new IndexMapperImpl());
+        indexConstituents = new IndexConstituents(indexService, new IndexMapperImpl(), objectMapper);
+
+        // Weights 10%, 40%, 20%, 10%, 20%
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 10.0, 10.0),
+                new ShareDTO("B.OQ", 40.0, 10.0),
+                new ShareDTO("C.OQ", 20.0, 10.0),
+                new ShareDTO("D.OQ", 10.0, 10.0),
+                new ShareDTO("E.OQ", 20.0, 10.0)
+        )));
+    }
+
+    @Test
+    void testGetConstituents_TopNAndWeightRange() throws Exception {
+        assertEquals(List.of("B.OQ", "C.OQ", "E.OQ"), shareNames(indexConstituents.getConstituents("INDEX_1", 3,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)));
+        assertEquals(List.of("C.OQ", "E.OQ", "A.OQ", "D.OQ"), shareNames(indexConstituents.getConstituents("INDEX_1",
+                Integer.MAX_VALUE, Double.NEGATIVE_INFINITY, 20.0)));
+        assertEquals(List.of("B.OQ", "C.OQ"), shareNames(indexConstituents.getConstituents("INDEX_1", 2, 15.0, 100.0)));
+
+        JsonNode response = objectMapper.readTree(indexConstituents.getConstituents("INDEX_1", 1, 0, 100));
+        assertEquals(indexService.getIndex("INDEX_1").getIndexValue(), response.get("indexValue").asDouble(), 1e-9);
+        assertEquals(40.0, response.get("indexMembers").get(0).get("indexWeightPct").asDouble(), 1e-9);
+
+        assertNull(indexConstituents.getConstituents("UNKNOWN", 1, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> indexConstituents.getConstituents("INDEX_1", 0, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> indexConstituents.getConstituents("INDEX_1", 1, 50, 10));
+    }
+
+    @Test
+    void testGetConstituents_MatchesFullSortOfTheIndexState() throws Exception {
+        Random random = new Random(25);
+        List<ShareDTO> shares = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            shares.add(new ShareDTO("S" + i + ".OQ", 1 + random.nextInt(100), 1 + random.nextInt(50)));
+        }
+        indexService.createIndex(new IndexDTO("INDEX_2", shares));
+
+        List<IndexMemberResponseDTO> expected = new ArrayList<>(new IndexMapperImpl().toDto(indexService.getIndex("INDEX_2")).getIndexMembers());
+        expected.sort((a, b) -> Double.compare(b.getIndexWeightPct(), a.getIndexWeightPct())); // stable, name order on ties
+
+        List<String> top = shareNames(indexConstituents.getConstituents("INDEX_2", 25,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        assertEquals(expected.subList(0, 25).stream().map(IndexMemberResponseDTO::getShareName).toList(), top);
+    }
+
+    private List<String> shareNames(byte[] response) throws Exception {
+        List<String> shareNames = new ArrayList<>();
+        for (JsonNode member : objectMapper.readTree(response).get("indexMembers")) {
+            shareNames.add(member.get("shareName").asText());
+        }
+        return shareNames;
+    }
+}
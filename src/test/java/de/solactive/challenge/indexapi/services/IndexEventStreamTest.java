@@ -0,0 +1,219 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.IndexEventDTO;
+import de.solactive.challenge.indexapi.dto.IndexMemberResponseDTO;
+import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexEventStreamTest {
+
+    private IndexService indexService;
+    private IndexEventStream indexEventStream;
+
+    @BeforeEach
+    void setUp() {
+        indexService = new IndexService(new IndexMapperImpl());
+        indexEventStream = new IndexEventStream(indexService, new IndexMapperImpl(), 2, 1, 60_000);
+
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 100.0, 10.0),
+                new ShareDTO("B.OQ", 200.0, 20.0),
+                new ShareDTO("C.OQ", 300.0, 30.0)
+        )));
+        indexService.createIndex(new IndexDTO("INDEX_2", List.of(
+                new ShareDTO("A.OQ", 100.0, 15.0),
+                new ShareDTO("D.OQ", 250.0, 25.0)
+        )));
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexEventStream.shutdown();
+    }
+
+    @Test
+    void testSubscribe_EventsForFilteredIndexWithChangedMembers() throws InterruptedException {
+        BlockingQueue<IndexEventDTO> events = new LinkedBlockingQueue<>();
+        indexEventStream.subscribe(Set.of("INDEX_1"), IndexEventStream.Overflow.DROP, sink(events, null));
+
+        indexService.applyPriceUpdates(Map.of("B.OQ", 210.0));
+        indexService.addShareToIndex(new ShareAdditionDTO("E.OQ", 50.0, 4.0, "INDEX_2")); // filtered out
+        indexService.deleteShareFromIndex(new ShareDeletionDTO("C.OQ", "INDEX_1"));
+
+        IndexEventDTO priceEvent = events.poll(5, TimeUnit.SECONDS);
+        assertEquals("INDEX_1", priceEvent.getIndexName());
+        assertEquals(2, priceEvent.getVersion());
+        assertEquals(100.0 * 10 + 210.0 * 20 + 300.0 * 30, priceEvent.getIndexValue(), 1e-9);
+        // Only the repriced member, the divisor did not change
+        assertEquals(List.of("B.OQ"), priceEvent.getChangedMembers().stream().map(IndexMemberResponseDTO::getShareName).toList());
+        assertTrue(priceEvent.getRemovedShares().isEmpty());
+
+        IndexEventDTO deletionEvent = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(3, deletionEvent.getVersion());
+        assertEquals(List.of("C.OQ"), deletionEvent.getRemovedShares());
+        // The divisor changed, so every remaining member has a new effective number of shares
+        assertEquals(2, deletionEvent.getChangedMembers().size());
+
+        indexService.deleteIndex("INDEX_1");
+        IndexEventDTO indexDeletedEvent = events.poll(5, TimeUnit.SECONDS);
+        assertTrue(indexDeletedEvent.isDeleted());
+        assertEquals(4, indexDeletedEvent.getVersion());
+        assertEquals(List.of("A.OQ", "B.OQ"), indexDeletedEvent.getRemovedShares());
+        assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testOverflow_DropNeverBlocksWriters() throws InterruptedException {
+        BlockingQueue<IndexEventDTO> events = new LinkedBlockingQueue<>();
+        CountDownLatch release = new CountDownLatch(1);
+        IndexEventStream.Subscription subscription = indexEventStream.subscribe(null, IndexEventStream.Overflow.DROP, sink(events, release));
+
+        for (int i = 1; i <= 20; i++) {
+            indexService.applyPriceUpdates(Map.of("D.OQ", 250.0 + i));
+        }
+        // At most two changes are held by the blocked sink, two are buffered, the others are dropped
+        assertTrue(subscription.getDroppedCount() >= 16);
+        release.countDown();
+
+        IndexEventDTO last = null;
+        for (int i = 0; i < 20 - subscription.getDroppedCount(); i++) {
+            last = events.poll(5, TimeUnit.SECONDS);
+        }
+        assertNotNull(last);
+        assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testOverflow_ConflateDeliversLatestVersion() throws InterruptedException {
+        BlockingQueue<IndexEventDTO> events = new LinkedBlockingQueue<>();
+        CountDownLatch release = new CountDownLatch(1);
+        IndexEventStream.Subscription subscription = indexEventStream.subscribe(Set.of("INDEX_1"), IndexEventStream.Overflow.CONFLATE,
+                sink(events, release));
+
+        indexService.applyPriceUpdates(Map.of("B.OQ", 201.0));
+        for (int i = 1; i <= 20; i++) {
+            indexService.applyPriceUpdates(Map.of("C.OQ", 300.0 + i));
+        }
+        release.countDown();
+
+        List<IndexEventDTO> received = new ArrayList<>();
+        IndexEventDTO event;
+        while ((event = events.poll(200, TimeUnit.MILLISECONDS)) != null) {
+            received.add(event);
+        }
+        IndexEventDTO last = received.get(received.size() - 1);
+        assertEquals(22, last.getVersion());
+        IndexMemberResponseDTO repriced = last.getChangedMembers().stream()
+                .filter(member -> member.getShareName().equals("C.OQ")).findFirst().orElseThrow();
+        assertEquals(320.0, repriced.getSharePrice(), 0.0);
+        assertEquals(0, subscription.getDroppedCount());
+        assertTrue(subscription.getConflatedCount() > 0);
+        assertTrue(received.size() < 21);
+    }
+
+    @Test
+    void testDemand_NothingSentUntilResumed() throws InterruptedException {
+        BlockingQueue<IndexEventDTO> events = new LinkedBlockingQueue<>();
+        AtomicLong demand = new AtomicLong();
+        IndexEventStream.Subscription subscription = indexEventStream.subscribe(Set.of("INDEX_1"), IndexEventStream.Overflow.CONFLATE,
+                new IndexEventStream.Sink() {
+                    @Override
+                    public void send(IndexEventDTO event) {
+                        demand.decrementAndGet();
+                        events.add(event);
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+
+                    @Override
+                    public long demand() {
+                        return demand.get();
+                    }
+                });
+
+        for (int i = 1; i <= 5; i++) {
+            indexService.applyPriceUpdates(Map.of("C.OQ", 300.0 + i));
+        }
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+
+        demand.set(1);
+        subscription.resume();
+        IndexEventDTO event = events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(6, event.getVersion()); // conflated while there was no demand
+        assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testSendTimeout_BlockedSubscribersAreEvicted() throws InterruptedException {
+        IndexEventStream eventStream = new IndexEventStream(indexService, new IndexMapperImpl(), 2, 2, 100);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < 4; i++) {
+                eventStream.subscribe(null, IndexEventStream.Overflow.CONFLATE, sink(new LinkedBlockingQueue<>(), release));
+            }
+            BlockingQueue<IndexEventDTO> events = new LinkedBlockingQueue<>();
+            eventStream.subscribe(Set.of("INDEX_2"), IndexEventStream.Overflow.CONFLATE, sink(events, null));
+
+            // The blocked subscribers are dispatched first and hold both dispatcher threads until they are evicted
+            indexService.applyPriceUpdates(Map.of("D.OQ", 251.0));
+            IndexEventDTO event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(2, event.getVersion());
+            // The last blocked send may still be waiting for the watchdog while the free thread delivered the event
+            for (int i = 0; i < 50 && eventStream.getEvictedCount() < 4; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(4, eventStream.getEvictedCount());
+            assertEquals(1, eventStream.getSubscriberCount());
+
+            // The blocked sends return and the pool shrinks back, the remaining subscriber still receives events
+            release.countDown();
+            indexService.applyPriceUpdates(Map.of("D.OQ", 252.0));
+            assertEquals(3, events.poll(5, TimeUnit.SECONDS).getVersion());
+        } finally {
+            eventStream.shutdown();
+        }
+    }
+
+    // Sink that blocks on its first event until released
+    private static IndexEventStream.Sink sink(BlockingQueue<IndexEventDTO> events, CountDownLatch release) {
+        return new IndexEventStream.Sink() {
+            @Override
+            public void send(IndexEventDTO event) {
+                if (release != null) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                events.add(event);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
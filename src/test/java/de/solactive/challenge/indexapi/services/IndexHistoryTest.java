@@ -0,0 +1,80 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.*;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexHistoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private IndexService indexService;
+    private IndexHistory indexHistory;
+
+    @BeforeEach
+    void setUp() {
+        indexService = new IndexService(new IndexMapperImpl());
+        indexHistory = new IndexHistory(indexService, objectMapper, 4, clock::get);
+
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 100.0, 10.0),
+                new ShareDTO("B.OQ", 200.0, 20.0)
+        )));
+    }
+
+    @Test
+    void testGetHistory_RawPointsInRange() throws Exception {
+        clock.set(2_000);
+        indexService.applyPriceUpdates(Map.of("A.OQ", 110.0));
+        clock.set(3_000);
+        indexService.applyPriceUpdates(Map.of("A.OQ", 90.0));
+
+        JsonNode points = objectMapper.readTree(indexHistory.getHistory("INDEX_1", 1_500, 3_000, 0)).get("points");
+
+        assertEquals(2, points.size());
+        assertEquals(2_000, points.get(0).get("timestamp").asLong());
+        assertEquals(2, points.get(0).get("version").asLong());
+        assertEquals(indexService.getIndex("INDEX_1").getIndexValue(), points.get(1).get("value").asDouble(), 1e-9);
+        assertNull(indexHistory.getHistory("UNKNOWN", 0, Long.MAX_VALUE, 0));
+        assertThrows(IllegalArgumentException.class, () -> indexHistory.getHistory("INDEX_1", 2, 1, 0));
+    }
+
+    @Test
+    void testGetHistory_OhlcBucketsAndOldestPointsOverwritten() throws Exception {
+        double[] prices = {120.0, 80.0, 150.0, 130.0};
+        long[] times = {1_200, 1_700, 2_100, 2_900};
+        double[] values = new double[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            clock.set(times[i]);
+            indexService.applyPriceUpdates(Map.of("A.OQ", prices[i]));
+            values[i] = indexService.getIndex("INDEX_1").getIndexValue();
+        }
+
+        // Capacity 4: the point of the creation was overwritten
+        assertEquals(4, indexHistory.getPointCount("INDEX_1"));
+        JsonNode buckets = objectMapper.readTree(indexHistory.getHistory("INDEX_1", 0, Long.MAX_VALUE, 1_000)).get("buckets");
+
+        assertEquals(2, buckets.size());
+        JsonNode first = buckets.get(0);
+        assertEquals(1_000, first.get("start").asLong());
+        assertEquals(values[0], first.get("open").asDouble(), 1e-9);
+        assertEquals(values[0], first.get("high").asDouble(), 1e-9);
+        assertEquals(values[1], first.get("low").asDouble(), 1e-9);
+        assertEquals(values[1], first.get("close").asDouble(), 1e-9);
+        assertEquals(2, first.get("count").asInt());
+        assertEquals(2_000, buckets.get(1).get("start").asLong());
+        assertEquals(values[2], buckets.get(1).get("high").asDouble(), 1e-9);
+
+        assertTrue(indexService.deleteIndex("INDEX_1"));
+        assertEquals(0, indexHistory.getPointCount("INDEX_1"));
+    }
+}
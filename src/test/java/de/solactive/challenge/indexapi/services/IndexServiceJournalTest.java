@@ -0,0 +1,228 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.*;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.journal.FileIndexJournal;
+import de.solactive.challenge.indexapi.journal.IndexSnapshotStore;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexServiceJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReplay_RebuildsIdenticalSnapshots() throws IOException {
+        Map<String, IndexEntity> before;
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.BATCHED)) {
+            IndexService indexService = new IndexService(new IndexMapperImpl(), journal);
+            createIndices(indexService);
+            indexService.addShareToIndex(new ShareAdditionDTO("E.OQ", 50.0, 4.0, "INDEX_1"));
+            indexService.addShareToIndex(new ShareAdditionDTO("A.OQ", 100.0, 1.0, "INDEX_1")); // not journaled
+            indexService.deleteShareFromIndex(new ShareDeletionDTO("B.OQ", "INDEX_1"));
+            indexService.applyDividend(new ShareDividendDTO("A.OQ", 2.5));
+            indexService.applyPriceUpdates(Map.of("C.OQ", 160.0, "A.OQ", 97.0));
+            indexService.applyAdjustments(List.of(
+                    addition("F.OQ", "INDEX_2"),
+                    dividend("F.OQ", 1.0),
+                    addition("G.OQ", "UNKNOWN")), false);
+            // Rolled back, must not reach the journal
+            indexService.applyAdjustments(List.of(
+                    addition("H.OQ", "INDEX_1"),
+                    dividend("H.OQ", 1000.0)), true);
+            before = Map.copyOf(indexService.getIndexMap());
+        }
+
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.BATCHED)) {
+            IndexService restarted = new IndexService(new IndexMapperImpl(), journal);
+
+            assertSameState(before, restarted);
+            assertNull(restarted.getIndex("INDEX_1").getShare("H.OQ"));
+            assertEquals(List.of("INDEX_2"), restarted.getIndicesHoldingShare("F.OQ"));
+        }
+    }
+
+    @Test
+    void testRecovery_SnapshotPlusJournalTail() throws IOException {
+        IndexSnapshotStore snapshotStore = new IndexSnapshotStore(directory, 2);
+        Map<String, IndexEntity> before;
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.PER_OP)) {
+            IndexService indexService = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+            createIndices(indexService);
+            indexService.applyDividend(new ShareDividendDTO("A.OQ", 2.5));
+            snapshotStore.write(indexService.captureSnapshot());
+            journal.compact(snapshotStore.getCompactableLsn());
+
+            // Journal tail after the snapshot
+            indexService.addShareToIndex(new ShareAdditionDTO("E.OQ", 50.0, 4.0, "INDEX_2"));
+            indexService.createIndex(new IndexDTO("INDEX_3", List.of(new ShareDTO("A.OQ", 97.5, 1.0))));
+            indexService.applyDividend(new ShareDividendDTO("A.OQ", 1.0));
+            before = Map.copyOf(indexService.getIndexMap());
+        }
+
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.PER_OP)) {
+            IndexService restarted = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+            assertSameState(before, restarted);
+            assertEquals(List.of("INDEX_1", "INDEX_2", "INDEX_3"), restarted.getIndicesHoldingShare("A.OQ"));
+            // The restored and the replayed indices read one price book again
+            assertSame(restarted.getIndex("INDEX_1").getPrices(), restarted.getIndex("INDEX_3").getPrices());
+        }
+    }
+
+    @Test
+    void testRecovery_KeepsTheNumericModeOfEachIndex() throws IOException {
+        IndexSnapshotStore snapshotStore = new IndexSnapshotStore(directory, 2);
+        Map<String, IndexEntity> before;
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.PER_OP)) {
+            IndexService indexService = new IndexService(new IndexMapperImpl(), journal, snapshotStore, 16,
+                    IndexMetrics.none(), MemberStorage.HEAP, NumericMode.FIXED_POINT);
+            indexService.createIndex(new IndexDTO("INDEX_1", List.of(new ShareDTO("A.OQ", 40.123457, 1e10),
+                    new ShareDTO("B.OQ", 35.5, 2.5e10), new ShareDTO("C.OQ", 24.5, 1e10))));
+            indexService.applyDividend(new ShareDividendDTO("A.OQ", 0.333333));
+            snapshotStore.write(indexService.captureSnapshot());
+            journal.compact(snapshotStore.getCompactableLsn());
+
+            // Journal tail after the snapshot
+            indexService.createIndex(new IndexDTO("INDEX_2", List.of(new ShareDTO("A.OQ", 39.790124, 3e10),
+                    new ShareDTO("D.OQ", 1234.567891, 1e9))));
+            indexService.addShareToIndex(new ShareAdditionDTO("E.OQ", 17.25, 4e10, "INDEX_1"));
+            indexService.applyDividend(new ShareDividendDTO("A.OQ", 0.1));
+            before = Map.copyOf(indexService.getIndexMap());
+        }
+
+        // Restarted in the default DOUBLE mode, the indices keep the mode they were created in
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.PER_OP)) {
+            IndexService restarted = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+            assertSameState(before, restarted);
+            assertEquals(NumericMode.FIXED_POINT, restarted.getIndex("INDEX_1").getNumericMode());
+            assertEquals(NumericMode.FIXED_POINT, restarted.getIndex("INDEX_2").getNumericMode());
+        }
+    }
+
+    @Test
+    void testRecovery_DeletedAndRecreatedIndex() throws IOException {
+        IndexSnapshotStore snapshotStore = new IndexSnapshotStore(directory, 2);
+        Map<String, IndexEntity> before;
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.PER_OP)) {
+            IndexService indexService = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+            createIndices(indexService);
+            indexService.addShareToIndex(new ShareAdditionDTO("E.OQ", 50.0, 4.0, "INDEX_2"));
+            snapshotStore.write(indexService.captureSnapshot());
+
+            // Deleted after the snapshot, then re-created with other members
+            indexService.addShareToIndex(new ShareAdditionDTO("F.OQ", 60.0, 2.0, "INDEX_2"));
+            assertTrue(indexService.deleteIndex("INDEX_2"));
+            indexService.createIndex(new IndexDTO("INDEX_2", List.of(new ShareDTO("B.OQ", 200.0, 3.0))));
+            assertTrue(indexService.deleteIndex("INDEX_1"));
+            before = Map.copyOf(indexService.getIndexMap());
+        }
+
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.PER_OP)) {
+            IndexService restarted = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+            assertSameState(before, restarted);
+            assertEquals(1, restarted.getIndex("INDEX_2").getVersion());
+            assertTrue(restarted.getIndicesHoldingShare("E.OQ").isEmpty());
+            assertTrue(restarted.getIndicesHoldingShare("A.OQ").isEmpty());
+            assertEquals(List.of("INDEX_2"), restarted.getIndicesHoldingShare("B.OQ"));
+        }
+    }
+
+    @Test
+    void testCaptureSnapshot_ConsistentWhileWritersRun() throws Exception {
+        IndexSnapshotStore snapshotStore = new IndexSnapshotStore(directory, 2);
+        Map<String, IndexEntity> before;
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.ASYNC)) {
+            IndexService indexService = new IndexService(new IndexMapperImpl(), journal, snapshotStore);
+            createIndices(indexService);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    indexService.createIndex(new IndexDTO("INDEX_W" + t, List.of(
+                            new ShareDTO("A.OQ", 100.0, 10.0), new ShareDTO("B.OQ", 200.0, 10.0), new ShareDTO("C.OQ", 250.0, 10.0))));
+                }
+                for (int t = 0; t < 4; t++) {
+                    String indexName = "INDEX_W" + t;
+                    String shareName = "X" + t + ".OQ";
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < 500; i++) {
+                            indexService.addShareToIndex(new ShareAdditionDTO(shareName, 50.0 + i, 5.0, indexName));
+                            indexService.deleteShareFromIndex(new ShareDeletionDTO(shareName, indexName));
+                            indexService.applyPriceUpdates(Map.of("A.OQ", 100.0 + i));
+                        }
+                    }));
+                }
+                for (int i = 0; i < 5; i++) {
+                    snapshotStore.write(indexService.captureSnapshot());
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            before = Map.copyOf(indexService.getIndexMap());
+        }
+
+        try (FileIndexJournal journal = journal(FileIndexJournal.Durability.ASYNC)) {
+            assertSameState(before, new IndexService(new IndexMapperImpl(), journal, snapshotStore));
+        }
+    }
+
+    private static void assertSameState(Map<String, IndexEntity> before, IndexService restarted) {
+        assertEquals(before.keySet(), restarted.getIndexMap().keySet());
+        for (IndexEntity expected : before.values()) {
+            IndexEntity actual = restarted.getIndex(expected.getIndexName());
+            assertEquals(expected.getVersion(), actual.getVersion());
+            assertEquals(expected.getNumericMode(), actual.getNumericMode());
+            assertEquals(expected.getStoredDivisor(), actual.getStoredDivisor());
+            assertEquals(expected.getStoredMarketValue(), actual.getStoredMarketValue());
+            assertEquals(expected.getShares().keySet(), actual.getShares().keySet());
+            for (int slot = 0; slot < expected.getShareCount(); slot++) {
+                assertEquals(expected.getStoredSharePrice(slot), actual.getStoredSharePrice(slot));
+                assertEquals(expected.getStoredNumberOfShares(slot), actual.getStoredNumberOfShares(slot));
+            }
+        }
+    }
+
+    private FileIndexJournal journal(FileIndexJournal.Durability durability) throws IOException {
+        return new FileIndexJournal(directory, durability, 1024 * 1024, 10);
+    }
+
+    private static void createIndices(IndexService indexService) {
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 100.0, 10.0),
+                new ShareDTO("B.OQ", 200.0, 20.0),
+                new ShareDTO("D.OQ", 80.0, 7.0))));
+        indexService.createIndex(new IndexDTO("INDEX_2", List.of(
+                new ShareDTO("A.OQ", 100.0, 15.0),
+                new ShareDTO("C.OQ", 250.0, 25.0))));
+    }
+
+    private static IndexAdjustmentRequestsDTO addition(String shareName, String indexName) {
+        IndexAdjustmentRequestsDTO operation = new IndexAdjustmentRequestsDTO();
+        operation.setAdditionOperation(new ShareAdditionDTO(shareName, 20.0, 3.0, indexName));
+        return operation;
+    }
+
+    private static IndexAdjustmentRequestsDTO dividend(String shareName, double dividend) {
+        IndexAdjustmentRequestsDTO operation = new IndexAdjustmentRequestsDTO();
+        operation.setDividendOperation(new ShareDividendDTO(shareName, dividend));
+        return operation;
+    }
+}
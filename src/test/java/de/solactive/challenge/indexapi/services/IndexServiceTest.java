@@ -1,16 +1,35 @@
 package de.solactive.challenge.indexapi.services;
 
+import de.solactive.challenge.indexapi.dto.IndexAdjustmentRequestsDTO;
+import de.solactive.challenge.indexapi.dto.IndexDTO;
 import de.solactive.challenge.indexapi.dto.ShareAdditionDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
 import de.solactive.challenge.indexapi.dto.ShareDeletionDTO;
 import de.solactive.challenge.indexapi.dto.ShareDividendDTO;
+import de.solactive.challenge.indexapi.entities.FixedPoint;
 import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
 import de.solactive.challenge.indexapi.entities.ShareEntity;
+import de.solactive.challenge.indexapi.journal.IndexJournal;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -35,11 +54,8 @@ class IndexServiceTest {
         sharesMap.put("META.OQ", metaShare);
         sharesMap.put("INTL.OQ", intlShare);
 
-        // Create the index entity with the shares map
-        IndexEntity indexEntity = new IndexEntity("INDEX_1", sharesMap);
-
-        // Add the index entity to the index map in the service
-        indexService.getIndexMap().put("INDEX_1", indexEntity);
+        // Add the index built from the shares map to the index map in the service
+        indexService.registerIndex("INDEX_1", sharesMap);
     }
 
 
@@ -106,8 +122,7 @@ class IndexServiceTest {
                 "AMDD.OQ", new ShareEntity("AMDD.OQ", 200.0, 5.0),
                 "ORAC.OQ", new ShareEntity("ORAC.OQ", 200.0, 5.0)));
 
-        IndexEntity indexEntity = new IndexEntity("INDEX_3Members",shares);
-        indexService.getIndexMap().put("INDEX_3Members", indexEntity);
+        indexService.registerIndex("INDEX_3Members", shares);
 
 
         // Delete one member
@@ -176,4 +191,463 @@ class IndexServiceTest {
 
         assertEquals("Share not found in any index: TSLA.OQ", exception.getMessage());
     }
+
+    @Test
+    void testApplyDividend_OnlyHoldersAreAdjusted() {
+        Map<String, ShareEntity> shares = new ConcurrentHashMap<>(Map.of(
+                "ORAC.OQ", new ShareEntity("ORAC.OQ", 100.0, 10.0),
+                "AMDD.OQ", new ShareEntity("AMDD.OQ", 50.0, 20.0)));
+        indexService.registerIndex("INDEX_2", shares);
+
+        indexService.applyDividend(new ShareDividendDTO("AAPL.OQ", 5.0));
+
+        assertEquals(List.of("INDEX_1"), indexService.getIndicesHoldingShare("AAPL.OQ"));
+        assertEquals(100.0, indexService.getIndexMap().get("INDEX_2").getShares().get("ORAC.OQ").getSharePrice(), 0.0);
+        assertEquals(10.0, indexService.getIndexMap().get("INDEX_2").getShares().get("ORAC.OQ").getNumberOfShares(), 0.0);
+    }
+
+    @Test
+    void testSharedPrice_ConflictingPriceIsRejected() {
+        indexService.registerIndex("INDEX_2", Map.of(
+                "AAPL.OQ", new ShareEntity("AAPL.OQ", 150.0, 4.0),
+                "ORAC.OQ", new ShareEntity("ORAC.OQ", 100.0, 10.0)));
+        indexService.registerIndex("INDEX_3", Map.of(
+                "ORAC.OQ", new ShareEntity("ORAC.OQ", 100.0, 2.0),
+                "AMDD.OQ", new ShareEntity("AMDD.OQ", 50.0, 20.0)));
+
+        // The holders of AAPL.OQ are not repriced by an unrelated addition
+        Exception exception = assertThrows(IllegalArgumentException.class,
+                () -> indexService.addShareToIndex(new ShareAdditionDTO("AAPL.OQ", 160.0, 5.0, "INDEX_3")));
+        assertEquals("Share price of AAPL.OQ differs from its current price 150.0", exception.getMessage());
+        assertNull(indexService.getIndexMap().get("INDEX_3").getShare("AAPL.OQ"));
+        assertEquals(1, indexService.getIndexMap().get("INDEX_2").getVersion());
+
+        assertTrue(indexService.addShareToIndex(new ShareAdditionDTO("AAPL.OQ", 150.0, 5.0, "INDEX_3")));
+        indexService.applyPriceUpdates(Map.of("AAPL.OQ", 160.0));
+
+        IndexEntity index1 = indexService.getIndexMap().get("INDEX_1");
+        // One price for all holders, read from the same book
+        for (String indexName : List.of("INDEX_1", "INDEX_2", "INDEX_3")) {
+            IndexEntity indexEntity = indexService.getIndexMap().get(indexName);
+            assertEquals(160.0, indexEntity.getShare("AAPL.OQ").getSharePrice(), 0.0);
+            assertSame(index1.getPrices(), indexEntity.getPrices());
+            assertEquals(indexEntity.calculateMarketValue(), indexEntity.getMarketValue(), 1e-9);
+        }
+        // The divisor is kept, the value moves with the price: 160*10 + 200*5 + 90*6
+        assertEquals(3140.0, index1.getIndexValue(), 1e-9);
+    }
+
+    @Test
+    void testShareIndexMembership_FollowsAdditionAndDeletion() {
+        indexService.addShareToIndex(new ShareAdditionDTO("IBM.OQ", 100.0, 20.0, "INDEX_1"));
+        assertEquals(List.of("INDEX_1"), indexService.getIndicesHoldingShare("IBM.OQ"));
+
+        indexService.deleteShareFromIndex(new ShareDeletionDTO("IBM.OQ", "INDEX_1"));
+        assertTrue(indexService.getIndicesHoldingShare("IBM.OQ").isEmpty());
+
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            indexService.applyDividend(new ShareDividendDTO("IBM.OQ", 1.0));
+        });
+        assertEquals("Share not found in any index: IBM.OQ", exception.getMessage());
+    }
+
+    @Test
+    void testDivisor_MatchesRescalingEveryMember() {
+        // Reference: the former behaviour that rescaled every member on each adjustment
+        Map<String, double[]> reference = new HashMap<>();
+        Map<String, ShareEntity> shares = new ConcurrentHashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            double price = 10 + random.nextInt(500);
+            double numberOfShares = 1 + random.nextInt(100);
+            shares.put("S" + i, new ShareEntity("S" + i, price, numberOfShares));
+            reference.put("S" + i, new double[]{price, numberOfShares});
+        }
+        indexService.registerIndex("INDEX_BIG", shares);
+
+        for (int i = 500; i < 1500; i++) {
+            double currentValue = reference.values().stream().mapToDouble(m -> m[0] * m[1]).sum();
+            switch (i % 3) {
+                case 0 -> {
+                    double price = 10 + random.nextInt(500);
+                    double numberOfShares = 1 + random.nextInt(100);
+                    indexService.addShareToIndex(new ShareAdditionDTO("S" + i, price, numberOfShares, "INDEX_BIG"));
+                    reference.put("S" + i, new double[]{price, numberOfShares});
+                    double factor = currentValue / (currentValue + price * numberOfShares);
+                    reference.values().forEach(m -> m[1] *= factor);
+                }
+                case 1 -> {
+                    String shareName = "S" + (i - 1);
+                    double[] removed = reference.remove(shareName);
+                    indexService.deleteShareFromIndex(new ShareDeletionDTO(shareName, "INDEX_BIG"));
+                    double factor = currentValue / (currentValue - removed[0] * removed[1]);
+                    reference.values().forEach(m -> m[1] *= factor);
+                }
+                default -> {
+                    String shareName = "S" + random.nextInt(500);
+                    double[] member = reference.get(shareName);
+                    double dividend = member[0] * 0.01;
+                    indexService.applyDividend(new ShareDividendDTO(shareName, dividend));
+                    double factor = currentValue / (currentValue - dividend * member[1]);
+                    member[0] -= dividend;
+                    reference.values().forEach(m -> m[1] *= factor);
+                }
+            }
+        }
+
+        // Documented tolerance of the divisor approach: 1e-9 relative to the rescaled numbers
+        IndexEntity indexEntity = indexService.getIndexMap().get("INDEX_BIG");
+        for (Map.Entry<String, double[]> expected : reference.entrySet()) {
+            double numberOfShares = indexEntity.getEffectiveNumberOfShares(indexEntity.getSlot(expected.getKey()));
+            assertEquals(expected.getValue()[1], numberOfShares, expected.getValue()[1] * 1e-9);
+        }
+    }
+
+    @Test
+    void testIndexValue_MaintainedIncrementally() {
+        double initialValue = indexService.getIndexMap().get("INDEX_1").getIndexValue();  // 150*10 + 200*5 + 90*6 = 3040
+
+        indexService.addShareToIndex(new ShareAdditionDTO("IBM.OQ", 100.0, 20.0, "INDEX_1"));
+        indexService.applyDividend(new ShareDividendDTO("AAPL.OQ", 5.0));
+        indexService.deleteShareFromIndex(new ShareDeletionDTO("META.OQ", "INDEX_1"));
+
+        IndexEntity indexEntity = indexService.getIndexMap().get("INDEX_1");
+        assertEquals(3040.0, initialValue, 1e-9);
+        assertEquals(initialValue, indexEntity.getIndexValue(), 1e-9);
+
+        // The running aggregate agrees with a full re-summation of the members
+        assertEquals(indexEntity.calculateMarketValue(), indexEntity.getMarketValue(), 1e-9);
+    }
+
+    @Test
+    void testSnapshot_UnchangedByLaterAdjustments() {
+        IndexEntity before = indexService.getIndexMap().get("INDEX_1");
+
+        indexService.addShareToIndex(new ShareAdditionDTO("IBM.OQ", 100.0, 20.0, "INDEX_1"));
+        indexService.applyDividend(new ShareDividendDTO("AAPL.OQ", 5.0));
+
+        // A reader holding the earlier snapshot still sees a consistent index
+        assertEquals(3, before.getShares().size());
+        assertEquals(150.0, before.getShares().get("AAPL.OQ").getSharePrice(), 0.0);
+        assertEquals(3040.0, before.getIndexValue(), 1e-9);
+
+        IndexEntity after = indexService.getIndexMap().get("INDEX_1");
+        assertEquals(4, after.getShares().size());
+        // Unchanged members keep their values
+        assertEquals(before.getSharePrice(before.getSlot("META.OQ")), after.getSharePrice(after.getSlot("META.OQ")), 0.0);
+        assertEquals(before.getNumberOfShares(before.getSlot("META.OQ")), after.getNumberOfShares(after.getSlot("META.OQ")), 0.0);
+    }
+
+    @Test
+    void testIndexEntity_SlotLookupAcrossSnapshots() {
+        Map<String, ShareEntity> shares = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            shares.put("S" + i + ".OQ", new ShareEntity("S" + i + ".OQ", 100.0 + i, 1.0));
+        }
+        indexService.registerIndex("LARGE", shares);
+        IndexEntity indexEntity = indexService.getIndex("LARGE");
+
+        // Slots follow the share name order, and every member is found through the name table
+        for (int slot = 1; slot < indexEntity.getShareCount(); slot++) {
+            assertTrue(indexEntity.getShareName(slot - 1).compareTo(indexEntity.getShareName(slot)) < 0);
+        }
+        for (ShareEntity share : shares.values()) {
+            int slot = indexEntity.getSlot(share.getShareName());
+            assertEquals(share.getShareName(), indexEntity.getShareName(slot));
+            assertEquals(share.getSharePrice(), indexEntity.getSharePrice(slot), 0.0);
+        }
+        assertEquals(-1, indexEntity.getSlot("S3000.OQ"));
+
+        indexService.addShareToIndex(new ShareAdditionDTO("S1500A.OQ", 5.0, 2.0, "LARGE"));
+        indexService.deleteShareFromIndex(new ShareDeletionDTO("S0.OQ", "LARGE"));
+        IndexEntity removed = indexService.getIndex("LARGE");
+        indexService.applyPriceUpdates(Map.of("S2999.OQ", 1.0));
+        IndexEntity repriced = indexService.getIndex("LARGE");
+        assertEquals(3000, repriced.getShareCount());
+        assertEquals(5.0, repriced.getSharePrice(repriced.getSlot("S1500A.OQ")), 0.0);
+        assertEquals(-1, repriced.getSlot("S0.OQ"));
+        assertEquals(1.0, repriced.getSharePrice(repriced.getSlot("S2999.OQ")), 0.0);
+        assertEquals(100.0 + 2999, removed.getSharePrice(removed.getSlot("S2999.OQ")), 0.0);
+        assertEquals(repriced.calculateMarketValue(), repriced.getMarketValue(), 1e-6);
+    }
+
+    @Test
+    void testIndexEntity_ShareNamesInternedAcrossIndices() {
+        // Equal names built separately, as they arrive from two requests
+        String firstName = new String("SHARED.OQ");
+        String secondName = new String("SHARED.OQ");
+        indexService.registerIndex("INDEX_A", Map.of(firstName, new ShareEntity(firstName, 10.0, 1.0),
+                "A.OQ", new ShareEntity("A.OQ", 20.0, 1.0)));
+        indexService.registerIndex("INDEX_B", Map.of("B.OQ", new ShareEntity("B.OQ", 30.0, 1.0)));
+        indexService.addShareToIndex(new ShareAdditionDTO(secondName, 10.0, 2.0, "INDEX_B"));
+        IndexEntity first = indexService.getIndex("INDEX_A");
+        IndexEntity second = indexService.getIndex("INDEX_B");
+
+        int firstSlot = first.getSlot("SHARED.OQ");
+        int secondSlot = second.getSlot("SHARED.OQ");
+        assertEquals(first.getShareId(firstSlot), second.getShareId(secondSlot));
+        assertSame(first.getShareName(firstSlot), second.getShareName(secondSlot));
+        assertEquals(secondSlot, second.getSlot(first.getShareId(firstSlot)));
+        assertEquals(-1, first.getSlot(second.getShareId(second.getSlot("B.OQ"))));
+        assertEquals(List.of("B.OQ", "SHARED.OQ"), second.getMembers().stream().map(ShareEntity::getShareName).toList());
+    }
+
+    @Test
+    void testApplyAdjustments_InOrderWithResultPerOperation() {
+        List<AdjustmentResult> results = indexService.applyAdjustments(List.of(
+                adjustment(new ShareAdditionDTO("IBM.OQ", 100.0, 20.0, "INDEX_1"), null, null),
+                adjustment(null, null, new ShareDividendDTO("IBM.OQ", 10.0)),
+                adjustment(null, new ShareDeletionDTO("TSLA.OQ", "INDEX_1"), null),
+                adjustment(null, new ShareDeletionDTO("META.OQ", "INDEX_1"), null)
+        ), false);
+
+        assertEquals(AdjustmentResult.Outcome.ADDED, results.get(0).outcome());
+        assertEquals(AdjustmentResult.Outcome.DIVIDEND_APPLIED, results.get(1).outcome());
+        assertEquals(AdjustmentResult.Outcome.FAILED, results.get(2).outcome());
+        assertEquals("Share not found in the index: TSLA.OQ", results.get(2).error().getMessage());
+        assertEquals(AdjustmentResult.Outcome.DELETED, results.get(3).outcome());
+
+        IndexEntity indexEntity = indexService.getIndexMap().get("INDEX_1");
+        assertEquals(90.0, indexEntity.getShare("IBM.OQ").getSharePrice(), 0.0);  // dividend saw the share added before it
+        assertNull(indexEntity.getShare("META.OQ"));
+        assertEquals(3040.0, indexEntity.getIndexValue(), 1e-9);
+        assertEquals(List.of("INDEX_1"), indexService.getIndicesHoldingShare("IBM.OQ"));
+        assertTrue(indexService.getIndicesHoldingShare("META.OQ").isEmpty());
+    }
+
+    @Test
+    void testApplyAdjustments_AllOrNothingRollsBackFailedIndex() {
+        IndexEntity before = indexService.getIndexMap().get("INDEX_1");
+
+        List<AdjustmentResult> results = indexService.applyAdjustments(List.of(
+                adjustment(new ShareAdditionDTO("IBM.OQ", 100.0, 20.0, "INDEX_1"), null, null),
+                adjustment(null, null, new ShareDividendDTO("AAPL.OQ", 151.0))
+        ), true);
+
+        assertEquals(AdjustmentResult.Outcome.ROLLED_BACK, results.get(0).outcome());
+        assertEquals(AdjustmentResult.Outcome.FAILED, results.get(1).outcome());
+        assertSame(before, indexService.getIndexMap().get("INDEX_1"));
+        assertTrue(indexService.getIndicesHoldingShare("IBM.OQ").isEmpty());
+    }
+
+    @Test
+    void testGetIndexPage_PrefixAndCursor() {
+        for (String indexName : List.of("EU_2", "US_1", "EU_1", "EU_3", "ASIA_1")) {
+            indexService.registerIndex(indexName, Map.of("AAPL.OQ", new ShareEntity("AAPL.OQ", 150.0, 10.0)));
+        }
+
+        IndexPage first = indexService.getIndexPage("EU_", null, 2);
+        assertEquals(List.of("EU_1", "EU_2"), first.indices().stream().map(IndexEntity::getIndexName).toList());
+        assertEquals("EU_2", first.lastIndexName());
+
+        IndexPage second = indexService.getIndexPage("EU_", first.lastIndexName(), 2);
+        assertEquals(List.of("EU_3"), second.indices().stream().map(IndexEntity::getIndexName).toList());
+        assertNull(second.lastIndexName());
+
+        IndexPage all = indexService.getIndexPage(null, "EU_3", 10);
+        assertEquals(List.of("INDEX_1", "US_1"), all.indices().stream().map(IndexEntity::getIndexName).toList());
+        // A cursor before the prefix starts at the prefix
+        assertEquals(3, indexService.getIndexPage("EU_", "ASIA_1", 10).indices().size());
+    }
+
+    @Test
+    void testDeleteIndex_RemovesIndexAndMemberships() {
+        assertTrue(indexService.deleteIndex("INDEX_1"));
+
+        assertNull(indexService.getIndex("INDEX_1"));
+        assertTrue(indexService.getIndicesHoldingShare("AAPL.OQ").isEmpty());
+        assertTrue(indexService.getIndexPage(null, null, 10).indices().isEmpty());
+        assertFalse(indexService.deleteIndex("INDEX_1"));
+        assertThrows(NoSuchElementException.class,
+                () -> indexService.addShareToIndex(new ShareAdditionDTO("IBM.OQ", 100.0, 20.0, "INDEX_1")));
+
+        // The name can be used again
+        indexService.registerIndex("INDEX_1", Map.of("IBM.OQ", new ShareEntity("IBM.OQ", 100.0, 1.0)));
+        assertEquals(List.of("INDEX_1"), indexService.getIndicesHoldingShare("IBM.OQ"));
+        assertTrue(indexService.getIndicesHoldingShare("AAPL.OQ").isEmpty());
+    }
+
+    @Test
+    void testLockStripes_MultiIndexOperationsDoNotDeadlock() throws Exception {
+        // Two stripes for 16 indices: most pairs of indices share a stripe
+        IndexService striped = new IndexService(null, IndexJournal.NONE, null, 2);
+        for (int i = 0; i < 16; i++) {
+            striped.registerIndex("INDEX_" + i, Map.of(
+                    "A.OQ", new ShareEntity("A.OQ", 1000.0, 10.0),
+                    "B.OQ", new ShareEntity("B.OQ", 100.0, 10.0)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        String indexName = "INDEX_" + ((thread * 200 + i) % 16);
+                        striped.applyDividend(new ShareDividendDTO("A.OQ", 0.1));
+                        striped.addShareToIndex(new ShareAdditionDTO("C" + thread + ".OQ", 10.0, 1.0, indexName));
+                        striped.deleteShareFromIndex(new ShareDeletionDTO("C" + thread + ".OQ", indexName));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every dividend reached every holder exactly once
+        for (int i = 0; i < 16; i++) {
+            assertEquals(1000.0 - 800 * 0.1, striped.getIndex("INDEX_" + i).getShare("A.OQ").getSharePrice(), 1e-6);
+        }
+    }
+
+    @Test
+    void testMetrics_OperationsTimedByOutcome() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        IndexService metered = new IndexService(null, IndexJournal.NONE, null, 16, new IndexMetrics(registry));
+        for (int i = 0; i < 3; i++) {
+            metered.registerIndex("INDEX_" + i, Map.of(
+                    "A.OQ", new ShareEntity("A.OQ", 100.0, 10.0),
+                    "B.OQ", new ShareEntity("B.OQ", 100.0, 10.0)));
+        }
+
+        metered.addShareToIndex(new ShareAdditionDTO("C.OQ", 10.0, 1.0, "INDEX_0"));
+        metered.addShareToIndex(new ShareAdditionDTO("C.OQ", 10.0, 1.0, "INDEX_0"));
+        metered.applyDividend(new ShareDividendDTO("A.OQ", 1.0));
+        assertThrows(IllegalArgumentException.class, () -> metered.applyDividend(new ShareDividendDTO("A.OQ", 1000.0)));
+        assertThrows(NoSuchElementException.class,
+                () -> metered.deleteShareFromIndex(new ShareDeletionDTO("A.OQ", "INDEX_9")));
+
+        assertEquals(1, registry.get("index.operation").tags("operation", "add_share", "outcome", "201").timer().count());
+        assertEquals(1, registry.get("index.operation").tags("operation", "add_share", "outcome", "202").timer().count());
+        assertEquals(1, registry.get("index.operation").tags("operation", "dividend", "outcome", "200").timer().count());
+        assertEquals(1, registry.get("index.operation").tags("operation", "dividend", "outcome", "401").timer().count());
+        assertEquals(1, registry.get("index.operation").tags("operation", "delete_share", "outcome", "404").timer().count());
+        assertEquals(2, registry.get("index.lock.wait").tags("operation", "add_share").timer().count());
+        assertEquals(2, registry.get("index.lock.hold").tags("operation", "add_share").timer().count());
+
+        // Only the applied dividend reached its holders
+        assertEquals(1, registry.get("index.dividend.fanout").summary().count());
+        assertEquals(3, registry.get("index.dividend.fanout").summary().totalAmount());
+        assertEquals(3, registry.get("index.count").gauge().value());
+        assertEquals(7, registry.get("index.members").gauge().value());
+        assertEquals(0, registry.get("index.lock.stripes.held").gauge().value());
+    }
+
+    @Test
+    void testMemberStorage_OffHeapMatchesHeap() {
+        List<IndexService> services = new ArrayList<>();
+        for (MemberStorage storage : MemberStorage.values()) {
+            IndexService service = new IndexService(null, IndexJournal.NONE, null, 16, IndexMetrics.none(), storage);
+            Map<String, ShareEntity> shares = new HashMap<>();
+            for (int i = 0; i < 200; i++) {
+                shares.put("S" + i + ".OQ", new ShareEntity("S" + i + ".OQ", 10.0 + i, 1.0 + i % 7));
+            }
+            service.registerIndex("INDEX_1", shares);
+            service.addShareToIndex(new ShareAdditionDTO("NEW.OQ", 42.0, 3.0, "INDEX_1"));
+            service.deleteShareFromIndex(new ShareDeletionDTO("S17.OQ", "INDEX_1"));
+            service.applyDividend(new ShareDividendDTO("S5.OQ", 2.5));
+            service.applyPriceUpdates(Map.of("S6.OQ", 99.0, "S7.OQ", 1.0));
+            services.add(service);
+        }
+        assertTrue(MemberStorage.getOffHeapBytes() > 0);
+
+        IndexEntity heap = services.get(0).getIndex("INDEX_1");
+        IndexEntity offHeap = services.get(1).getIndex("INDEX_1");
+        assertEquals(heap.getShareCount(), offHeap.getShareCount());
+        for (int slot = 0; slot < heap.getShareCount(); slot++) {
+            assertEquals(heap.getShareName(slot), offHeap.getShareName(slot));
+            assertEquals(heap.getSharePrice(slot), offHeap.getSharePrice(slot), 0.0);
+            assertEquals(heap.getNumberOfShares(slot), offHeap.getNumberOfShares(slot), 0.0);
+        }
+        assertEquals(heap.getIndexValue(), offHeap.getIndexValue(), 0.0);
+        assertEquals(offHeap.calculateMarketValue(), offHeap.getMarketValue(), 1e-6);
+    }
+
+    @Test
+    void testMetrics_InvalidCreationIsBadRequest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        IndexService metered = new IndexService(new IndexMapperImpl(), IndexJournal.NONE, null, 16, new IndexMetrics(registry),
+                MemberStorage.HEAP, NumericMode.FIXED_POINT);
+        // Beyond the fixed-point range, answered with 400 by POST /api/create
+        assertThrows(IllegalArgumentException.class, () -> metered.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 1e300, 10.0), new ShareDTO("B.OQ", 100.0, 10.0)))));
+
+        assertEquals(1, registry.get("index.operation").tags("operation", "create_index", "outcome", "400").timer().count());
+    }
+
+    @Test
+    void testNumericMode_FixedPointStaysExactOverManyAdjustments() {
+        IndexService service = new IndexService(null, IndexJournal.NONE, null, 16, IndexMetrics.none(),
+                MemberStorage.HEAP, NumericMode.FIXED_POINT);
+        Map<String, ShareEntity> shares = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            shares.put("S" + i + ".OQ", new ShareEntity("S" + i + ".OQ", 10.123456789 + i, 1.0 + i % 7));
+        }
+        service.registerIndex("INDEX_1", shares);
+
+        Random random = new Random(11);
+        for (int i = 0; i < 3000; i++) {
+            service.addShareToIndex(new ShareAdditionDTO("X.OQ", 1 + random.nextDouble() * 100, 1 + random.nextDouble() * 10, "INDEX_1"));
+            service.deleteShareFromIndex(new ShareDeletionDTO("X.OQ", "INDEX_1"));
+            service.applyDividend(new ShareDividendDTO("S" + random.nextInt(20) + ".OQ", 1e-6));
+            service.applyPriceUpdates(Map.of("S" + random.nextInt(20) + ".OQ", 10 + random.nextDouble() * 20));
+        }
+
+        // Every stored number is a decimal of its scale, and the running market value is the exact sum
+        IndexEntity indexEntity = service.getIndex("INDEX_1");
+        assertEquals(NumericMode.FIXED_POINT, indexEntity.getNumericMode());
+        BigDecimal marketValue = BigDecimal.ZERO;
+        for (int slot = 0; slot < indexEntity.getShareCount(); slot++) {
+            BigDecimal price = BigDecimal.valueOf(FixedPoint.toScaled(indexEntity.getSharePrice(slot), FixedPoint.SCALE), FixedPoint.SCALE);
+            BigDecimal count = BigDecimal.valueOf(FixedPoint.toScaled(indexEntity.getNumberOfShares(slot), FixedPoint.SCALE), FixedPoint.SCALE);
+            assertEquals(price.doubleValue(), indexEntity.getSharePrice(slot), 0.0);
+            marketValue = marketValue.add(price.multiply(count).setScale(FixedPoint.SCALE, RoundingMode.HALF_EVEN));
+        }
+        assertEquals(marketValue.doubleValue(), indexEntity.getMarketValue(), 0.0);
+        assertEquals(indexEntity.calculateMarketValue(), indexEntity.getMarketValue(), 0.0);
+        BigDecimal divisor = BigDecimal.valueOf(FixedPoint.toScaled(indexEntity.getDivisor(), FixedPoint.DIVISOR_SCALE), FixedPoint.DIVISOR_SCALE);
+        assertEquals(marketValue.divide(divisor, FixedPoint.SCALE, RoundingMode.HALF_EVEN).doubleValue(), indexEntity.getIndexValue(), 0.0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.addShareToIndex(new ShareAdditionDTO("HUGE.OQ", 1e13, 1.0, "INDEX_1")));
+        assertSame(indexEntity, service.getIndex("INDEX_1"));
+    }
+
+    @Test
+    void testNumericMode_FixedPointHoldsLargeIndices() {
+        IndexService service = new IndexService(new IndexMapperImpl(), MemberStorage.HEAP, NumericMode.FIXED_POINT);
+        assertTrue(service.createIndex(new IndexDTO("INDEX_1", List.of(new ShareDTO("A.OQ", 40.0, 1e10),
+                new ShareDTO("B.OQ", 35.5, 1e10), new ShareDTO("C.OQ", 24.5, 1e10)))));
+        assertEquals(1e12, service.getIndex("INDEX_1").getIndexValue(), 0.0);
+
+        service.addShareToIndex(new ShareAdditionDTO("D.OQ", 12.345678, 1e10, "INDEX_1"));
+        service.applyDividend(new ShareDividendDTO("A.OQ", 0.5));
+        service.deleteShareFromIndex(new ShareDeletionDTO("B.OQ", "INDEX_1"));
+
+        // The divisor keeps the index value up to its DIVISOR_SCALE rounding, and the market value stays an exact sum
+        IndexEntity indexEntity = service.getIndex("INDEX_1");
+        assertEquals(1e12, indexEntity.getIndexValue(), 1e12 * 1e-9);
+        assertEquals(12.345678, indexEntity.getShare("D.OQ").getSharePrice(), 0.0);
+        assertEquals(39.5, indexEntity.getShare("A.OQ").getSharePrice(), 0.0);
+        assertEquals(indexEntity.calculateMarketValue(), indexEntity.getMarketValue(), 0.0);
+
+        double indexValue = indexEntity.getIndexValue();
+        double numberOfShares = indexEntity.getEffectiveNumberOfShares(indexEntity.getSlot("C.OQ"));
+        service.applyPriceUpdates(Map.of("C.OQ", 49.0));
+        indexEntity = service.getIndex("INDEX_1");
+        assertEquals(indexValue + 24.5 * numberOfShares, indexEntity.getIndexValue(), 1e12 * 1e-9);
+        assertEquals(indexEntity.calculateMarketValue(), indexEntity.getMarketValue(), 0.0);
+    }
+
+    private static IndexAdjustmentRequestsDTO adjustment(ShareAdditionDTO addition, ShareDeletionDTO deletion, ShareDividendDTO dividend) {
+        IndexAdjustmentRequestsDTO requestsDTO = new IndexAdjustmentRequestsDTO();
+        requestsDTO.setAdditionOperation(addition);
+        requestsDTO.setDeletionOperation(deletion);
+        requestsDTO.setDividendOperation(dividend);
+        return requestsDTO;
+    }
 }
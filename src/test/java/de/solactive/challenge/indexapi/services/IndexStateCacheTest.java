@@ -0,0 +1,123 @@
+package de.solactive.challenge.indexapi.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.solactive.challenge.indexapi.dto.*;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexStateCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IndexService indexService;
+    private IndexStateCache indexStateCache;
+
+    @BeforeEach
+    void setUp() {
+        IndexMapperImpl indexMapper = new IndexMapperImpl();
+        indexService = new IndexService(indexMapper);
+        indexStateCache = new IndexStateCache(indexService, indexMapper, objectMapper, 1024 * 1024);
+
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 100.0, 10.0),
+                new ShareDTO("B.OQ", 200.0, 20.0),
+                new ShareDTO("C.OQ", 300.0, 30.0)
+        )));
+        indexService.createIndex(new IndexDTO("INDEX_2", List.of(
+                new ShareDTO("C.OQ", 300.0, 15.0),
+                new ShareDTO("D.OQ", 250.0, 25.0)
+        )));
+    }
+
+    @Test
+    void testGetIndexState_ServedFromCacheUntilIndexChanges() throws Exception {
+        byte[] first = indexStateCache.getIndexState("INDEX_1");
+        byte[] second = indexStateCache.getIndexState("INDEX_1");
+
+        assertSame(first, second);
+        assertEquals(1, indexStateCache.getMissCount());
+        assertEquals(1, indexStateCache.getHitCount());
+        assertArrayEquals(objectMapper.writeValueAsBytes(indexService.getIndexByName("INDEX_1")), first);
+
+        indexService.deleteShareFromIndex(new ShareDeletionDTO("A.OQ", "INDEX_1"));
+        byte[] afterDeletion = indexStateCache.getIndexState("INDEX_1");
+
+        assertEquals(2, indexStateCache.getMissCount());
+        assertArrayEquals(objectMapper.writeValueAsBytes(indexService.getIndexByName("INDEX_1")), afterDeletion);
+    }
+
+    @Test
+    void testGetIndexState_NotStaleAfterIndexIsRecreated() throws Exception {
+        indexStateCache.getIndexState("INDEX_2");
+        assertTrue(indexService.deleteIndex("INDEX_2"));
+        assertNull(indexStateCache.getIndexState("INDEX_2"));
+        assertEquals(0, indexStateCache.getCachedBytes());
+
+        // Same name and version 1 again, but other members
+        indexService.createIndex(new IndexDTO("INDEX_2", List.of(new ShareDTO("E.OQ", 50.0, 5.0))));
+        byte[] recreated = indexStateCache.getIndexState("INDEX_2");
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(indexService.getIndexByName("INDEX_2")), recreated);
+    }
+
+    @Test
+    void testGetIndexState_IndexNotFound() {
+        assertNull(indexStateCache.getIndexState("NON_EXISTENT_INDEX"));
+    }
+
+    @Test
+    void testGetAllIndicesState_AssembledFromFragments() throws Exception {
+        indexStateCache.getIndexState("INDEX_2");
+
+        byte[] response = indexStateCache.getAllIndicesState();
+
+        byte[] expected = objectMapper.writeValueAsBytes(Map.of("indexDetails", indexService.getAllIndicesWithState()));
+        assertEquals(new String(expected, StandardCharsets.UTF_8), new String(response, StandardCharsets.UTF_8));
+        assertEquals(1, indexStateCache.getHitCount());  // INDEX_2 fragment reused
+    }
+
+    @Test
+    void testGetIndicesStatePage_ValuesViewWithCursor() throws Exception {
+        IndexPage page = indexService.getIndexPage(null, null, 1);
+
+        String response = new String(indexStateCache.getIndicesStatePage(page, IndexStateCache.View.VALUES), StandardCharsets.UTF_8);
+
+        assertEquals("{\"indexDetails\":[{\"indexName\":\"INDEX_1\",\"indexValue\":14000.0}],\"nextCursor\":\""
+                + IndexStateCache.encodeCursor("INDEX_1") + "\"}", response);
+        assertEquals("INDEX_1", IndexStateCache.decodeCursor(IndexStateCache.encodeCursor("INDEX_1")));
+
+        IndexPage last = indexService.getIndexPage(null, "INDEX_1", 1);
+        Map<?, ?> fullPage = objectMapper.readValue(indexStateCache.getIndicesStatePage(last, IndexStateCache.View.FULL), Map.class);
+        assertNull(fullPage.get("nextCursor"));
+        assertEquals(objectMapper.readValue(indexStateCache.getIndexState("INDEX_2"), Map.class),
+                ((List<?>) fullPage.get("indexDetails")).get(0));
+    }
+
+    @Test
+    void testCache_EvictsLeastRecentlyUsedBeyondMaxBytes() {
+        int fragmentSize = indexStateCache.getIndexState("INDEX_2").length;
+        IndexStateCache smallCache = new IndexStateCache(indexService, new IndexMapperImpl(), objectMapper, fragmentSize);
+
+        smallCache.getIndexState("INDEX_2");
+        smallCache.getIndexState("INDEX_1");  // larger than the limit, never cached
+        smallCache.getIndexState("INDEX_2");
+
+        assertEquals(1, smallCache.getHitCount());
+        assertEquals(fragmentSize, smallCache.getCachedBytes());
+
+        indexService.createIndex(new IndexDTO("INDEX_3", List.of(
+                new ShareDTO("E.OQ", 150.0, 15.0),
+                new ShareDTO("F.OQ", 250.0, 25.0)
+        )));
+        smallCache.getIndexState("INDEX_3");
+
+        assertEquals(1, smallCache.getEvictionCount());
+        assertTrue(smallCache.getCachedBytes() <= fragmentSize);
+    }
+}
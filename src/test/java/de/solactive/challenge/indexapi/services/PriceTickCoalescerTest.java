@@ -0,0 +1,150 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.IndexDTO;
+import de.solactive.challenge.indexapi.dto.ShareDTO;
+import de.solactive.challenge.indexapi.entities.IndexEntity;
+import de.solactive.challenge.indexapi.entities.MemberStorage;
+import de.solactive.challenge.indexapi.entities.NumericMode;
+import de.solactive.challenge.indexapi.journal.IndexJournal;
+import de.solactive.challenge.indexapi.journal.JournalRecord;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriceTickCoalescerTest {
+
+    private IndexService indexService;
+    private PriceTickCoalescer priceTickCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        indexService = new IndexService(new IndexMapperImpl());
+        // Long cycle so the test drives applyPendingPrices itself
+        priceTickCoalescer = new PriceTickCoalescer(indexService, 60_000);
+
+        indexService.createIndex(new IndexDTO("INDEX_1", List.of(
+                new ShareDTO("A.OQ", 100.0, 10.0),
+                new ShareDTO("B.OQ", 200.0, 20.0)
+        )));
+        indexService.createIndex(new IndexDTO("INDEX_2", List.of(
+                new ShareDTO("A.OQ", 100.0, 15.0),
+                new ShareDTO("C.OQ", 250.0, 25.0)
+        )));
+    }
+
+    @AfterEach
+    void tearDown() {
+        priceTickCoalescer.shutdown();
+    }
+
+    @Test
+    void testApplyPendingPrices_LatestTickPerShareWins() {
+        priceTickCoalescer.submit("A.OQ", 101.0);
+        priceTickCoalescer.submit("A.OQ", 102.0);
+        priceTickCoalescer.submit("A.OQ", 110.0);
+        priceTickCoalescer.submit("UNKNOWN.OQ", 5.0);
+
+        priceTickCoalescer.applyPendingPrices();
+
+        assertEquals(4, priceTickCoalescer.getTicksReceived());
+        assertEquals(2, priceTickCoalescer.getPricesApplied());
+        IndexEntity index1 = indexService.getIndex("INDEX_1");
+        IndexEntity index2 = indexService.getIndex("INDEX_2");
+        assertEquals(110.0, index1.getShare("A.OQ").getSharePrice(), 0.0);
+        assertEquals(110.0, index2.getShare("A.OQ").getSharePrice(), 0.0);
+        // The index value moves with the market: 110*10 + 200*20
+        assertEquals(5100.0, index1.getIndexValue(), 1e-9);
+        assertEquals(2, index1.getVersion());
+    }
+
+    @Test
+    void testApplyPendingPrices_NothingPending() {
+        priceTickCoalescer.applyPendingPrices();
+
+        assertEquals(1, indexService.getIndex("INDEX_1").getVersion());
+    }
+
+    @Test
+    void testApplyPendingPrices_FailingIndexDropsThePriceForAllHolders() {
+        IndexService failingService = new IndexService(new IndexMapperImpl(), new FailingJournal("INDEX_2"));
+        PriceTickCoalescer coalescer = new PriceTickCoalescer(failingService, 60_000);
+        try {
+            failingService.createIndex(new IndexDTO("INDEX_1", List.of(new ShareDTO("A.OQ", 100.0, 10.0), new ShareDTO("B.OQ", 200.0, 20.0))));
+            failingService.createIndex(new IndexDTO("INDEX_2", List.of(new ShareDTO("A.OQ", 100.0, 15.0), new ShareDTO("C.OQ", 250.0, 25.0))));
+
+            coalescer.submit("A.OQ", 110.0);
+            coalescer.applyPendingPrices();
+
+            // One price per share: neither holder moves if the update of one cannot be journaled
+            assertEquals(100.0, failingService.getIndex("INDEX_1").getShare("A.OQ").getSharePrice(), 0.0);
+            assertEquals(100.0, failingService.getIndex("INDEX_2").getShare("A.OQ").getSharePrice(), 0.0);
+            assertEquals(0, coalescer.getPricesApplied());
+            assertEquals(1, coalescer.getPricesDropped());
+
+            // The failed price is not queued again
+            coalescer.applyPendingPrices();
+            assertEquals(1, failingService.getIndex("INDEX_1").getVersion());
+            assertEquals(1, failingService.getIndex("INDEX_2").getVersion());
+        } finally {
+            coalescer.shutdown();
+        }
+    }
+
+    @Test
+    void testApplyPendingPrices_InvalidPriceIsDropped() {
+        IndexService fixedPointService = new IndexService(new IndexMapperImpl(), IndexJournal.NONE, null, 16,
+                IndexMetrics.none(), MemberStorage.HEAP, NumericMode.FIXED_POINT);
+        PriceTickCoalescer coalescer = new PriceTickCoalescer(fixedPointService, 60_000);
+        try {
+            fixedPointService.createIndex(new IndexDTO("INDEX_1", List.of(new ShareDTO("A.OQ", 100.0, 10.0), new ShareDTO("B.OQ", 200.0, 20.0))));
+
+            coalescer.submit("A.OQ", 110.0);
+            coalescer.submit("B.OQ", Double.NaN);
+            coalescer.applyPendingPrices();
+
+            IndexEntity indexEntity = fixedPointService.getIndex("INDEX_1");
+            assertEquals(110.0, indexEntity.getShare("A.OQ").getSharePrice(), 0.0);
+            assertEquals(200.0, indexEntity.getShare("B.OQ").getSharePrice(), 0.0);
+            assertEquals(1, coalescer.getPricesApplied());
+            assertEquals(1, coalescer.getPricesDropped());
+        } finally {
+            coalescer.shutdown();
+        }
+    }
+
+    // Journal whose appends fail for one index, as if its records could not be written
+    private record FailingJournal(String failingIndexName) implements IndexJournal {
+
+        @Override
+        public long append(JournalRecord record) {
+            if (record.indexName().equals(failingIndexName) && record instanceof JournalRecord.PriceUpdate) {
+                throw new UncheckedIOException(new IOException("Journal write failed"));
+            }
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long lsn) {
+        }
+
+        @Override
+        public void replay(long afterLsn, RecordConsumer consumer) {
+        }
+
+        @Override
+        public long getLastLsn() {
+            return 0;
+        }
+
+        @Override
+        public void compact(long upToLsn) {
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package de.solactive.challenge.indexapi.services;
+
+import de.solactive.challenge.indexapi.dto.*;
+import de.solactive.challenge.indexapi.journal.FileIndexJournal;
+import de.solactive.challenge.indexapi.mappers.IndexMapperImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedIndexExecutorTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<ShardedIndexExecutor> executors = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ShardedIndexExecutor::shutdown);
+    }
+
+    @Test
+    void testSingleIndexOperations_RunOnOwningShard() throws Exception {
+        IndexService indexService = new IndexService(new IndexMapperImpl());
+        ShardedIndexExecutor executor = executor(indexService, 4);
+        Map<String, String> writerThreads = new ConcurrentHashMap<>();
+        indexService.addListener((previous, next) -> {
+            String indexName = next != null ? next.getIndexName() : previous.getIndexName();
+            writerThreads.merge(indexName, Thread.currentThread().getName(), (a, b) -> a.equals(b) ? a : "MIXED");
+        });
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String indexName = "INDEX_" + i;
+            futures.add(executor.createIndex(index(indexName)));
+            futures.add(executor.addShareToIndex(new ShareAdditionDTO("D.OQ", 40.0, 4.0, indexName)));
+            futures.add(executor.deleteShareFromIndex(new ShareDeletionDTO("A.OQ", indexName)));
+        }
+        futures.add(executor.deleteIndex("INDEX_0"));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertEquals(4, executor.getShardCount());
+        for (int i = 0; i < 16; i++) {
+            String indexName = "INDEX_" + i;
+            assertEquals("index-shard-" + executor.shardOf(indexName), writerThreads.get(indexName));
+        }
+        assertNull(indexService.getIndex("INDEX_0"));
+        assertEquals(3, indexService.getIndex("INDEX_1").getShareCount());
+    }
+
+    @Test
+    void testFailures_CompleteExceptionally() throws Exception {
+        IndexService indexService = new IndexService(new IndexMapperImpl());
+        ShardedIndexExecutor executor = executor(indexService, 2);
+        executor.createIndex(index("INDEX_1")).get();
+
+        ExecutionException missingIndex = assertThrows(ExecutionException.class,
+                () -> executor.addShareToIndex(new ShareAdditionDTO("D.OQ", 40.0, 4.0, "UNKNOWN")).get());
+        assertInstanceOf(NoSuchElementException.class, missingIndex.getCause());
+        ExecutionException missingShare = assertThrows(ExecutionException.class,
+                () -> executor.applyDividend(new ShareDividendDTO("X.OQ", 1.0)).get());
+        assertInstanceOf(IllegalArgumentException.class, missingShare.getCause());
+        assertFalse(executor.createIndex(index("INDEX_1")).get());
+    }
+
+    @Test
+    void testCrossShardOperations_ConsistentWhileOwnersWrite() throws Exception {
+        IndexService indexService = new IndexService(new IndexMapperImpl());
+        ShardedIndexExecutor executor = executor(indexService, 4);
+        for (int i = 0; i < 16; i++) {
+            executor.createIndex(index("INDEX_" + i)).get();
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int client = t;
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        String indexName = "INDEX_" + ((client * 100 + i) % 16);
+                        executor.applyDividend(new ShareDividendDTO("A.OQ", 0.1)).join();
+                        executor.addShareToIndex(new ShareAdditionDTO("X" + client + ".OQ", 10.0, 1.0, indexName)).join();
+                        executor.applyAdjustments(List.of(deletion("X" + client + ".OQ", indexName), dividend("B.OQ", 0.1)), true).join();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        // Every dividend reached every holder exactly once
+        for (int i = 0; i < 16; i++) {
+            assertEquals(1000.0 - 400 * 0.1, indexService.getIndex("INDEX_" + i).getShare("A.OQ").getSharePrice(), 1e-6);
+            assertEquals(200.0 - 400 * 0.1, indexService.getIndex("INDEX_" + i).getShare("B.OQ").getSharePrice(), 1e-6);
+            assertEquals(3, indexService.getIndex("INDEX_" + i).getShareCount());
+        }
+    }
+
+    @Test
+    void testJournal_FutureCompletesOnceDurable() throws Exception {
+        try (FileIndexJournal journal = new FileIndexJournal(directory, FileIndexJournal.Durability.BATCHED, 1024 * 1024, 10)) {
+            IndexService indexService = new IndexService(new IndexMapperImpl(), journal);
+            ShardedIndexExecutor executor = executor(indexService, 2);
+            for (int i = 0; i < 8; i++) {
+                String indexName = "INDEX_" + i;
+                executor.createIndex(index(indexName)).get();
+                assertTrue(journal.getDurableLsn() >= journal.getLastLsn());
+                executor.addShareToIndex(new ShareAdditionDTO("D.OQ", 40.0, 4.0, indexName)).get();
+                assertTrue(journal.getDurableLsn() >= journal.getLastLsn());
+            }
+        }
+    }
+
+    private ShardedIndexExecutor executor(IndexService indexService, int shards) {
+        ShardedIndexExecutor executor = new ShardedIndexExecutor(indexService, shards);
+        executors.add(executor);
+        return executor;
+    }
+
+    private static IndexDTO index(String indexName) {
+        return new IndexDTO(indexName, List.of(
+                new ShareDTO("A.OQ", 1000.0, 10.0),
+                new ShareDTO("B.OQ", 200.0, 20.0),
+                new ShareDTO("C.OQ", 300.0, 30.0)));
+    }
+
+    private static IndexAdjustmentRequestsDTO deletion(String shareName, String indexName) {
+        IndexAdjustmentRequestsDTO operation = new IndexAdjustmentRequestsDTO();
+        operation.setDeletionOperation(new ShareDeletionDTO(shareName, indexName));
+        return operation;
+    }
+
+    private static IndexAdjustmentRequestsDTO dividend(String shareName, double dividend) {
+        IndexAdjustmentRequestsDTO operation = new IndexAdjustmentRequestsDTO();
+        operation.setDividendOperation(new ShareDividendDTO(shareName, dividend));
+        return operation;
+    }
+}